@@ -0,0 +1,46 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks and saves the results as JSON, one file per run in benchmarks/results, so a run can be
+ * compared with earlier ones. Takes the usual JMH options, for example {@code -p rows=1000,100000} to run
+ * only the smaller inventories, or {@code -rf csv -rff results.csv} for another format.
+ */
+public final class BenchmarkMain {
+	private static final Path RESULTS = Paths.get("benchmarks", "results");
+	private static final DateTimeFormatter RUN_NAME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+	private BenchmarkMain()
+	{
+	}
+
+	public static void main(String[] args) throws CommandLineOptionException, IOException, RunnerException
+	{
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+		if(commandLine.getIncludes().isEmpty())
+		{
+			options.include(BenchmarkMain.class.getPackage().getName() + "\\.");
+		}
+		if(!commandLine.getResult().hasValue() && !commandLine.getResultFormat().hasValue())
+		{
+			Files.createDirectories(RESULTS);
+			options.resultFormat(ResultFormatType.JSON)
+					.result(RESULTS.resolve("jmh-" + LocalDateTime.now().format(RUN_NAME) + ".json").toString());
+		}
+		new Runner(options.build()).run();
+	}
+}
@@ -0,0 +1,148 @@
+package benchmarks;
+
+import classes.BillOfMaterials;
+import classes.Inventory;
+import classes.Part;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Roll-ups of a bill of materials ten levels deep: nine levels of sub-assemblies, each product holding three
+ * of the level below, and parts at the bottom, 14 lines to each of the 6,561 lowest products. About 100,000
+ * lines in all. The cold roll-ups start from a bill with nothing rolled up; repricePart changes one part's
+ * price and rolls the top product up again, which only redoes the products above that part.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BomRollup {
+	private static final long SEED = 42;
+	private static final int PARTS = 20_000;
+	private static final int LEVELS = 9;
+	private static final int BRANCHING = 3;
+	private static final int PART_LINES = 14;
+	private static final int ROOT = 1;
+
+	private Inventory inventory;
+	private BillOfMaterials bom;
+	private Part[] usedParts;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void buildBom()
+	{
+		inventory = newInventory();
+		bom = newBom(inventory);
+		List<Part> parts = inventory.getAllParts();
+		Random random = new Random(SEED);
+		usedParts = new Part[1024];
+		for(int i = 0; i < usedParts.length; i++)
+		{
+			usedParts[i] = parts.get(random.nextInt(parts.size()));
+		}
+		bom.unitCost(ROOT);
+	}
+
+	static Inventory newInventory()
+	{
+		return new InventoryData(PARTS, 1, 0.7, SEED).build(InventoryData.newStore("heap", PARTS));
+	}
+
+	/**
+	 * Fills a new bill: product 1 at the top, its sub-assemblies numbered level by level below it
+	 */
+	static BillOfMaterials newBom(Inventory inventory)
+	{
+		BillOfMaterials bom = new BillOfMaterials(inventory);
+		List<Part> parts = inventory.getAllParts();
+		Random random = new Random(SEED);
+		int levelStart = ROOT;
+		int levelSize = 1;
+		for(int level = 1; level < LEVELS; level++)
+		{
+			int nextStart = levelStart + levelSize;
+			for(int i = 0; i < levelSize; i++)
+			{
+				for(int j = 0; j < BRANCHING; j++)
+				{
+					bom.setProductQuantity(levelStart + i, nextStart + i * BRANCHING + j, 1 + random.nextInt(4));
+				}
+			}
+			levelStart = nextStart;
+			levelSize *= BRANCHING;
+		}
+		for(int i = 0; i < levelSize; i++)
+		{
+			for(int j = 0; j < PART_LINES; j++)
+			{
+				bom.setPartQuantity(levelStart + i, parts.get(random.nextInt(parts.size())).getId(),
+						1 + random.nextInt(4));
+			}
+		}
+		return bom;
+	}
+
+	/**
+	 * A change to one part's price, then the top product's cost rolled up again
+	 */
+	@Benchmark
+	public double repricePart()
+	{
+		Part part = usedParts[next++ & (usedParts.length - 1)];
+		part.setPrice(part.getPrice() + ((next & 1) == 0 ? 0.01 : -0.01));
+		return bom.unitCost(ROOT);
+	}
+
+	/**
+	 * The top product's cost rolled up through every level of a bill with nothing rolled up yet
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Measurement(iterations = 20, batchSize = 1)
+	public double coldUnitCost(FreshBom fresh)
+	{
+		return fresh.bom.unitCost(ROOT);
+	}
+
+	/**
+	 * The top product's part demand rolled up through every level of a bill with nothing rolled up yet
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Measurement(iterations = 20, batchSize = 1)
+	public BillOfMaterials.Demand coldPartDemand(FreshBom fresh)
+	{
+		return fresh.bom.partDemand(ROOT);
+	}
+
+	/**
+	 * A bill filled again before each call, untimed, over its own inventory so the bills before it can go
+	 */
+	@State(Scope.Thread)
+	public static class FreshBom {
+		BillOfMaterials bom;
+
+		@Setup(Level.Invocation)
+		public void fill()
+		{
+			bom = newBom(newInventory());
+		}
+	}
+}
@@ -0,0 +1,167 @@
+package benchmarks;
+
+import classes.BuildQueue;
+import classes.HeapPartStore;
+import classes.Inventory;
+import classes.InventoryLog;
+import classes.Part;
+import classes.Product;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Production runs of one unit each, of products using up to eight parts, built one at a time, a thousand
+ * to a batch, and a thousand at a time through a build queue. "logged" keeps the inventory in a data
+ * directory whose log syncs every commit, as the app does. Scores are builds per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class BuildThroughput {
+	private static final long SEED = 42;
+	private static final int PARTS = 1000;
+	private static final int PRODUCTS = 100;
+	private static final int RUNS = 1000;
+
+	@Param({"memory", "logged"})
+	public String inventoryKind;
+
+	private Path dataDirectory;
+	private Inventory inventory;
+	private ExecutorService inventoryThread;
+	private BuildQueue queue;
+	private int[] productIds;
+
+	@Setup(Level.Trial)
+	public void buildInventory() throws IOException
+	{
+		Inventory generated = new InventoryData(PARTS, PRODUCTS, 0.7, SEED).build(new HeapPartStore());
+		if(inventoryKind.equals("logged"))
+		{
+			dataDirectory = Files.createTempDirectory("build-throughput");
+			inventory = new Inventory(dataDirectory, new HeapPartStore(), InventoryLog.FsyncPolicy.ALWAYS);
+		}
+		else
+		{
+			inventory = new Inventory();
+		}
+		// The generated inventory is only where the parts and products come from; its parts move to this one
+		inventory.addParts(generated.getAllParts());
+		for(Part part : inventory.getAllParts())
+		{
+			// Enough stock that no run is ever turned away
+			part.setMax(Integer.MAX_VALUE);
+			part.setStock(Integer.MAX_VALUE / 2);
+		}
+		List<Product> products = generated.getAllProducts();
+		productIds = new int[products.size()];
+		for(int i = 0; i < products.size(); i++)
+		{
+			Product original = products.get(i);
+			Product product = new Product(original.getId(), original.getName(), original.getPrice(), 0, 0,
+					Integer.MAX_VALUE);
+			inventory.addProduct(product);
+			for(Part part : original.getAllAssociatedParts())
+			{
+				product.addAssociatedPart(inventory.lookupPart(part.getId()));
+			}
+			productIds[i] = product.getId();
+		}
+		inventoryThread = Executors.newSingleThreadExecutor();
+		queue = new BuildQueue(inventory, inventoryThread);
+	}
+
+	@TearDown(Level.Trial)
+	public void closeInventory() throws IOException
+	{
+		inventoryThread.shutdown();
+		inventory.close();
+		if(dataDirectory != null)
+		{
+			try(Stream<Path> files = Files.walk(dataDirectory))
+			{
+				files.sorted(Comparator.reverseOrder()).forEach(file -> {
+					try
+					{
+						Files.delete(file);
+					}
+					catch(IOException ex)
+					{
+						throw new UncheckedIOException(ex);
+					}
+				});
+			}
+		}
+	}
+
+	private int nextProductId()
+	{
+		return productIds[ThreadLocalRandom.current().nextInt(productIds.length)];
+	}
+
+	/**
+	 * One run, in its own batch
+	 */
+	@Benchmark
+	public boolean build()
+	{
+		return inventory.build(nextProductId(), 1);
+	}
+
+	/**
+	 * A thousand runs in one batch
+	 */
+	@Benchmark
+	@OperationsPerInvocation(RUNS)
+	public void buildBatch()
+	{
+		inventory.batch(tx -> {
+			for(int i = 0; i < RUNS; i++)
+			{
+				inventory.build(nextProductId(), 1);
+			}
+		});
+	}
+
+	/**
+	 * A thousand runs submitted to a build queue, waiting until the last is built
+	 */
+	@Benchmark
+	@OperationsPerInvocation(RUNS)
+	public boolean buildQueued()
+	{
+		CompletableFuture<Boolean> last = null;
+		for(int i = 0; i < RUNS; i++)
+		{
+			last = queue.submit(nextProductId(), 1);
+		}
+		return last.join();
+	}
+}
@@ -0,0 +1,215 @@
+package benchmarks;
+
+import classes.InHouse;
+import classes.IncrementalSearch;
+import classes.Inventory;
+import classes.Part;
+import classes.Product;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Hot paths of the inventory core and the search boxes, over a generated inventory of each size.
+ * Each call works on the next of a fixed set of ids, names or search texts drawn from the same seed,
+ * so every run measures the same work. The 10 million row inventories need a large heap, hence -Xmx16g.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+public class InventoryBenchmark {
+	private static final long SEED = 42;
+	// Ids, names and search texts cycled through; a power of two so the next one is a mask away
+	private static final int PROBES = 1024;
+	// Parts to each generated product
+	private static final int PARTS_PER_PRODUCT = 10;
+	// What people type into the search boxes: part of a name, an id, a name with no matches
+	private static final String[] SEARCH_TEXTS = {"steel", "bracket", "ring", "cable 4", "12", "zinc"};
+
+	@Param({"1000", "100000", "1000000", "10000000"})
+	public int rows;
+
+	@Param({"heap", "columnar"})
+	public String store;
+
+	@Param({"0.7"})
+	public double inHouseShare;
+
+	Inventory inventory;
+	private int[] partIds;
+	private String[] partNames;
+	private String[] upperCaseNames;
+	private Product product;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void buildInventory()
+	{
+		InventoryData data = new InventoryData(rows, Math.max(1, rows / PARTS_PER_PRODUCT), inHouseShare, SEED);
+		inventory = data.build(InventoryData.newStore(store, rows));
+
+		Random random = new Random(SEED);
+		List<Part> parts = inventory.getAllParts();
+		partIds = new int[PROBES];
+		partNames = new String[PROBES];
+		upperCaseNames = new String[PROBES];
+		for(int i = 0; i < PROBES; i++)
+		{
+			Part part = parts.get(random.nextInt(parts.size()));
+			partIds[i] = part.getId();
+			// Half the names looked up are not in the inventory
+			partNames[i] = i % 2 == 0 ? part.getName() : InventoryData.partName(random) + "x";
+			upperCaseNames[i] = partNames[i].toUpperCase();
+		}
+		product = inventory.getAllProducts().get(0);
+
+		// Build the lazily built indexes now rather than in the first measured call
+		inventory.lookupPart(partNames[0]);
+		inventory.findPartIds(SEARCH_TEXTS[0]);
+	}
+
+	private int next()
+	{
+		return next++ & (PROBES - 1);
+	}
+
+	private String nextSearchText()
+	{
+		return SEARCH_TEXTS[next() % SEARCH_TEXTS.length];
+	}
+
+	@Benchmark
+	public Part lookupPartById()
+	{
+		return inventory.lookupPart(partIds[next()]);
+	}
+
+	@Benchmark
+	public List<Part> lookupPartByName()
+	{
+		return inventory.lookupPart(partNames[next()]);
+	}
+
+	@Benchmark
+	public List<Part> lookupPartByNameIgnoreCase()
+	{
+		return inventory.lookupPart(upperCaseNames[next()], true);
+	}
+
+	/**
+	 * The part search box's query, as MainController.handleSearchPartAction submits it
+	 */
+	@Benchmark
+	public int[] findPartIds()
+	{
+		return inventory.findPartIds(nextSearchText());
+	}
+
+	/**
+	 * The search box's query turned into the parts the table shows
+	 */
+	@Benchmark
+	public List<Part> searchParts()
+	{
+		return inventory.searchParts(nextSearchText());
+	}
+
+	/**
+	 * Typing a search text one character at a time into a new search box
+	 */
+	@Benchmark
+	public int[] typeSearchText()
+	{
+		IncrementalSearch search = inventory.newPartSearch();
+		String text = nextSearchText();
+		int[] ids = null;
+		for(int length = 1; length <= text.length(); length++)
+		{
+			ids = search.find(text.substring(0, length));
+		}
+		return ids;
+	}
+
+	/**
+	 * The product forms' updateAvailableParts with the search box empty: every part not already associated
+	 */
+	@Benchmark
+	public List<Part> availableParts()
+	{
+		BitSet assigned = product.getAssociatedParts().idBits();
+		return inventory.getAllParts()
+				.stream()
+				.filter(part -> !assigned.get(part.getId()))
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * The product forms' search results: the matching parts not already associated
+	 */
+	@Benchmark
+	public List<Part> availablePartsForSearch()
+	{
+		int[] ids = inventory.findPartIds(nextSearchText());
+		return inventory.lookupParts(product.getAssociatedParts().without(ids));
+	}
+
+	/**
+	 * A change to the stock of a part the first product uses, which recomputes the buildable quantity of
+	 * every product using the part
+	 */
+	@Benchmark
+	public int restockUsedPart()
+	{
+		Part part = product.getAllAssociatedParts().get(0);
+		part.setStock(part.getStock() + ((next++ & 1) == 0 ? 1 : -1));
+		return inventory.buildableQuantity(product.getId());
+	}
+
+	/**
+	 * Deleting a part used by a few products; a part to delete is added before each call, untimed
+	 */
+	@Benchmark
+	public boolean deletePart(PartToDelete toDelete)
+	{
+		return inventory.deletePart(toDelete.part);
+	}
+
+	/**
+	 * A new part, used by as many products as a generated product uses parts
+	 */
+	@State(Scope.Thread)
+	public static class PartToDelete {
+		Part part;
+
+		@Setup(Level.Invocation)
+		public void addPart(InventoryBenchmark benchmark)
+		{
+			Inventory inventory = benchmark.inventory;
+			int id = inventory.nextPartId();
+			inventory.addPart(new InHouse(id, "Benchmark Part", 1.0, 1, 0, 10, 1));
+			part = inventory.lookupPart(id);
+			List<Product> products = inventory.getAllProducts();
+			for(int i = 0; i < Math.min(InventoryData.MAX_ASSOCIATED, products.size()); i++)
+			{
+				products.get(i).addAssociatedPart(part);
+			}
+		}
+	}
+}
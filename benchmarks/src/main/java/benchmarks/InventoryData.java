@@ -0,0 +1,158 @@
+package benchmarks;
+
+import classes.ColumnarPartStore;
+import classes.HeapPartStore;
+import classes.InHouse;
+import classes.Inventory;
+import classes.Outsourced;
+import classes.Part;
+import classes.PartStore;
+import classes.Product;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds synthetic inventories for the benchmarks: a mix of in-house and outsourced parts, and products
+ * each using a few of them. The same sizes, share and seed always build the same inventory, so results
+ * from different runs compare like with like.
+ */
+public final class InventoryData {
+	private static final String[] MATERIALS = {"Steel", "Brass", "Copper", "Nylon", "Rubber", "Carbon", "Ceramic", "Silicon"};
+	private static final String[] SHAPES = {"Bolt", "Bracket", "Cable", "Charger", "Fan", "Gasket", "Hinge", "Spring", "Valve", "Washer"};
+	private static final String[] COMPANIES = {"Acme", "Globex", "Initech", "Umbrella", "Hooli", "Vandelay", "Wonka", "Stark"};
+	private static final String[] PRODUCTS = {"Router", "Computer", "Printer", "Monitor", "Switch", "Scanner", "Speaker", "Tablet"};
+	// Model numbers per material and shape, so names repeat once there are more parts than this many times 80
+	private static final int MODELS = 1000;
+	// Parts added per call, so the whole catalog is never held twice
+	private static final int CHUNK = 100_000;
+
+	/**
+	 * Most parts a generated product uses; each uses between one and this many
+	 */
+	public static final int MAX_ASSOCIATED = 8;
+
+	private final int parts;
+	private final int products;
+	private final double inHouseShare;
+	private final long seed;
+
+	/**
+	 * @param parts number of parts
+	 * @param products number of products
+	 * @param inHouseShare share of parts that are in-house, between 0 and 1; the rest are outsourced
+	 * @param seed for the random values
+	 */
+	public InventoryData(int parts, int products, double inHouseShare, long seed)
+	{
+		if(parts < 1 || products < 0)
+		{
+			throw new IllegalArgumentException("Need at least one part and no fewer than zero products");
+		}
+		if(inHouseShare < 0 || inHouseShare > 1)
+		{
+			throw new IllegalArgumentException("inHouseShare must be between 0 and 1");
+		}
+		this.parts = parts;
+		this.products = products;
+		this.inHouseShare = inHouseShare;
+		this.seed = seed;
+	}
+
+	/**
+	 * @param store "heap" or "columnar"
+	 * @param expectedParts number of parts the store should size for
+	 * @return an empty part store of that kind
+	 */
+	public static PartStore newStore(String store, int expectedParts)
+	{
+		switch(store)
+		{
+			case "heap":
+				return new HeapPartStore();
+			case "columnar":
+				return new ColumnarPartStore(expectedParts);
+			default:
+				throw new IllegalArgumentException("Unknown part store: " + store);
+		}
+	}
+
+	/**
+	 * Builds the inventory in memory
+	 * @param store keeps the parts
+	 * @return the filled inventory
+	 */
+	public Inventory build(PartStore store)
+	{
+		Inventory inventory = new Inventory(store);
+		Random random = new Random(seed);
+
+		int firstPart = inventory.reservePartIds(parts);
+		List<Part> chunk = new ArrayList<>(Math.min(parts, CHUNK));
+		for(int i = 0; i < parts; i++)
+		{
+			chunk.add(part(firstPart + i, random));
+			if(chunk.size() == CHUNK)
+			{
+				inventory.addParts(chunk);
+				chunk.clear();
+			}
+		}
+		inventory.addParts(chunk);
+
+		int firstProduct = inventory.reserveProductIds(products);
+		List<Product> productChunk = new ArrayList<>(Math.min(products, CHUNK));
+		for(int i = 0; i < products; i++)
+		{
+			Product product = new Product(firstProduct + i,
+					PRODUCTS[random.nextInt(PRODUCTS.length)] + " " + random.nextInt(MODELS),
+					price(random), random.nextInt(100), 0, 100 + random.nextInt(100));
+			int associated = 1 + random.nextInt(MAX_ASSOCIATED);
+			for(int j = 0; j < associated; j++)
+			{
+				int partId = firstPart + random.nextInt(parts);
+				if(!product.isAssociated(partId))
+				{
+					product.addAssociatedPart(inventory.lookupPart(partId));
+				}
+			}
+			productChunk.add(product);
+			if(productChunk.size() == CHUNK)
+			{
+				inventory.addProducts(productChunk);
+				productChunk.clear();
+			}
+		}
+		inventory.addProducts(productChunk);
+		return inventory;
+	}
+
+	/**
+	 * @param random source of names
+	 * @return a part name as the generator makes them, which may or may not be in a given inventory
+	 */
+	public static String partName(Random random)
+	{
+		return MATERIALS[random.nextInt(MATERIALS.length)] + " " + SHAPES[random.nextInt(SHAPES.length)]
+				+ " " + random.nextInt(MODELS);
+	}
+
+	private Part part(int id, Random random)
+	{
+		String name = partName(random);
+		double price = price(random);
+		int min = random.nextInt(50);
+		int max = min + 100 + random.nextInt(1000);
+		int stock = min + random.nextInt(max - min + 1);
+		if(random.nextDouble() < inHouseShare)
+		{
+			return new InHouse(id, name, price, stock, min, max, 1 + random.nextInt(999));
+		}
+		return new Outsourced(id, name, price, stock, min, max, COMPANIES[random.nextInt(COMPANIES.length)]);
+	}
+
+	private static double price(Random random)
+	{
+		return (50 + random.nextInt(50_000)) / 100.0;
+	}
+}
@@ -0,0 +1,162 @@
+package benchmarks;
+
+import classes.InHouse;
+import classes.Inventory;
+import classes.Part;
+import classes.SharedInventory;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Many readers and writers on one shared inventory at once. Writers move stock between the first parts of
+ * the list, which never changes their total, and add parts to and remove them from the end of the list;
+ * readers take snapshots and check the total, so a snapshot showing half a write fails the run.
+ * Scores are operations per millisecond for each kind of thread.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class SharedInventoryStress {
+	private static final long SEED = 42;
+	// Parts whose stock the writers move around
+	private static final int LEDGER = 64;
+	// Parts added past the generated ones before the churning writer starts removing them again
+	private static final int CHURN = 1000;
+	private static final int PARTS_PER_PRODUCT = 10;
+
+	@Param({"1000", "100000", "1000000"})
+	public int rows;
+
+	@Param({"heap", "columnar"})
+	public String store;
+
+	private SharedInventory shared;
+	private long total;
+	private boolean growing = true;
+
+	@Setup(Level.Iteration)
+	public void shareInventory()
+	{
+		InventoryData data = new InventoryData(rows, Math.max(1, rows / PARTS_PER_PRODUCT), 0.7, SEED);
+		Inventory inventory = data.build(InventoryData.newStore(store, rows + CHURN));
+		shared = new SharedInventory(inventory);
+		total = ledgerTotal(shared.snapshot().getAllParts());
+	}
+
+	@TearDown(Level.Iteration)
+	public void checkInventory()
+	{
+		List<Part> parts = shared.snapshot().getAllParts();
+		if(ledgerTotal(parts) != total || parts.size() < rows || parts.size() > rows + CHURN)
+		{
+			throw new IllegalStateException("Inventory lost a write");
+		}
+	}
+
+	/**
+	 * Takes a snapshot and checks no stock went missing in it
+	 */
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(6)
+	public long readSnapshot()
+	{
+		SharedInventory.Snapshot snapshot = shared.snapshot();
+		long seen = ledgerTotal(snapshot.getAllParts());
+		if(seen != total)
+		{
+			throw new IllegalStateException("Snapshot " + snapshot.getVersion() + " shows a stock total of "
+					+ seen + " rather than " + total);
+		}
+		return snapshot.getVersion();
+	}
+
+	/**
+	 * Looks up a part in the latest snapshot, as a report job or API call would
+	 */
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(4)
+	public Part lookupPart()
+	{
+		List<Part> parts = shared.snapshot().getAllParts();
+		return parts.get(ThreadLocalRandom.current().nextInt(parts.size()));
+	}
+
+	/**
+	 * Moves one unit of stock from one ledger part to another
+	 */
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(2)
+	public void moveStock()
+	{
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int from = random.nextInt(LEDGER);
+		int to = random.nextInt(LEDGER);
+		shared.write(inventory -> {
+			Part giver = inventory.getAllParts().get(from);
+			Part taker = inventory.getAllParts().get(to);
+			giver.setStock(giver.getStock() - 1);
+			taker.setStock(taker.getStock() + 1);
+		});
+	}
+
+	/**
+	 * Adds a part to the end of the list, or removes the last one, so the list keeps changing size
+	 */
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(1)
+	public void churnParts()
+	{
+		shared.write(inventory -> {
+			List<Part> parts = inventory.getAllParts();
+			if(parts.size() == rows)
+			{
+				growing = true;
+			}
+			else if(parts.size() == rows + CHURN)
+			{
+				growing = false;
+			}
+			if(growing)
+			{
+				inventory.addPart(new InHouse(inventory.nextPartId(), "Churn Part", 1.0, 10, 0, 100, 1));
+			}
+			else
+			{
+				inventory.deletePart(parts.get(parts.size() - 1));
+			}
+		});
+	}
+
+	private static long ledgerTotal(List<Part> parts)
+	{
+		long sum = 0;
+		for(int i = 0; i < LEDGER; i++)
+		{
+			sum += parts.get(i).getStock();
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,98 @@
+package benchmarks;
+
+import classes.Inventory;
+import classes.Part;
+import classes.StockAlert;
+import classes.StockAlerts;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A part's stock changing while the needs-reorder list is watched, against finding the parts below their
+ * min by scanning the catalog. The generated stock is below 100 and the min is set to 50, so about half
+ * the parts need reordering and most changes move a part within the list or across its min.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StockAlertUpdates {
+	private static final long SEED = 42;
+	private static final int PROBES = 1024;
+	private static final int MIN = 50;
+
+	@Param({"1000", "100000", "1000000"})
+	public int rows;
+
+	private Inventory inventory;
+	private StockAlerts alerts;
+	private Part[] parts;
+	private int[] stocks;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void watchInventory()
+	{
+		inventory = new InventoryData(rows, 1, 0.7, SEED).build(InventoryData.newStore("heap", rows));
+		inventory.batch(tx -> {
+			for(Part part : inventory.getAllParts())
+			{
+				part.setMin(MIN);
+			}
+		});
+		alerts = new StockAlerts(inventory);
+		Random random = new Random(SEED);
+		List<Part> all = inventory.getAllParts();
+		parts = new Part[PROBES];
+		stocks = new int[PROBES];
+		for(int i = 0; i < PROBES; i++)
+		{
+			parts[i] = all.get(random.nextInt(all.size()));
+			stocks[i] = random.nextInt(2 * MIN);
+		}
+	}
+
+	/**
+	 * One stock change, which the watched lists follow
+	 */
+	@Benchmark
+	public StockAlert changeStock()
+	{
+		int probe = next++ & (PROBES - 1);
+		parts[probe].setStock(stocks[probe]);
+		return alerts.getNeedsReorder().get(0);
+	}
+
+	/**
+	 * The parts below their min, found by a scan of every part
+	 */
+	@Benchmark
+	public List<Part> rescan()
+	{
+		List<Part> low = new ArrayList<>();
+		for(Part part : inventory.getAllParts())
+		{
+			if(part.getStock() < part.getMin())
+			{
+				low.add(part);
+			}
+		}
+		return low;
+	}
+}
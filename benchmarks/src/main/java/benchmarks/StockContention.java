@@ -0,0 +1,144 @@
+package benchmarks;
+
+import classes.Inventory;
+import classes.Part;
+import classes.SharedInventory;
+import classes.StockReservation;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Order intake on 32 threads at once, each taking stock from a random one of a few hot parts and putting it
+ * back, so the stock never runs out. Fewer hot parts means more threads on each part's stock cell.
+ * lockedAdjust does the same through the shared inventory's write lock, for comparison.
+ * Scores are operations per millisecond over all threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Threads(32)
+public class StockContention {
+	private static final long SEED = 42;
+	private static final int PARTS = 10_000;
+	private static final int STOCK = 500_000;
+
+	@Param({"1", "64", "4096"})
+	public int hotParts;
+
+	private SharedInventory shared;
+	private int[] hotIds;
+
+	@Setup(Level.Iteration)
+	public void shareInventory()
+	{
+		Inventory inventory = new InventoryData(PARTS, PARTS / 10, 0.7, SEED).build(InventoryData.newStore("heap", PARTS));
+		shared = new SharedInventory(inventory);
+		hotIds = new int[hotParts];
+		shared.write(live -> {
+			List<Part> parts = live.getAllParts();
+			for(int i = 0; i < hotParts; i++)
+			{
+				Part part = parts.get(i * (PARTS / hotParts));
+				part.setMin(0);
+				part.setMax(2 * STOCK);
+				part.setStock(STOCK);
+				hotIds[i] = part.getId();
+			}
+		});
+	}
+
+	@TearDown(Level.Iteration)
+	public void checkStock()
+	{
+		// Every unit taken was put back, so once the last changes are written the stock is as it started
+		shared.flushStock();
+		SharedInventory.Snapshot snapshot = shared.snapshot();
+		for(int id : hotIds)
+		{
+			if(snapshot.lookupPart(id).getStock() != STOCK)
+			{
+				throw new IllegalStateException("Part " + id + " ended with " + snapshot.lookupPart(id).getStock()
+						+ " in stock rather than " + STOCK);
+			}
+		}
+	}
+
+	private int nextId()
+	{
+		return hotIds[ThreadLocalRandom.current().nextInt(hotIds.length)];
+	}
+
+	/**
+	 * An order reserving a unit and committing it, then the unit being restocked
+	 */
+	@Benchmark
+	public boolean reserveCommitRestock()
+	{
+		int id = nextId();
+		StockReservation reservation = shared.tryReservePart(id, 1, 1, TimeUnit.SECONDS);
+		if(reservation == null)
+		{
+			return false;
+		}
+		if(!reservation.commit())
+		{
+			return false;
+		}
+		return shared.adjustPartStock(id, 1);
+	}
+
+	/**
+	 * An order reserving a unit and then being cancelled
+	 */
+	@Benchmark
+	public boolean reserveRelease()
+	{
+		StockReservation reservation = shared.tryReservePart(nextId(), 1, 1, TimeUnit.SECONDS);
+		return reservation != null && reservation.release();
+	}
+
+	/**
+	 * A unit taken out of stock and put back, with no reservation
+	 */
+	@Benchmark
+	public boolean adjust()
+	{
+		int id = nextId();
+		return shared.adjustPartStock(id, -1) && shared.adjustPartStock(id, 1);
+	}
+
+	/**
+	 * The same as adjust, through the write lock, as stock changes would go without the stock cells
+	 */
+	@Benchmark
+	public void lockedAdjust()
+	{
+		int id = nextId();
+		shared.write(live -> {
+			Part part = live.lookupPart(id);
+			part.setStock(part.getStock() - 1);
+		});
+		shared.write(live -> {
+			Part part = live.lookupPart(id);
+			part.setStock(part.getStock() + 1);
+		});
+	}
+}
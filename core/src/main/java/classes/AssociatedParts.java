@@ -0,0 +1,115 @@
+package classes;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * List of the parts associated to a product, which also keeps their ids as a sorted int array.
+ * The list is what tables show; the ids answer membership in a binary search and set differences with
+ * bitset operations a word at a time, instead of scanning the list. Part ids must not be negative.
+ */
+public class AssociatedParts extends ChangeList<Part> {
+	private final List<Part> parts = new ArrayList<>();
+	private final IntSortedSet ids = new IntSortedSet();
+
+	/**
+	 * @param partId id of a part
+	 * @return true if a part with that id is in the list
+	 */
+	public boolean containsId(int partId)
+	{
+		return ids.contains(partId);
+	}
+
+	/**
+	 * @return ids of the parts in the list, in ascending order and without repeats
+	 */
+	public int[] ids()
+	{
+		return ids.toArray();
+	}
+
+	/**
+	 * @return ids of the parts in the list, as a bitset for testing many parts against
+	 */
+	public BitSet idBits()
+	{
+		BitSet bits = new BitSet(ids.isEmpty() ? 0 : ids.get(ids.size() - 1) + 1);
+		for(int i = 0; i < ids.size(); i++)
+		{
+			bits.set(ids.get(i));
+		}
+		return bits;
+	}
+
+	/**
+	 * @param partIds ids of parts, such as search results
+	 * @return the ids not in this list, in ascending order
+	 */
+	public int[] without(int[] partIds)
+	{
+		if(ids.isEmpty())
+		{
+			return partIds.clone();
+		}
+		BitSet remaining = new BitSet();
+		for(int partId : partIds)
+		{
+			remaining.set(partId);
+		}
+		remaining.andNot(idBits());
+		return remaining.stream().toArray();
+	}
+
+	@Override
+	public Part get(int index)
+	{
+		return parts.get(index);
+	}
+
+	@Override
+	public int size()
+	{
+		return parts.size();
+	}
+
+	@Override
+	void doAdd(int index, Part element)
+	{
+		parts.add(index, element);
+		ids.add(element.getId());
+	}
+
+	@Override
+	Part doSet(int index, Part element)
+	{
+		Part old = parts.set(index, element);
+		forget(old.getId());
+		ids.add(element.getId());
+		return old;
+	}
+
+	@Override
+	Part doRemove(int index)
+	{
+		Part old = parts.remove(index);
+		forget(old.getId());
+		return old;
+	}
+
+	/**
+	 * Drops an id unless another part in the list still has it
+	 */
+	private void forget(int partId)
+	{
+		for(Part part : parts)
+		{
+			if(part.getId() == partId)
+			{
+				return;
+			}
+		}
+		ids.remove(partId);
+	}
+}
@@ -0,0 +1,58 @@
+package classes;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Array list that tells its listeners about each change, and whose edits can be grouped into batches.
+ * @param <E> type of element
+ */
+class BatchList<E> extends ChangeList<E> {
+	private final List<E> items = new ArrayList<>();
+
+	@Override
+	public boolean addAll(Collection<? extends E> elements)
+	{
+		// One range added in one copy, rather than an element at a time
+		if(elements.isEmpty())
+		{
+			return false;
+		}
+		int from = items.size();
+		items.addAll(elements);
+		modCount++;
+		fireAdded(from, items.size());
+		return true;
+	}
+
+	@Override
+	public E get(int index)
+	{
+		return items.get(index);
+	}
+
+	@Override
+	public int size()
+	{
+		return items.size();
+	}
+
+	@Override
+	void doAdd(int index, E element)
+	{
+		items.add(index, element);
+	}
+
+	@Override
+	E doSet(int index, E element)
+	{
+		return items.set(index, element);
+	}
+
+	@Override
+	E doRemove(int index)
+	{
+		return items.remove(index);
+	}
+}
@@ -0,0 +1,639 @@
+package classes;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Multi-level bill of materials over an inventory: each product has lines, each a quantity of a part or of
+ * another product built as a sub-assembly. Lines are kept by id, separately from the products' associated
+ * parts, and outlive the products they name; clear() drops a product's lines. A product can never contain
+ * itself, however many levels down.
+ * <p>
+ * Roll-ups are kept until a line below them changes: unit costs for the product asked about and every
+ * product below it, part demands for the products asked about, summed top down in one pass over the lines
+ * below that reuses the demands already rolled up. A part's price changing only clears the costs of the
+ * products above it.
+ * Use on one thread at a time, like the inventory.
+ */
+public class BillOfMaterials {
+	private final Inventory inventory;
+	private final IntMap<Assembly> assemblies = new IntMap<>();
+	private final IntMap<PartUse> partUses = new IntMap<>();
+	// Stamp of the current walk looking for a cycle, so no walk clears the marks of the one before
+	private int visit;
+
+	/**
+	 * @param inventory whose parts the lines name, and whose part prices the costs come from
+	 */
+	public BillOfMaterials(Inventory inventory)
+	{
+		this.inventory = inventory;
+		inventory.addListener(new InventoryListener() {
+			@Override
+			public void partChanged(Part part)
+			{
+				PartUse use = partUses.get(part.getId());
+				if(use != null && Double.compare(use.price, part.getPrice()) != 0)
+				{
+					partRepriced(part.getId());
+				}
+			}
+		});
+		inventory.getAllParts().addListener(new ChangeList.Listener<Part>() {
+			@Override
+			public void added(int from, int to)
+			{
+				for(int i = from; i < to && partUses.size() > 0; i++)
+				{
+					partRepriced(inventory.getAllParts().get(i).getId());
+				}
+			}
+
+			@Override
+			public void removed(int index, Part removed)
+			{
+				partRepriced(removed.getId());
+			}
+
+			@Override
+			public void replaced(int index, Part replaced)
+			{
+				partRepriced(replaced.getId());
+				partRepriced(inventory.getAllParts().get(index).getId());
+			}
+		});
+	}
+
+	/**
+	 * Sets how many of a part go into one unit of a product
+	 * @param productId id of the product
+	 * @param partId id of the part
+	 * @param quantity per unit of the product; 0 removes the line
+	 * @throws IllegalArgumentException if the quantity is negative
+	 */
+	public void setPartQuantity(int productId, int partId, int quantity)
+	{
+		checkQuantity(quantity);
+		Assembly assembly = quantity == 0 ? assemblies.get(productId) : assembly(productId);
+		if(assembly == null || !assembly.parts.set(partId, quantity))
+		{
+			return;
+		}
+		PartUse use = partUses.get(partId);
+		if(quantity == 0)
+		{
+			if(use != null && use.products.remove(productId) && use.products.isEmpty())
+			{
+				partUses.remove(partId);
+			}
+		}
+		else
+		{
+			if(use == null)
+			{
+				use = new PartUse();
+				partUses.put(partId, use);
+			}
+			use.products.add(productId);
+		}
+		invalidate(assembly, true);
+	}
+
+	/**
+	 * Sets how many units of a sub-assembly go into one unit of a product
+	 * @param productId id of the product
+	 * @param subProductId id of the product built as a sub-assembly of it
+	 * @param quantity per unit of the product; 0 removes the line
+	 * @throws IllegalArgumentException if the quantity is negative, or the product is the sub-assembly or is
+	 * already in it, which would make the product contain itself
+	 */
+	public void setProductQuantity(int productId, int subProductId, int quantity)
+	{
+		checkQuantity(quantity);
+		if(quantity == 0)
+		{
+			Assembly assembly = assemblies.get(productId);
+			if(assembly != null && assembly.products.set(subProductId, 0))
+			{
+				assemblies.get(subProductId).parents.remove(productId);
+				invalidate(assembly, true);
+			}
+			return;
+		}
+		if(productId == subProductId || contains(subProductId, productId))
+		{
+			throw new IllegalArgumentException("Product " + subProductId + " contains product " + productId
+					+ ", so it cannot go into it");
+		}
+		Assembly assembly = assembly(productId);
+		if(assembly.products.set(subProductId, quantity))
+		{
+			assembly(subProductId).parents.add(productId);
+			invalidate(assembly, true);
+		}
+	}
+
+	/**
+	 * @param productId id of a product
+	 * @param partId id of a part
+	 * @return how many of the part its own lines put in one unit of the product, not counting sub-assemblies
+	 */
+	public int getPartQuantity(int productId, int partId)
+	{
+		Assembly assembly = assemblies.get(productId);
+		return assembly == null ? 0 : assembly.parts.get(partId);
+	}
+
+	/**
+	 * @param productId id of a product
+	 * @param subProductId id of another product
+	 * @return how many units of the other product its own lines put in one unit of the product
+	 */
+	public int getProductQuantity(int productId, int subProductId)
+	{
+		Assembly assembly = assemblies.get(productId);
+		return assembly == null ? 0 : assembly.products.get(subProductId);
+	}
+
+	/**
+	 * @param productId id of a product
+	 * @param subProductId id of another product
+	 * @return true if the other product goes into the product at any level
+	 */
+	public boolean contains(int productId, int subProductId)
+	{
+		Assembly start = assemblies.get(productId);
+		if(start == null || start.products.size == 0)
+		{
+			return false;
+		}
+		int stamp = ++visit;
+		Deque<Assembly> pending = new ArrayDeque<>();
+		pending.push(start);
+		while(!pending.isEmpty())
+		{
+			Lines lines = pending.pop().products;
+			for(int i = 0; i < lines.size; i++)
+			{
+				if(lines.ids[i] == subProductId)
+				{
+					return true;
+				}
+				Assembly child = assemblies.get(lines.ids[i]);
+				if(child.visited != stamp)
+				{
+					child.visited = stamp;
+					pending.push(child);
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes every line of a product, leaving the lines of other products that use it
+	 * @param productId id of the product
+	 */
+	public void clear(int productId)
+	{
+		Assembly assembly = assemblies.get(productId);
+		if(assembly == null)
+		{
+			return;
+		}
+		while(assembly.parts.size > 0)
+		{
+			setPartQuantity(productId, assembly.parts.ids[assembly.parts.size - 1], 0);
+		}
+		while(assembly.products.size > 0)
+		{
+			setProductQuantity(productId, assembly.products.ids[assembly.products.size - 1], 0);
+		}
+	}
+
+	/**
+	 * Rolls up the cost of one unit of a product: the price of each part times its quantity, over every level.
+	 * Parts no longer in the inventory cost nothing.
+	 * @param productId id of the product
+	 * @return cost of the parts in one unit, or 0 if the product has no lines
+	 */
+	public double unitCost(int productId)
+	{
+		Assembly root = assemblies.get(productId);
+		if(root == null)
+		{
+			return 0;
+		}
+		// Children before parents, without recursion, so a deep bill does not run out of stack
+		Deque<Assembly> pending = new ArrayDeque<>();
+		pending.push(root);
+		while(!pending.isEmpty())
+		{
+			Assembly assembly = pending.peek();
+			if(assembly.costValid)
+			{
+				pending.pop();
+				continue;
+			}
+			boolean ready = true;
+			Lines products = assembly.products;
+			for(int i = 0; i < products.size; i++)
+			{
+				Assembly child = assemblies.get(products.ids[i]);
+				if(!child.costValid)
+				{
+					pending.push(child);
+					ready = false;
+				}
+			}
+			if(ready)
+			{
+				pending.pop();
+				assembly.cost = costOf(assembly);
+				assembly.costValid = true;
+			}
+		}
+		return root.cost;
+	}
+
+	/**
+	 * Rolls up how many of each part one unit of a product takes, over every level
+	 * @param productId id of the product
+	 * @return part quantities, empty if the product has no lines
+	 * @throws ArithmeticException if a quantity does not fit in a long
+	 */
+	public Demand partDemand(int productId)
+	{
+		Assembly root = assemblies.get(productId);
+		if(root == null)
+		{
+			return Demand.EMPTY;
+		}
+		if(root.demand != null)
+		{
+			return root.demand;
+		}
+		// The products below without a demand rolled up, each with the number of lines to it from the others
+		int stamp = ++visit;
+		List<Assembly> below = new ArrayList<>();
+		root.visited = stamp;
+		root.waiting = 0;
+		root.multiplier = 1;
+		below.add(root);
+		for(int b = 0; b < below.size(); b++)
+		{
+			Lines products = below.get(b).products;
+			for(int i = 0; i < products.size; i++)
+			{
+				Assembly child = assemblies.get(products.ids[i]);
+				if(child.demand != null)
+				{
+					continue;
+				}
+				if(child.visited != stamp)
+				{
+					child.visited = stamp;
+					child.waiting = 0;
+					child.multiplier = 0;
+					below.add(child);
+				}
+				child.waiting++;
+			}
+		}
+		// Units of each product in one of the root, top down, so each part line is counted once however
+		// many products above it use it. Products with a demand rolled up add theirs instead.
+		Totals totals = new Totals();
+		Deque<Assembly> ready = new ArrayDeque<>();
+		ready.add(root);
+		while(!ready.isEmpty())
+		{
+			Assembly assembly = ready.poll();
+			long units = assembly.multiplier;
+			Lines parts = assembly.parts;
+			for(int i = 0; i < parts.size; i++)
+			{
+				totals.add(parts.ids[i], Math.multiplyExact(units, parts.quantities[i]));
+			}
+			Lines products = assembly.products;
+			for(int i = 0; i < products.size; i++)
+			{
+				Assembly child = assemblies.get(products.ids[i]);
+				long childUnits = Math.multiplyExact(units, products.quantities[i]);
+				if(child.demand != null)
+				{
+					Demand demand = child.demand;
+					for(int j = 0; j < demand.size; j++)
+					{
+						totals.add(demand.partIds[j], Math.multiplyExact(childUnits, demand.quantities[j]));
+					}
+				}
+				else
+				{
+					child.multiplier = Math.addExact(child.multiplier, childUnits);
+					if(--child.waiting == 0)
+					{
+						ready.add(child);
+					}
+				}
+			}
+		}
+		for(Assembly assembly : below)
+		{
+			assembly.counted = true;
+		}
+		root.demand = totals.toDemand();
+		return root.demand;
+	}
+
+	private double costOf(Assembly assembly)
+	{
+		double cost = 0;
+		Lines parts = assembly.parts;
+		for(int i = 0; i < parts.size; i++)
+		{
+			int partId = parts.ids[i];
+			Part part = inventory.lookupPart(partId);
+			double price = part == null ? 0 : part.getPrice();
+			// Remembered so a change to the part's other fields leaves the costs alone
+			partUses.get(partId).price = price;
+			cost += price * parts.quantities[i];
+		}
+		Lines products = assembly.products;
+		for(int i = 0; i < products.size; i++)
+		{
+			cost += assemblies.get(products.ids[i]).cost * products.quantities[i];
+		}
+		return cost;
+	}
+
+	/**
+	 * Clears the costs of the products using a part and of everything above them
+	 */
+	private void partRepriced(int partId)
+	{
+		PartUse use = partUses.get(partId);
+		if(use == null)
+		{
+			return;
+		}
+		for(int i = 0; i < use.products.size(); i++)
+		{
+			invalidate(assemblies.get(use.products.get(i)), false);
+		}
+	}
+
+	/**
+	 * Clears the roll-ups of an assembly and of every product above it. A product whose roll-up is already
+	 * clear, and that no demand rolled up above it counted, has every product above it clear too, so the
+	 * walk stops there.
+	 * @param demand true to clear the part demand as well as the cost
+	 */
+	private void invalidate(Assembly from, boolean demand)
+	{
+		Deque<Assembly> pending = new ArrayDeque<>();
+		pending.push(from);
+		while(!pending.isEmpty())
+		{
+			Assembly assembly = pending.pop();
+			if(!assembly.costValid && (!demand || (assembly.demand == null && !assembly.counted)))
+			{
+				continue;
+			}
+			assembly.costValid = false;
+			if(demand)
+			{
+				assembly.demand = null;
+				assembly.counted = false;
+			}
+			for(int i = 0; i < assembly.parents.size(); i++)
+			{
+				pending.push(assemblies.get(assembly.parents.get(i)));
+			}
+		}
+	}
+
+	private Assembly assembly(int productId)
+	{
+		Assembly assembly = assemblies.get(productId);
+		if(assembly == null)
+		{
+			assembly = new Assembly();
+			assemblies.put(productId, assembly);
+		}
+		return assembly;
+	}
+
+	private static void checkQuantity(int quantity)
+	{
+		if(quantity < 0)
+		{
+			throw new IllegalArgumentException("Quantity cannot be negative");
+		}
+	}
+
+	/**
+	 * Part quantities rolled up for one unit of a product, in ascending order of part id. Immutable.
+	 */
+	public static final class Demand {
+		static final Demand EMPTY = new Demand(new int[0], new long[0], 0);
+
+		private final int[] partIds;
+		private final long[] quantities;
+		private final int size;
+
+		private Demand(int[] partIds, long[] quantities, int size)
+		{
+			this.partIds = partIds;
+			this.quantities = quantities;
+			this.size = size;
+		}
+
+		/**
+		 * @return number of different parts
+		 */
+		public int size()
+		{
+			return size;
+		}
+
+		/**
+		 * @param index from 0 to size() - 1
+		 * @return id of the part at the index
+		 */
+		public int partId(int index)
+		{
+			checkIndex(index);
+			return partIds[index];
+		}
+
+		/**
+		 * @param index from 0 to size() - 1
+		 * @return quantity of the part at the index
+		 */
+		public long quantity(int index)
+		{
+			checkIndex(index);
+			return quantities[index];
+		}
+
+		/**
+		 * @param partId id of a part
+		 * @return quantity of the part, or 0 if none is needed
+		 */
+		public long quantityOf(int partId)
+		{
+			int index = Arrays.binarySearch(partIds, 0, size, partId);
+			return index < 0 ? 0 : quantities[index];
+		}
+
+		/**
+		 * @return sum of the quantities of every part
+		 */
+		public long total()
+		{
+			long total = 0;
+			for(int i = 0; i < size; i++)
+			{
+				total = Math.addExact(total, quantities[i]);
+			}
+			return total;
+		}
+
+		private void checkIndex(int index)
+		{
+			if(index < 0 || index >= size)
+			{
+				throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+			}
+		}
+	}
+
+	/**
+	 * Lines of one product and the roll-ups made from them
+	 */
+	private static final class Assembly {
+		final Lines parts = new Lines();
+		final Lines products = new Lines();
+		// Products with a line for this one
+		final IntSortedSet parents = new IntSortedSet();
+		double cost;
+		boolean costValid;
+		// Null until rolled up, and again once a line below changes
+		Demand demand;
+		// Set once the demand of a product above was rolled up through this one, without rolling up its own
+		boolean counted;
+		// Scratch space of the walks over the products below another
+		int visited;
+		int waiting;
+		long multiplier;
+	}
+
+	/**
+	 * Part quantities being added up, by part id
+	 */
+	private static final class Totals {
+		private final IntIntMap index = new IntIntMap(-1);
+		private int[] partIds = new int[64];
+		private long[] quantities = new long[64];
+		private int size;
+
+		void add(int partId, long quantity)
+		{
+			int at = index.get(partId);
+			if(at >= 0)
+			{
+				quantities[at] = Math.addExact(quantities[at], quantity);
+				return;
+			}
+			if(size == partIds.length)
+			{
+				partIds = Arrays.copyOf(partIds, size * 2);
+				quantities = Arrays.copyOf(quantities, size * 2);
+			}
+			index.put(partId, size);
+			partIds[size] = partId;
+			quantities[size++] = quantity;
+		}
+
+		Demand toDemand()
+		{
+			int[] sorted = Arrays.copyOf(partIds, size);
+			Arrays.sort(sorted);
+			long[] sums = new long[size];
+			for(int i = 0; i < size; i++)
+			{
+				sums[i] = quantities[index.get(sorted[i])];
+			}
+			return new Demand(sorted, sums, size);
+		}
+	}
+
+	/**
+	 * Quantities by id, sorted by id
+	 */
+	private static final class Lines {
+		int[] ids = new int[4];
+		int[] quantities = new int[4];
+		int size;
+
+		int get(int id)
+		{
+			int index = Arrays.binarySearch(ids, 0, size, id);
+			return index < 0 ? 0 : quantities[index];
+		}
+
+		/**
+		 * @param quantity 0 to remove the line
+		 * @return true if the line changed
+		 */
+		boolean set(int id, int quantity)
+		{
+			int index = Arrays.binarySearch(ids, 0, size, id);
+			if(index >= 0)
+			{
+				if(quantities[index] == quantity)
+				{
+					return false;
+				}
+				if(quantity == 0)
+				{
+					System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+					System.arraycopy(quantities, index + 1, quantities, index, size - index - 1);
+					size--;
+				}
+				else
+				{
+					quantities[index] = quantity;
+				}
+				return true;
+			}
+			if(quantity == 0)
+			{
+				return false;
+			}
+			int insertAt = -index - 1;
+			if(size == ids.length)
+			{
+				ids = Arrays.copyOf(ids, size * 2);
+				quantities = Arrays.copyOf(quantities, size * 2);
+			}
+			System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+			System.arraycopy(quantities, insertAt, quantities, insertAt + 1, size - insertAt);
+			ids[insertAt] = id;
+			quantities[insertAt] = quantity;
+			size++;
+			return true;
+		}
+	}
+
+	/**
+	 * Products with a line for one part, and the part's price when their costs were last rolled up
+	 */
+	private static final class PartUse {
+		final IntSortedSet products = new IntSortedSet();
+		double price = Double.NaN;
+	}
+}
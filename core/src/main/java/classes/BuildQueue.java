@@ -0,0 +1,118 @@
+package classes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Production runs waiting to be built, submitted from any thread and built on the inventory's own thread.
+ * The runs waiting when the inventory's thread gets to them are built in one batch, so however many there
+ * are, views update once and the log commits and syncs once. Each run is still built on its own with
+ * Inventory.build, so a run it turns away, one the part stock does not cover or that would take a part below
+ * its min or the product above its max, does not hold up the others.
+ */
+public class BuildQueue {
+	// Most runs built in one batch, so one batch never holds up the inventory's thread for long
+	private static final int MAX_RUNS = 4096;
+
+	private final Inventory inventory;
+	private final Executor inventoryThread;
+	private final Queue<Run> runs = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean pending = new AtomicBoolean();
+
+	/**
+	 * @param inventory to build in
+	 * @param inventoryThread runs tasks on the thread that uses the inventory, such as Platform::runLater
+	 */
+	public BuildQueue(Inventory inventory, Executor inventoryThread)
+	{
+		this.inventory = inventory;
+		this.inventoryThread = inventoryThread;
+	}
+
+	/**
+	 * Queues a production run
+	 * @param productId id of the product to build
+	 * @param quantity units to build
+	 * @return completes with true once the run is built, or false if Inventory.build turned it away; completes
+	 * exceptionally if the batch it was in failed and was undone
+	 * @throws IllegalArgumentException if the quantity is not positive
+	 */
+	public CompletableFuture<Boolean> submit(int productId, int quantity)
+	{
+		if(quantity <= 0)
+		{
+			throw new IllegalArgumentException("Quantity to build must be positive");
+		}
+		Run run = new Run(productId, quantity);
+		runs.add(run);
+		if(pending.compareAndSet(false, true))
+		{
+			inventoryThread.execute(this::drain);
+		}
+		return run.result;
+	}
+
+	/**
+	 * Builds the runs waiting, on the inventory's thread
+	 */
+	private void drain()
+	{
+		// Cleared first, so a run queued after the poll below asks for another drain
+		pending.set(false);
+		List<Run> drained = new ArrayList<>();
+		Run run;
+		while(drained.size() < MAX_RUNS && (run = runs.poll()) != null)
+		{
+			drained.add(run);
+		}
+		if(!runs.isEmpty() && pending.compareAndSet(false, true))
+		{
+			inventoryThread.execute(this::drain);
+		}
+		if(drained.isEmpty())
+		{
+			return;
+		}
+		boolean[] built = new boolean[drained.size()];
+		try
+		{
+			inventory.batch(tx -> {
+				for(int i = 0; i < built.length; i++)
+				{
+					Run next = drained.get(i);
+					built[i] = inventory.build(next.productId, next.quantity);
+				}
+			});
+		}
+		catch(RuntimeException ex)
+		{
+			for(Run failed : drained)
+			{
+				failed.result.completeExceptionally(ex);
+			}
+			return;
+		}
+		// Only once the batch committed, so nobody sees a run as built that could still be undone
+		for(int i = 0; i < built.length; i++)
+		{
+			drained.get(i).result.complete(built[i]);
+		}
+	}
+
+	private static final class Run {
+		final int productId;
+		final int quantity;
+		final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+		Run(int productId, int quantity)
+		{
+			this.productId = productId;
+			this.quantity = quantity;
+		}
+	}
+}
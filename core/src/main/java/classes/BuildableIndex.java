@@ -0,0 +1,93 @@
+package classes;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * How many units of each product the stock of its associated parts can make: for every part, its stock
+ * divided by the number of times it is associated, rounded down, and the least of those over the parts.
+ * A part associated twice takes two units of its stock per product. A product with no parts, or with a
+ * part that is not in the inventory, makes none. Kept per product, so a change to one part's stock only
+ * recomputes the products using it.
+ */
+class BuildableIndex {
+	private final IntIntMap quantities = new IntIntMap(-1);
+	private final IntFunction<Part> parts;
+
+	/**
+	 * @param parts finds the inventory's part with an id, or null
+	 */
+	BuildableIndex(IntFunction<Part> parts)
+	{
+		this.parts = parts;
+	}
+
+	/**
+	 * @param productId id of a product
+	 * @return units of the product the parts in stock make, or -1 if the product is not indexed
+	 */
+	int get(int productId)
+	{
+		return quantities.get(productId);
+	}
+
+	/**
+	 * Recomputes a product's quantity from the current stock of its parts
+	 * @param product to recompute
+	 * @return true if the quantity changed, or the product was not indexed before
+	 */
+	boolean update(Product product)
+	{
+		int quantity = compute(product);
+		return quantities.put(product.getId(), quantity) != quantity;
+	}
+
+	/**
+	 * @param product no longer in the inventory
+	 */
+	void remove(Product product)
+	{
+		quantities.remove(product.getId(), quantities.get(product.getId()));
+	}
+
+	private int compute(Product product)
+	{
+		AssociatedParts associated = product.getAssociatedParts();
+		int[] ids = associated.ids();
+		if(ids.length == 0)
+		{
+			return 0;
+		}
+		int[] uses = uses(associated, ids);
+		int quantity = Integer.MAX_VALUE;
+		for(int i = 0; i < ids.length && quantity > 0; i++)
+		{
+			Part part = parts.apply(ids[i]);
+			if(part == null)
+			{
+				return 0;
+			}
+			quantity = Math.min(quantity, Math.max(0, part.getStock()) / Math.max(1, uses[i]));
+		}
+		return quantity;
+	}
+
+	/**
+	 * @param associated parts associated to a product
+	 * @param ids the parts' ids, as associated.ids() gives them
+	 * @return times each part is associated, by its position in the ids
+	 */
+	static int[] uses(AssociatedParts associated, int[] ids)
+	{
+		int[] uses = new int[ids.length];
+		for(int i = 0; i < associated.size(); i++)
+		{
+			int position = Arrays.binarySearch(ids, associated.get(i).getId());
+			if(position >= 0)
+			{
+				uses[position]++;
+			}
+		}
+		return uses;
+	}
+}
@@ -0,0 +1,178 @@
+package classes;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * List that tells its listeners about each change as it is made, so indexes and views can follow it.
+ * Listeners hear of every add, remove and replacement right after it happens, with the list already
+ * changed; changes made inside a batch are also bracketed by batchStarted and batchEnded, so a view
+ * can present the whole batch as one change. Use on one thread at a time.
+ * @param <E> type of element
+ */
+public abstract class ChangeList<E> extends AbstractList<E> implements RandomAccess {
+	private final List<Listener<? super E>> listeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Told about the changes to a list
+	 * @param <E> type of element
+	 */
+	public interface Listener<E> {
+		/**
+		 * A batch of changes is starting; batches may nest
+		 */
+		default void batchStarted()
+		{
+		}
+
+		/**
+		 * The batch started by the matching batchStarted() has ended
+		 */
+		default void batchEnded()
+		{
+		}
+
+		/**
+		 * @param from index of the first element added
+		 * @param to index after the last element added
+		 */
+		void added(int from, int to);
+
+		/**
+		 * @param index where the element was
+		 * @param removed element that was removed
+		 */
+		void removed(int index, E removed);
+
+		/**
+		 * @param index of the element replaced
+		 * @param replaced element that was there before
+		 */
+		void replaced(int index, E replaced);
+	}
+
+	/**
+	 * @param listener to tell about changes from now on
+	 */
+	public void addListener(Listener<? super E> listener)
+	{
+		listeners.add(listener);
+	}
+
+	/**
+	 * @param listener to stop telling about changes
+	 */
+	public void removeListener(Listener<? super E> listener)
+	{
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Starts a batch of changes; calls may nest
+	 */
+	void beginBatch()
+	{
+		for(Listener<? super E> listener : listeners)
+		{
+			listener.batchStarted();
+		}
+	}
+
+	/**
+	 * Ends the batch started by the matching beginBatch()
+	 */
+	void endBatch()
+	{
+		for(Listener<? super E> listener : listeners)
+		{
+			listener.batchEnded();
+		}
+	}
+
+	@Override
+	public void add(int index, E element)
+	{
+		if(index < 0 || index > size())
+		{
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+		}
+		doAdd(index, element);
+		modCount++;
+		fireAdded(index, index + 1);
+	}
+
+	@Override
+	public E set(int index, E element)
+	{
+		E old = doSet(index, element);
+		fireReplaced(index, old);
+		return old;
+	}
+
+	@Override
+	public E remove(int index)
+	{
+		E old = doRemove(index);
+		modCount++;
+		fireRemoved(index, old);
+		return old;
+	}
+
+	/**
+	 * Tells listeners a range of elements was added, for subclasses adding many at once
+	 * @param from index of the first element added
+	 * @param to index after the last element added
+	 */
+	void fireAdded(int from, int to)
+	{
+		for(Listener<? super E> listener : listeners)
+		{
+			listener.added(from, to);
+		}
+	}
+
+	/**
+	 * Tells listeners an element was removed, for subclasses that change themselves
+	 * @param index where the element was
+	 * @param removed element that was removed
+	 */
+	void fireRemoved(int index, E removed)
+	{
+		for(Listener<? super E> listener : listeners)
+		{
+			listener.removed(index, removed);
+		}
+	}
+
+	/**
+	 * Tells listeners an element was replaced, for subclasses that change themselves
+	 * @param index of the element replaced
+	 * @param replaced element that was there before
+	 */
+	void fireReplaced(int index, E replaced)
+	{
+		for(Listener<? super E> listener : listeners)
+		{
+			listener.replaced(index, replaced);
+		}
+	}
+
+	/**
+	 * Inserts an element without telling listeners
+	 */
+	abstract void doAdd(int index, E element);
+
+	/**
+	 * Replaces an element without telling listeners
+	 * @return the element replaced
+	 */
+	abstract E doSet(int index, E element);
+
+	/**
+	 * Removes an element without telling listeners
+	 * @return the element removed
+	 */
+	abstract E doRemove(int index);
+}
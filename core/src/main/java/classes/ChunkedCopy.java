@@ -0,0 +1,166 @@
+package classes;
+
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Immutable copies of a list, made in fixed-size chunks so a new copy shares every chunk the list has not
+ * changed in since the last one. Follows the list's changes as a listener; changes to an element's fields
+ * are reported with changed(id). Listener calls and copy() must not overlap.
+ * @param <T> type of element
+ */
+final class ChunkedCopy<T> implements ChangeList.Listener<T> {
+	static final int CHUNK = 512;
+
+	private final ChangeList<T> source;
+	private final UnaryOperator<T> copier;
+	private final ToIntFunction<T> idOf;
+	private Object[][] chunks = new Object[0][];
+	// Chunks replaced in place, and the first chunk whose positions may have shifted
+	private final BitSet dirty = new BitSet();
+	private int shiftedFrom;
+	// Ids of elements whose fields changed; their chunks are found when copying
+	private final IntIntMap changedIds = new IntIntMap(-1);
+	private List<T> copy;
+
+	/**
+	 * @param source list to copy
+	 * @param copier makes a copy of an element that is detached from the list
+	 * @param idOf id of an element
+	 */
+	ChunkedCopy(ChangeList<T> source, UnaryOperator<T> copier, ToIntFunction<T> idOf)
+	{
+		this.source = source;
+		this.copier = copier;
+		this.idOf = idOf;
+		source.addListener(this);
+	}
+
+	@Override
+	public void added(int from, int to)
+	{
+		shifted(from);
+	}
+
+	@Override
+	public void removed(int index, T removed)
+	{
+		shifted(index);
+	}
+
+	@Override
+	public void replaced(int index, T replaced)
+	{
+		dirty.set(index / CHUNK);
+		copy = null;
+	}
+
+	/**
+	 * @param id of an element whose fields changed
+	 */
+	void changed(int id)
+	{
+		changedIds.put(id, 0);
+		copy = null;
+	}
+
+	/**
+	 * Copies everything again on the next copy(), for changes that were not reported
+	 */
+	void invalidate()
+	{
+		shifted(0);
+	}
+
+	/**
+	 * @return an immutable copy of the list as it is now
+	 */
+	List<T> copy()
+	{
+		if(copy != null)
+		{
+			return copy;
+		}
+		int size = source.size();
+		Object[][] next = new Object[(size + CHUNK - 1) / CHUNK][];
+		for(int c = 0; c < next.length; c++)
+		{
+			if(c < shiftedFrom && c < chunks.length && !dirty.get(c) && !holdsChanged(chunks[c]))
+			{
+				next[c] = chunks[c];
+				continue;
+			}
+			int from = c * CHUNK;
+			Object[] chunk = new Object[Math.min(CHUNK, size - from)];
+			for(int i = 0; i < chunk.length; i++)
+			{
+				chunk[i] = copier.apply(source.get(from + i));
+			}
+			next[c] = chunk;
+		}
+		chunks = next;
+		dirty.clear();
+		shiftedFrom = Integer.MAX_VALUE;
+		changedIds.clear();
+		copy = new Chunks<>(next, size);
+		return copy;
+	}
+
+	private void shifted(int index)
+	{
+		shiftedFrom = Math.min(shiftedFrom, index / CHUNK);
+		copy = null;
+	}
+
+	@SuppressWarnings("unchecked")
+	private boolean holdsChanged(Object[] chunk)
+	{
+		if(changedIds.size() == 0)
+		{
+			return false;
+		}
+		for(Object element : chunk)
+		{
+			if(changedIds.get(idOf.applyAsInt((T) element)) >= 0)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Read-only list over a copy's chunks
+	 */
+	private static final class Chunks<T> extends AbstractList<T> implements RandomAccess {
+		private final Object[][] chunks;
+		private final int size;
+
+		Chunks(Object[][] chunks, int size)
+		{
+			this.chunks = chunks;
+			this.size = size;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public T get(int index)
+		{
+			if(index < 0 || index >= size)
+			{
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+			}
+			return (T) chunks[index / CHUNK][index % CHUNK];
+		}
+
+		@Override
+		public int size()
+		{
+			return size;
+		}
+	}
+}
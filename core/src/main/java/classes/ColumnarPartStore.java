@@ -0,0 +1,169 @@
+package classes;
+
+import java.util.Arrays;
+
+/**
+ * Keeps parts in primitive columns, one array per field, instead of one object per part.
+ * Names and company names live in a {@link StringTable}.
+ */
+public class ColumnarPartStore extends SlotPartStore {
+	private final StringTable strings = new StringTable();
+
+	// Columns, indexed by slot
+	private int[] ids;
+	private double[] prices;
+	private int[] stocks;
+	private int[] mins;
+	private int[] maxes;
+	private int[] nameRefs;
+	// Machine id for in-house parts, company name reference for outsourced parts
+	private int[] extras;
+	private byte[] kinds;
+
+	public ColumnarPartStore()
+	{
+		this(1024);
+	}
+
+	/**
+	 * @param expectedParts number of parts to size the columns for
+	 */
+	public ColumnarPartStore(int expectedParts)
+	{
+		super(expectedParts);
+		int capacity = Math.max(16, expectedParts);
+		ids = new int[capacity];
+		prices = new double[capacity];
+		stocks = new int[capacity];
+		mins = new int[capacity];
+		maxes = new int[capacity];
+		nameRefs = new int[capacity];
+		extras = new int[capacity];
+		kinds = new byte[capacity];
+	}
+
+	@Override
+	void ensureSlots(int slots)
+	{
+		if(slots > ids.length)
+		{
+			int capacity = Math.max(slots, ids.length + (ids.length >> 1));
+			ids = Arrays.copyOf(ids, capacity);
+			prices = Arrays.copyOf(prices, capacity);
+			stocks = Arrays.copyOf(stocks, capacity);
+			mins = Arrays.copyOf(mins, capacity);
+			maxes = Arrays.copyOf(maxes, capacity);
+			nameRefs = Arrays.copyOf(nameRefs, capacity);
+			extras = Arrays.copyOf(extras, capacity);
+			kinds = Arrays.copyOf(kinds, capacity);
+		}
+	}
+
+	@Override
+	byte kind(int slot)
+	{
+		return kinds[slot];
+	}
+
+	@Override
+	void kind(int slot, byte kind)
+	{
+		kinds[slot] = kind;
+	}
+
+	@Override
+	int id(int slot)
+	{
+		return ids[slot];
+	}
+
+	@Override
+	void id(int slot, int id)
+	{
+		ids[slot] = id;
+	}
+
+	@Override
+	String name(int slot)
+	{
+		return strings.get(nameRefs[slot]);
+	}
+
+	@Override
+	void name(int slot, String name)
+	{
+		nameRefs[slot] = strings.intern(name);
+	}
+
+	@Override
+	double price(int slot)
+	{
+		return prices[slot];
+	}
+
+	@Override
+	void price(int slot, double price)
+	{
+		prices[slot] = price;
+	}
+
+	@Override
+	int stock(int slot)
+	{
+		return stocks[slot];
+	}
+
+	@Override
+	void stock(int slot, int stock)
+	{
+		stocks[slot] = stock;
+	}
+
+	@Override
+	int min(int slot)
+	{
+		return mins[slot];
+	}
+
+	@Override
+	void min(int slot, int min)
+	{
+		mins[slot] = min;
+	}
+
+	@Override
+	int max(int slot)
+	{
+		return maxes[slot];
+	}
+
+	@Override
+	void max(int slot, int max)
+	{
+		maxes[slot] = max;
+	}
+
+	@Override
+	int machineId(int slot)
+	{
+		return extras[slot];
+	}
+
+	@Override
+	void machineId(int slot, int machineId)
+	{
+		extras[slot] = machineId;
+	}
+
+	@Override
+	String companyName(int slot)
+	{
+		return strings.get(extras[slot]);
+	}
+
+	@Override
+	void companyName(int slot, String companyName)
+	{
+		extras[slot] = strings.intern(companyName);
+	}
+}
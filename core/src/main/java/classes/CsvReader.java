@@ -0,0 +1,156 @@
+package classes;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads comma separated records one at a time, so a file of any size is never held in memory.
+ * Fields may be quoted with double quotes, in which case they can contain commas, line breaks and
+ * doubled quotes. Unquoted fields are trimmed. Blank lines are skipped.
+ */
+class CsvReader {
+	private final Reader in;
+	private final char[] buffer = new char[8192];
+	private int position;
+	private int limit;
+	private int line = 1;
+	private int recordLine;
+	private final List<String> fields = new ArrayList<>();
+	private final StringBuilder field = new StringBuilder();
+
+	/**
+	 * @param in text to read, ideally buffered by the caller's stream only
+	 */
+	CsvReader(Reader in)
+	{
+		this.in = in;
+	}
+
+	/**
+	 * @return the fields of the next record, or null at the end of the input
+	 * @throws IOException if the input cannot be read or a quoted field is not closed
+	 */
+	String[] next() throws IOException
+	{
+		while(true)
+		{
+			int c = read();
+			if(c < 0)
+			{
+				return null;
+			}
+			if(c == '\n' || c == '\r')
+			{
+				continue;
+			}
+			recordLine = line;
+			fields.clear();
+			readRecord(c);
+			return fields.toArray(new String[0]);
+		}
+	}
+
+	/**
+	 * @return line number the last record returned by next() started on, counting from 1
+	 */
+	int line()
+	{
+		return recordLine;
+	}
+
+	private void readRecord(int c) throws IOException
+	{
+		while(true)
+		{
+			field.setLength(0);
+			if(c == '"')
+			{
+				c = readQuoted();
+			}
+			else
+			{
+				while(c >= 0 && c != ',' && c != '\n' && c != '\r')
+				{
+					field.append((char) c);
+					c = read();
+				}
+				trimField();
+			}
+			fields.add(field.toString());
+			if(c != ',')
+			{
+				return;
+			}
+			c = read();
+		}
+	}
+
+	/**
+	 * Reads a quoted field and whatever follows it up to the next separator
+	 * @return the separator, line break or -1 that ended the field
+	 */
+	private int readQuoted() throws IOException
+	{
+		int startLine = line;
+		while(true)
+		{
+			int c = read();
+			if(c < 0)
+			{
+				throw new IOException("Unclosed quote in field starting on line " + startLine);
+			}
+			if(c == '"')
+			{
+				c = read();
+				if(c != '"')
+				{
+					// Ignore anything between the closing quote and the separator
+					while(c >= 0 && c != ',' && c != '\n' && c != '\r')
+					{
+						c = read();
+					}
+					return c;
+				}
+			}
+			field.append((char) c);
+		}
+	}
+
+	private void trimField()
+	{
+		int end = field.length();
+		while(end > 0 && Character.isWhitespace(field.charAt(end - 1)))
+		{
+			end--;
+		}
+		int start = 0;
+		while(start < end && Character.isWhitespace(field.charAt(start)))
+		{
+			start++;
+		}
+		field.setLength(end);
+		field.delete(0, start);
+	}
+
+	private int read() throws IOException
+	{
+		if(position == limit)
+		{
+			limit = in.read(buffer, 0, buffer.length);
+			position = 0;
+			if(limit <= 0)
+			{
+				limit = 0;
+				return -1;
+			}
+		}
+		char c = buffer[position++];
+		if(c == '\n')
+		{
+			line++;
+		}
+		return c;
+	}
+}
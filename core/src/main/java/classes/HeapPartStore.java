@@ -0,0 +1,85 @@
+package classes;
+
+import java.util.List;
+
+/**
+ * Keeps each part as its own object in a list, indexed by id.
+ */
+public class HeapPartStore extends PartStore {
+	private final BatchList<Part> parts = new BatchList<>();
+	private final IntMap<Part> partsById = new IntMap<>();
+
+	@Override
+	ChangeList<Part> list()
+	{
+		return parts;
+	}
+
+	@Override
+	Part lookup(int id)
+	{
+		return partsById.get(id);
+	}
+
+	@Override
+	Part add(Part part)
+	{
+		parts.add(part);
+		partsById.put(part.getId(), part);
+		return part;
+	}
+
+	@Override
+	Part insert(int index, Part part)
+	{
+		parts.add(index, part);
+		partsById.put(part.getId(), part);
+		return part;
+	}
+
+	@Override
+	List<Part> addAll(List<Part> newParts)
+	{
+		for(Part part : newParts)
+		{
+			partsById.put(part.getId(), part);
+		}
+		parts.addAll(newParts);
+		return newParts;
+	}
+
+	@Override
+	Part set(int index, Part part)
+	{
+		Part oldPart = parts.set(index, part);
+		partsById.remove(oldPart.getId(), oldPart);
+		partsById.put(part.getId(), part);
+		return part;
+	}
+
+	@Override
+	void remove(int index)
+	{
+		Part oldPart = parts.remove(index);
+		partsById.remove(oldPart.getId(), oldPart);
+	}
+
+	@Override
+	Part copyOf(Part part)
+	{
+		// Parts are kept as they are, so a removed part is still a whole part
+		return part;
+	}
+
+	@Override
+	void beginBatch()
+	{
+		parts.beginBatch();
+	}
+
+	@Override
+	void endBatch()
+	{
+		parts.endBatch();
+	}
+}
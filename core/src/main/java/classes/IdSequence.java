@@ -0,0 +1,143 @@
+package classes;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out unique ids without locking, optionally surviving restarts.
+ * When backed by a file, the file holds a high-water mark a block ahead of the last id handed out,
+ * so it only needs rewriting once per block. Ids up to the mark are never reused after a restart,
+ * at the cost of skipping whatever was left of the block.
+ */
+public class IdSequence {
+	private static final int PERSIST_BLOCK = 1024;
+
+	private final AtomicInteger last = new AtomicInteger();
+	private final Path file;
+	private volatile int persistedMark;
+
+	/**
+	 * Creates a sequence that only lives in memory
+	 */
+	public IdSequence()
+	{
+		this.file = null;
+		this.persistedMark = Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Creates a sequence persisted to a file, continuing after the mark stored there
+	 * @param file to keep the high-water mark in
+	 * @throws IOException if the file exists but cannot be read
+	 */
+	public IdSequence(Path file) throws IOException
+	{
+		this.file = file;
+		int mark = 0;
+		if(Files.exists(file))
+		{
+			try
+			{
+				mark = Integer.parseInt(new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim());
+			}
+			catch(NumberFormatException ex)
+			{
+				throw new IOException("Corrupt id sequence file " + file, ex);
+			}
+		}
+		this.last.set(mark);
+		this.persistedMark = mark;
+	}
+
+	/**
+	 * @return a new unique id
+	 */
+	public int next()
+	{
+		return reserve(1);
+	}
+
+	/**
+	 * Claims a block of consecutive ids in a single compare-and-set
+	 * @param count number of ids to claim
+	 * @return the first id of the block; the block runs to first + count - 1
+	 */
+	public int reserve(int count)
+	{
+		if(count < 1)
+		{
+			throw new IllegalArgumentException("count must be positive");
+		}
+		while(true)
+		{
+			int current = last.get();
+			int end = Math.addExact(current, count);
+			if(last.compareAndSet(current, end))
+			{
+				persistThrough(end);
+				return current + 1;
+			}
+		}
+	}
+
+	/**
+	 * Moves the sequence past an id that was assigned elsewhere, such as a seeded or imported row
+	 * @param id already in use
+	 */
+	public void observe(int id)
+	{
+		int current = last.get();
+		while(id > current)
+		{
+			if(last.compareAndSet(current, id))
+			{
+				persistThrough(id);
+				return;
+			}
+			current = last.get();
+		}
+	}
+
+	/**
+	 * @return the last id handed out or observed
+	 */
+	public int current()
+	{
+		return last.get();
+	}
+
+	/**
+	 * Makes sure the stored high-water mark covers an id before it is handed out
+	 */
+	private void persistThrough(int id)
+	{
+		if(id <= persistedMark)
+		{
+			return;
+		}
+		synchronized(this)
+		{
+			if(id <= persistedMark)
+			{
+				return;
+			}
+			int mark = id > Integer.MAX_VALUE - PERSIST_BLOCK ? Integer.MAX_VALUE : id + PERSIST_BLOCK;
+			try
+			{
+				Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+				Files.write(temp, Integer.toString(mark).getBytes(StandardCharsets.US_ASCII));
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch(IOException ex)
+			{
+				throw new UncheckedIOException("Unable to save id sequence " + file, ex);
+			}
+			persistedMark = mark;
+		}
+	}
+}
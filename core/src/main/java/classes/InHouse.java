@@ -20,6 +20,8 @@ public class InHouse extends Part {
 	 * @param machineId the machineId to set
 	 */
 	public void setMachineId(int machineId) {
+		changing();
 		this.machineId = machineId;
+		changed();
 	}
 }
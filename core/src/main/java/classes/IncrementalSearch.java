@@ -0,0 +1,88 @@
+package classes;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+
+/**
+ * Search box query that reuses its earlier results while the user types.
+ * When the new text contains the previous text, as it does after typing another character, only the
+ * previous matches are checked, so each keystroke costs time in proportion to the previous result rather
+ * than to the whole catalog. Earlier results are kept on a short stack, so deleting characters returns a
+ * result already found. Any change to the inventory's names discards them all.
+ * <p>
+ * Safe on any thread, like {@link Inventory#findPartIds}; create one per search box with
+ * {@link Inventory#newPartSearch()} or {@link Inventory#newProductSearch()}.
+ */
+public class IncrementalSearch {
+	// Results kept for backspacing; the oldest, largest result is dropped first
+	private static final int MAX_DEPTH = 32;
+
+	private final NGramIndex<?> index;
+	private final Deque<Result> results = new ArrayDeque<>();
+
+	IncrementalSearch(NGramIndex<?> index)
+	{
+		this.index = index;
+	}
+
+	/**
+	 * Finds the ids of every item whose name or id contains the search text, ignoring case
+	 * @param searchText text typed into a search box
+	 * @return matching ids in ascending order, which may be shared with later calls and must not be changed
+	 * @throws java.util.concurrent.CancellationException if the calling thread is interrupted
+	 */
+	public synchronized int[] find(String searchText)
+	{
+		String text = searchText == null ? "" : searchText.toLowerCase(Locale.ROOT);
+		if(text.isEmpty())
+		{
+			return new int[0];
+		}
+		long version = index.version();
+		if(!results.isEmpty() && results.peek().version != version)
+		{
+			results.clear();
+		}
+		while(!results.isEmpty() && !text.contains(results.peek().text))
+		{
+			results.pop();
+		}
+		if(!results.isEmpty() && results.peek().text.equals(text))
+		{
+			return results.peek().ids;
+		}
+
+		int[] ids = results.isEmpty() ? index.searchIds(text) : index.refineIds(results.peek().ids, text);
+		if(index.version() == version)
+		{
+			// Nothing changed while searching, so the result can be narrowed later
+			results.push(new Result(text, ids, version));
+			if(results.size() > MAX_DEPTH)
+			{
+				results.removeLast();
+			}
+		}
+		else
+		{
+			results.clear();
+		}
+		return ids;
+	}
+
+	/**
+	 * Ids matching a search text, as of a version of the index
+	 */
+	private static final class Result {
+		final String text;
+		final int[] ids;
+		final long version;
+
+		Result(String text, int[] ids, long version)
+		{
+			this.text = text;
+			this.ids = ids;
+			this.version = version;
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package classes;
+
+import java.util.Arrays;
+
+/**
+ * Hash map from primitive int keys to primitive int values, so neither side is boxed.
+ * Same open addressing layout as {@link IntMap}.
+ */
+public class IntIntMap {
+	private static final int MIN_CAPACITY = 16;
+
+	private final int missing;
+	private int[] keys;
+	private int[] values;
+	private boolean[] used;
+	private int size;
+	private int mask;
+
+	/**
+	 * @param missing value returned by get() for keys that are not in the map
+	 */
+	public IntIntMap(int missing)
+	{
+		this.missing = missing;
+		allocate(MIN_CAPACITY);
+	}
+
+	/**
+	 * @param key to look up
+	 * @return the value for the key, or the missing value if there is none
+	 */
+	public int get(int key)
+	{
+		int slot = slotOf(key);
+		return slot < 0 ? missing : values[slot];
+	}
+
+	/**
+	 * Sets the value for a key.
+	 * @param key to set
+	 * @param value to store
+	 * @return the previous value for the key, or the missing value
+	 */
+	public int put(int key, int value)
+	{
+		int slot = hash(key) & mask;
+		while(used[slot])
+		{
+			if(keys[slot] == key)
+			{
+				int old = values[slot];
+				values[slot] = value;
+				return old;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		used[slot] = true;
+		if(++size * 4 > used.length * 3)
+		{
+			rehash(used.length << 1);
+		}
+		return missing;
+	}
+
+	/**
+	 * Removes a key only while it still maps to the given value.
+	 * @param key to remove
+	 * @param value expected current value
+	 * @return true if removed
+	 */
+	public boolean remove(int key, int value)
+	{
+		int slot = slotOf(key);
+		if(slot < 0 || values[slot] != value)
+		{
+			return false;
+		}
+		size--;
+
+		// Shift later entries of the probe run back so lookups never stop at a hole.
+		int hole = slot;
+		int next = (hole + 1) & mask;
+		while(used[next])
+		{
+			int home = hash(keys[next]) & mask;
+			if(((next - home) & mask) >= ((next - hole) & mask))
+			{
+				keys[hole] = keys[next];
+				values[hole] = values[next];
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+		used[hole] = false;
+		return true;
+	}
+
+	/**
+	 * @return number of entries
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Removes every entry.
+	 */
+	public void clear()
+	{
+		Arrays.fill(used, false);
+		size = 0;
+	}
+
+	private int slotOf(int key)
+	{
+		int slot = hash(key) & mask;
+		while(used[slot])
+		{
+			if(keys[slot] == key)
+			{
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	private void rehash(int capacity)
+	{
+		int[] oldKeys = keys;
+		int[] oldValues = values;
+		boolean[] oldUsed = used;
+		allocate(capacity);
+		for(int i = 0; i < oldUsed.length; i++)
+		{
+			if(oldUsed[i])
+			{
+				int slot = hash(oldKeys[i]) & mask;
+				while(used[slot])
+				{
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+				used[slot] = true;
+			}
+		}
+	}
+
+	private void allocate(int capacity)
+	{
+		keys = new int[capacity];
+		values = new int[capacity];
+		used = new boolean[capacity];
+		mask = capacity - 1;
+	}
+
+	private static int hash(int key)
+	{
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
@@ -0,0 +1,219 @@
+package classes;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Hash map keyed by primitive ints, used for the id indexes in the inventory.
+ * Open addressing with linear probing, so lookups never box the key or walk a chain.
+ * @param <V> type of value stored
+ */
+public class IntMap<V> {
+	private static final int MIN_CAPACITY = 16;
+
+	private int[] keys;
+	private Object[] values;
+	private int size;
+	private int mask;
+
+	public IntMap()
+	{
+		this(MIN_CAPACITY);
+	}
+
+	/**
+	 * @param expectedSize number of entries to size the table for
+	 */
+	public IntMap(int expectedSize)
+	{
+		int capacity = MIN_CAPACITY;
+		while(capacity * 3 < expectedSize * 4)
+		{
+			capacity <<= 1;
+		}
+		allocate(capacity);
+	}
+
+	/**
+	 * @param key to look up
+	 * @return the value for the key, or null if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(int key)
+	{
+		int slot = slotOf(key);
+		return slot < 0 ? null : (V) values[slot];
+	}
+
+	/**
+	 * @param key to look up
+	 * @return true if the key has a value
+	 */
+	public boolean containsKey(int key)
+	{
+		return slotOf(key) >= 0;
+	}
+
+	/**
+	 * Sets the value for a key.
+	 * @param key to set
+	 * @param value to store, must not be null
+	 * @return the previous value for the key, or null
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(int key, V value)
+	{
+		if(value == null)
+		{
+			throw new IllegalArgumentException("IntMap does not store null values");
+		}
+		int slot = hash(key) & mask;
+		while(values[slot] != null)
+		{
+			if(keys[slot] == key)
+			{
+				V old = (V) values[slot];
+				values[slot] = value;
+				return old;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		if(++size * 4 > values.length * 3)
+		{
+			rehash(values.length << 1);
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the value for a key.
+	 * @param key to remove
+	 * @return the removed value, or null if there was none
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(int key)
+	{
+		int slot = slotOf(key);
+		if(slot < 0)
+		{
+			return null;
+		}
+		V old = (V) values[slot];
+		size--;
+
+		// Shift later entries of the probe run back so lookups never stop at a hole.
+		int hole = slot;
+		int next = (hole + 1) & mask;
+		while(values[next] != null)
+		{
+			int home = hash(keys[next]) & mask;
+			if(((next - home) & mask) >= ((next - hole) & mask))
+			{
+				keys[hole] = keys[next];
+				values[hole] = values[next];
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+		values[hole] = null;
+		return old;
+	}
+
+	/**
+	 * Removes a key only while it still maps to the given value.
+	 * @param key to remove
+	 * @param value expected current value
+	 * @return true if removed
+	 */
+	public boolean remove(int key, V value)
+	{
+		if(get(key) != value)
+		{
+			return false;
+		}
+		remove(key);
+		return true;
+	}
+
+	/**
+	 * @return number of entries
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Removes every entry.
+	 */
+	public void clear()
+	{
+		Arrays.fill(values, null);
+		size = 0;
+	}
+
+	/**
+	 * @param action to run for every value, in table order
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEachValue(Consumer<? super V> action)
+	{
+		for(Object value : values)
+		{
+			if(value != null)
+			{
+				action.accept((V) value);
+			}
+		}
+	}
+
+	private int slotOf(int key)
+	{
+		int slot = hash(key) & mask;
+		while(values[slot] != null)
+		{
+			if(keys[slot] == key)
+			{
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	private void rehash(int capacity)
+	{
+		int[] oldKeys = keys;
+		Object[] oldValues = values;
+		allocate(capacity);
+		for(int i = 0; i < oldValues.length; i++)
+		{
+			if(oldValues[i] != null)
+			{
+				int slot = hash(oldKeys[i]) & mask;
+				while(values[slot] != null)
+				{
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	private void allocate(int capacity)
+	{
+		keys = new int[capacity];
+		values = new Object[capacity];
+		mask = capacity - 1;
+	}
+
+	private static int hash(int key)
+	{
+		// Ids are sequential, so spread them before masking.
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
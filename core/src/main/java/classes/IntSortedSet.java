@@ -0,0 +1,130 @@
+package classes;
+
+import java.util.Arrays;
+
+/**
+ * Growable set of ints kept as a sorted array.
+ * Compact enough to keep one per index key, and sorted so sets can be merged and intersected in order.
+ */
+public class IntSortedSet {
+	private static final int[] EMPTY = new int[0];
+
+	private int[] values = EMPTY;
+	private int size;
+
+	/**
+	 * @param value to add
+	 * @return true if the value was not already in the set
+	 */
+	public boolean add(int value)
+	{
+		// Ids are mostly handed out in increasing order, so appending is the common case.
+		if(size == 0 || values[size - 1] < value)
+		{
+			ensureCapacity(size + 1);
+			values[size++] = value;
+			return true;
+		}
+		int index = Arrays.binarySearch(values, 0, size, value);
+		if(index >= 0)
+		{
+			return false;
+		}
+		int insertAt = -index - 1;
+		ensureCapacity(size + 1);
+		System.arraycopy(values, insertAt, values, insertAt + 1, size - insertAt);
+		values[insertAt] = value;
+		size++;
+		return true;
+	}
+
+	/**
+	 * @param value to remove
+	 * @return true if the value was in the set
+	 */
+	public boolean remove(int value)
+	{
+		int index = Arrays.binarySearch(values, 0, size, value);
+		if(index < 0)
+		{
+			return false;
+		}
+		System.arraycopy(values, index + 1, values, index, size - index - 1);
+		size--;
+		return true;
+	}
+
+	/**
+	 * @param value to check
+	 * @return true if the value is in the set
+	 */
+	public boolean contains(int value)
+	{
+		return Arrays.binarySearch(values, 0, size, value) >= 0;
+	}
+
+	/**
+	 * Finds the first position at or after a starting point whose value is not less than the target,
+	 * galloping forwards so a run of increasing targets walks the set once.
+	 * @param target value to find
+	 * @param from position to start from
+	 * @return position of the first value not less than target, or size() if there is none
+	 */
+	public int seek(int target, int from)
+	{
+		int low = from;
+		int step = 1;
+		while(low + step < size && values[low + step] < target)
+		{
+			low += step;
+			step <<= 1;
+		}
+		int index = Arrays.binarySearch(values, low, Math.min(low + step + 1, size), target);
+		return index >= 0 ? index : -index - 1;
+	}
+
+	/**
+	 * @param index position in ascending order
+	 * @return the value at that position
+	 */
+	public int get(int index)
+	{
+		if(index >= size)
+		{
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return values[index];
+	}
+
+	/**
+	 * @return number of values
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @return true if the set has no values
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * @return the values in ascending order
+	 */
+	public int[] toArray()
+	{
+		return Arrays.copyOf(values, size);
+	}
+
+	private void ensureCapacity(int capacity)
+	{
+		if(capacity > values.length)
+		{
+			values = Arrays.copyOf(values, Math.max(4, Math.max(capacity, values.length + (values.length >> 1))));
+		}
+	}
+}
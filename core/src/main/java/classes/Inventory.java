@@ -0,0 +1,1337 @@
+package classes;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Inventory of all parts and products
+ */
+public class Inventory implements Closeable {
+	private static final long SYNC_INTERVAL_MILLIS = 200;
+	private static final String SNAPSHOT_FILE = "inventory.snapshot";
+	private static final String LOG_FILE = "inventory.log";
+
+	private final PartStore parts;
+	private final ChangeList<Part> allParts;
+	private final BatchList<Product> allProducts = new BatchList<>();
+	private final IntMap<Product> productsById = new IntMap<>();
+	// Built on the first lookup by name, so loading a large part list does not wait for it
+	private NameIndex partNames;
+	private final NameIndex productNames = new NameIndex();
+	private final IntMap<IntSortedSet> partUsage = new IntMap<>();
+	private final BuildableIndex buildable;
+	private final NGramIndex<Part> partSearch;
+	private final NGramIndex<Product> productSearch =
+			new NGramIndex<>(allProducts, Product::getId, Product::getName, productsById::get);
+	private final IdSequence partIds;
+	private final IdSequence productIds;
+	private Path dataDirectory;
+	private InventoryLog log;
+	// Copies of the lists for snapshotInBackground(), made on its first call
+	private ChunkedCopy<Part> savedParts;
+	private ChunkedCopy<Product> savedProducts;
+	private final InventoryTx tx = new Tx();
+	// Undo actions of the open batch, newest first; null outside a batch
+	private Deque<Runnable> undo;
+	// Ids of the parts and products whose fields the open batch changed, so each is saved for undo only once
+	private final IntIntMap changedParts = new IntIntMap(-1);
+	private final IntIntMap changedProducts = new IntIntMap(-1);
+	private final List<InventoryListener> listeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Creates an inventory whose id sequences only live in memory
+	 */
+	public Inventory()
+	{
+		this(new HeapPartStore(), new IdSequence(), new IdSequence());
+		prepareSearch();
+	}
+
+	/**
+	 * Creates an inventory with its parts kept in the given store, whose id sequences only live in memory
+	 * @param partStore storage for the parts
+	 */
+	public Inventory(PartStore partStore)
+	{
+		this(partStore, new IdSequence(), new IdSequence());
+		prepareSearch();
+	}
+
+	/**
+	 * Opens the inventory saved in a data directory, loading its latest snapshot and replaying the changes logged since
+	 * @param dataDirectory directory to keep inventory files in
+	 * @throws IOException if the directory or its files cannot be read
+	 */
+	public Inventory(Path dataDirectory) throws IOException
+	{
+		this(dataDirectory, new HeapPartStore());
+	}
+
+	/**
+	 * Opens the inventory saved in a data directory with its parts kept in the given store
+	 * @param dataDirectory directory to keep inventory files in
+	 * @param partStore storage for the parts
+	 * @throws IOException if the directory or its files cannot be read
+	 */
+	public Inventory(Path dataDirectory, PartStore partStore) throws IOException
+	{
+		this(dataDirectory, partStore, InventoryLog.FsyncPolicy.ALWAYS);
+	}
+
+	/**
+	 * Opens the inventory saved in a data directory with its parts kept in the given store
+	 * @param dataDirectory directory to keep inventory files in
+	 * @param partStore storage for the parts
+	 * @param fsyncPolicy when the log of changes is forced to disk
+	 * @throws IOException if the directory or its files cannot be read
+	 */
+	public Inventory(Path dataDirectory, PartStore partStore, InventoryLog.FsyncPolicy fsyncPolicy) throws IOException
+	{
+		this(partStore,
+				new IdSequence(Files.createDirectories(dataDirectory).resolve("part.seq")),
+				new IdSequence(dataDirectory.resolve("product.seq")));
+		Path snapshotFile = dataDirectory.resolve(SNAPSHOT_FILE);
+		long generation = Files.exists(snapshotFile) ? InventorySnapshot.load(snapshotFile, this) : 0;
+		InventoryLog opened = new InventoryLog(dataDirectory.resolve(LOG_FILE), fsyncPolicy, SYNC_INTERVAL_MILLIS);
+		opened.replay(this, generation);
+		this.dataDirectory = dataDirectory;
+		this.log = opened;
+		prepareSearch();
+	}
+
+	private Inventory(PartStore partStore, IdSequence partIds, IdSequence productIds)
+	{
+		if(partStore.inventory != null)
+		{
+			throw new IllegalArgumentException("Part store already belongs to an inventory");
+		}
+		partStore.inventory = this;
+		this.parts = partStore;
+		this.allParts = partStore.list();
+		this.partSearch = new NGramIndex<>(allParts, Part::getId, Part::getName, partStore::lookup);
+		this.buildable = new BuildableIndex(partStore::lookup);
+		this.partIds = partIds;
+		this.productIds = productIds;
+	}
+
+	/**
+	 * Adds a new part to the inventory parts list
+	 * @param newPart to add.
+	 */
+	public void addPart(Part newPart)
+	{
+		batch(tx -> appendParts(Collections.singletonList(newPart)));
+	}
+
+	/**
+	 * Adds a new product to the inventory product list
+	 * @param newProduct to add.
+	 */
+	public void addProduct(Product newProduct)
+	{
+		batch(tx -> appendProducts(Collections.singletonList(newProduct)));
+	}
+
+	/**
+	 * Adds parts to the inventory parts list as a single change, so views update once for the whole batch
+	 * @param newParts to add
+	 */
+	public void addParts(Collection<? extends Part> newParts)
+	{
+		batch(tx -> appendParts(new ArrayList<>(newParts)));
+	}
+
+	/**
+	 * Adds products to the inventory product list as a single change, so views update once for the whole batch
+	 * @param newProducts to add
+	 */
+	public void addProducts(Collection<? extends Product> newProducts)
+	{
+		batch(tx -> appendProducts(new ArrayList<>(newProducts)));
+	}
+
+	/**
+	 * Runs a group of changes as one: views of the part and product lists each see a single change,
+	 * and the log replays it all or not at all. If the body throws, the changes it made through the
+	 * transaction, and to the fields of the parts and products in the inventory, are undone before the
+	 * exception is passed on. Batches may nest; the outermost one decides.
+	 * @param body makes the changes
+	 */
+	public void batch(Consumer<InventoryTx> body)
+	{
+		if(undo != null)
+		{
+			body.accept(tx);
+			return;
+		}
+		undo = new ArrayDeque<>();
+		parts.beginBatch();
+		allProducts.beginBatch();
+		if(log != null)
+		{
+			log.begin();
+		}
+		boolean committed = false;
+		try
+		{
+			body.accept(tx);
+			committed = true;
+		}
+		finally
+		{
+			Deque<Runnable> actions = undo;
+			undo = null;
+			changedParts.clear();
+			changedProducts.clear();
+			try
+			{
+				if(committed)
+				{
+					if(log != null)
+					{
+						log.commit();
+					}
+				}
+				else
+				{
+					// Newest first, so each undo sees the inventory exactly as its change left it
+					actions.forEach(Runnable::run);
+					if(log != null)
+					{
+						log.rollback();
+					}
+				}
+			}
+			finally
+			{
+				allProducts.endBatch();
+				parts.endBatch();
+			}
+		}
+	}
+
+	/**
+	 * @return a new unique part id
+	 */
+	public int nextPartId()
+	{
+		return partIds.next();
+	}
+
+	/**
+	 * Claims a block of consecutive part ids, for importers adding many parts at once
+	 * @param count number of ids to claim
+	 * @return the first id of the block
+	 */
+	public int reservePartIds(int count)
+	{
+		return partIds.reserve(count);
+	}
+
+	/**
+	 * Moves the part id sequence past an id given elsewhere, such as in an imported file, so it is never
+	 * handed out. May be called from any thread.
+	 * @param partId id in use or about to be
+	 */
+	public void observePartId(int partId)
+	{
+		partIds.observe(partId);
+	}
+
+	/**
+	 * @return a new unique product id
+	 */
+	public int nextProductId()
+	{
+		return productIds.next();
+	}
+
+	/**
+	 * Claims a block of consecutive product ids, for importers adding many products at once
+	 * @param count number of ids to claim
+	 * @return the first id of the block
+	 */
+	public int reserveProductIds(int count)
+	{
+		return productIds.reserve(count);
+	}
+
+	/**
+	 * Moves the product id sequence past an id given elsewhere; see observePartId
+	 * @param productId id in use or about to be
+	 */
+	public void observeProductId(int productId)
+	{
+		productIds.observe(productId);
+	}
+
+	/**
+	 * Finds a part by partId
+	 * @param partId of the part to lookup and return
+	 * @return part based on the partId
+	 */
+	public Part lookupPart(int partId)
+	{
+		return parts.lookup(partId);
+	}
+
+	/**
+	 * Finds a product by productId
+	 * @param productId of the product to lookup and return
+	 * @return product based on the productId
+	 */
+	public Product lookupProduct(int productId)
+	{
+		return productsById.get(productId);
+	}
+
+	/**
+	 * Finds all parts by partName
+	 * @param partName name of the part to lookup and return.
+	 * @return all matching parts with the partName
+	 */
+	public List<Part> lookupPart(String partName)
+	{
+		return lookupPart(partName, false);
+	}
+
+	/**
+	 * Finds all parts by partName
+	 * @param partName name of the part to lookup and return.
+	 * @param ignoreCase true to match the name regardless of case
+	 * @return unmodifiable list of all matching parts with the partName
+	 */
+	public List<Part> lookupPart(String partName, boolean ignoreCase)
+	{
+		if(partNames == null)
+		{
+			partNames = new NameIndex();
+			for(Part part : allParts)
+			{
+				partNames.add(part.getName(), part.getId());
+			}
+		}
+		return resolve(partNames.find(partName, ignoreCase), parts::lookup);
+	}
+
+	/**
+	* Finds all Products by productName
+	* @param productName name of the product to lookup and return.
+	* @return all matching products with the productName
+	*/
+	public List<Product> lookupProduct(String productName)
+	{
+		return lookupProduct(productName, false);
+	}
+
+	/**
+	 * Finds all products by productName
+	 * @param productName name of the product to lookup and return.
+	 * @param ignoreCase true to match the name regardless of case
+	 * @return unmodifiable list of all matching products with the productName
+	 */
+	public List<Product> lookupProduct(String productName, boolean ignoreCase)
+	{
+		return resolve(productNames.find(productName, ignoreCase), productsById::get);
+	}
+
+	/**
+	 * Finds all parts whose name or id contains the search text, ignoring case
+	 * @param searchText text typed into a search box
+	 * @return matching parts ordered by id
+	 */
+	public List<Part> searchParts(String searchText)
+	{
+		return partSearch.search(searchText);
+	}
+
+	/**
+	 * Finds all products whose name or id contains the search text, ignoring case
+	 * @param searchText text typed into a search box
+	 * @return matching products ordered by id
+	 */
+	public List<Product> searchProducts(String searchText)
+	{
+		return productSearch.search(searchText);
+	}
+
+	/**
+	 * Finds the ids of all parts whose name or id contains the search text, ignoring case.
+	 * Unlike the other methods this may be called from any thread, so searches can run in the background;
+	 * turn the ids into parts with lookupParts on the JavaFX thread.
+	 * @param searchText text typed into a search box
+	 * @return matching part ids in ascending order
+	 * @throws java.util.concurrent.CancellationException if the calling thread is interrupted
+	 */
+	public int[] findPartIds(String searchText)
+	{
+		return partSearch.searchIds(searchText);
+	}
+
+	/**
+	 * Finds the ids of all products whose name or id contains the search text, ignoring case.
+	 * May be called from any thread; see findPartIds.
+	 * @param searchText text typed into a search box
+	 * @return matching product ids in ascending order
+	 * @throws java.util.concurrent.CancellationException if the calling thread is interrupted
+	 */
+	public int[] findProductIds(String searchText)
+	{
+		return productSearch.searchIds(searchText);
+	}
+
+	/**
+	 * Creates a part search for a search box that narrows its previous result as the user types.
+	 * Like findPartIds it may be called from any thread.
+	 * @return search to run each version of the search box's text through
+	 */
+	public IncrementalSearch newPartSearch()
+	{
+		return new IncrementalSearch(partSearch);
+	}
+
+	/**
+	 * Creates a product search for a search box that narrows its previous result as the user types.
+	 * Like findProductIds it may be called from any thread.
+	 * @return search to run each version of the search box's text through
+	 */
+	public IncrementalSearch newProductSearch()
+	{
+		return new IncrementalSearch(productSearch);
+	}
+
+	/**
+	 * Finds parts by id, leaving out ids no longer in the inventory
+	 * @param partIds ids of the parts
+	 * @return the parts, in the order of the ids
+	 */
+	public List<Part> lookupParts(int[] partIds)
+	{
+		List<Part> matches = new ArrayList<>(partIds.length);
+		for(int id : partIds)
+		{
+			Part part = parts.lookup(id);
+			if(part != null)
+			{
+				matches.add(part);
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Finds products by id, leaving out ids no longer in the inventory
+	 * @param productIds ids of the products
+	 * @return the products, in the order of the ids
+	 */
+	public List<Product> lookupProducts(int[] productIds)
+	{
+		List<Product> matches = new ArrayList<>(productIds.length);
+		for(int id : productIds)
+		{
+			Product product = productsById.get(id);
+			if(product != null)
+			{
+				matches.add(product);
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Updates a part at a specific index
+	 * @param index location of part to update in table view
+	 * @param selectedPart part to update
+	 * @throws IllegalArgumentException if the part does not have the id of the part it replaces
+	 */
+	public void updatePart(int index, Part selectedPart)
+	{
+		batch(tx -> replacePart(index, selectedPart));
+	}
+
+	/**
+	 * Updates many parts as a single change
+	 * @param partsByIndex replacement parts keyed by the index of the part they replace
+	 * @throws IllegalArgumentException if a part does not have the id of the part it replaces; none are updated
+	 */
+	public void updateParts(Map<Integer, ? extends Part> partsByIndex)
+	{
+		batch(tx -> partsByIndex.forEach(this::replacePart));
+	}
+
+	/**
+	 * Updates a product at a specific index
+	 * @param index location of product to update in table view
+	 * @param selectedProduct product to update
+	 */
+	public void updateProduct(int index, Product selectedProduct)
+	{
+		batch(tx -> replaceProduct(index, selectedProduct));
+	}
+
+	/**
+	 * Deletes a part from the inventory
+	 * @param selectedPart part to delete
+	 * @return if deletion was successful or not
+	 */
+	public boolean deletePart(Part selectedPart)
+	{
+		int index = allParts.indexOf(selectedPart);
+		if(index < 0)
+		{
+			return false;
+		}
+		batch(tx -> removePartAt(index));
+		return true;
+	}
+
+	/**
+	 * Deletes many parts as a single change, finding them all by id in one pass over the parts list
+	 * @param selectedParts parts to delete
+	 * @return number of parts deleted
+	 */
+	public int deleteParts(Collection<? extends Part> selectedParts)
+	{
+		IntSortedSet ids = new IntSortedSet();
+		for(Part part : selectedParts)
+		{
+			ids.add(part.getId());
+		}
+		List<Integer> indexes = new ArrayList<>();
+		for(int i = 0; i < allParts.size() && indexes.size() < ids.size(); i++)
+		{
+			Part part = allParts.get(i);
+			if(ids.contains(part.getId()))
+			{
+				indexes.add(i);
+			}
+		}
+		// From the back, so removing one part does not move the ones still to go
+		batch(tx -> {
+			for(int i = indexes.size() - 1; i >= 0; i--)
+			{
+				removePartAt(indexes.get(i));
+			}
+		});
+		return indexes.size();
+	}
+
+	/**
+	 * Deletes a product from the inventory
+	 * @param selectedProduct product to delete
+	 * @return if deletion was successful or not
+	 */
+	public boolean deleteProduct(Product selectedProduct)
+	{
+		int index = allProducts.indexOf(selectedProduct);
+		if(index < 0)
+		{
+			return false;
+		}
+		batch(tx -> removeProductAt(index));
+		return true;
+	}
+
+	/**
+	 * Builds units of a product from its associated parts in one logged step: takes one of each associated part
+	 * per unit, twice for a part associated twice, and adds the units to the product's stock. The whole run
+	 * happens or none of it does: it is turned away if the part stock does not cover it, if it would leave a
+	 * part below its min, or if it would take the product above its max; checkBuild() says which. Run many
+	 * builds in one batch to have them logged and shown together; a build turned away leaves the others in the
+	 * batch alone.
+	 * @param productId id of the product
+	 * @param quantity units to build
+	 * @return false if there is no such product, or the run was turned away
+	 * @throws IllegalArgumentException if the quantity is not positive
+	 */
+	public boolean build(int productId, int quantity)
+	{
+		if(quantity <= 0)
+		{
+			throw new IllegalArgumentException("Quantity to build must be positive");
+		}
+		Product product = productsById.get(productId);
+		if(product == null || refuseBuild(product, quantity) != null)
+		{
+			return false;
+		}
+		int built = product.getStock() + quantity;
+		batch(tx -> {
+			int[] ids = product.getAssociatedParts().ids();
+			int[] uses = BuildableIndex.uses(product.getAssociatedParts(), ids);
+			for(int i = 0; i < ids.length; i++)
+			{
+				Part part = parts.lookup(ids[i]);
+				part.setStock(part.getStock() - uses[i] * quantity);
+			}
+			product.setStock(built);
+		});
+		return true;
+	}
+
+	/**
+	 * Finds why build() would turn a run away, to tell the user
+	 * @param productId id of the product
+	 * @param quantity units to build
+	 * @return null if the run would be built, otherwise the reason it would not
+	 * @throws IllegalArgumentException if the quantity is not positive
+	 */
+	public String checkBuild(int productId, int quantity)
+	{
+		if(quantity <= 0)
+		{
+			throw new IllegalArgumentException("Quantity to build must be positive");
+		}
+		Product product = productsById.get(productId);
+		return product == null ? "There is no product with id " + productId + "." : refuseBuild(product, quantity);
+	}
+
+	/**
+	 * @return null if the run can be built, otherwise the reason it cannot
+	 */
+	private String refuseBuild(Product product, int quantity)
+	{
+		// Kept current as stock changes, so a run the parts do not cover is turned away without looking at them
+		int covered = buildable.get(product.getId());
+		if(covered < quantity)
+		{
+			return "Part stock only covers " + covered + " units of " + product.getName() + ".";
+		}
+		if((long) product.getStock() + quantity > product.getMax())
+		{
+			return "Building " + quantity + " units would take " + product.getName() + " above its max of "
+					+ product.getMax() + "; it has room for " + Math.max(0, product.getMax() - product.getStock())
+					+ " more.";
+		}
+		int[] ids = product.getAssociatedParts().ids();
+		int[] uses = BuildableIndex.uses(product.getAssociatedParts(), ids);
+		for(int i = 0; i < ids.length; i++)
+		{
+			Part part = parts.lookup(ids[i]);
+			long left = part.getStock() - (long) uses[i] * quantity;
+			if(left < part.getMin())
+			{
+				long spare = Math.max(0, part.getStock() - (long) part.getMin());
+				return "Building " + quantity + " units would take part " + part.getName() + " below its min of "
+						+ part.getMin() + "; its stock above the min covers " + spare / uses[i] + " units.";
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Finds every product that has the part associated to it
+	 * @param partId id of the part
+	 * @return unmodifiable list of products using the part
+	 */
+	public List<Product> whereUsed(int partId)
+	{
+		return resolve(partUsage.get(partId), productsById::get);
+	}
+
+	/**
+	 * Finds how many units of a product the parts in stock can make, kept current as part stock changes
+	 * @param productId id of the product
+	 * @return units the stock of its associated parts makes, or -1 if there is no such product
+	 */
+	public int buildableQuantity(int productId)
+	{
+		return buildable.get(productId);
+	}
+
+	/**
+	 * @return the allParts
+	 */
+	public ChangeList<Part> getAllParts() {
+		return allParts;
+	}
+
+	/**
+	 * @return the allProducts
+	 */
+	public ChangeList<Product> getAllProducts() {
+		return allProducts;
+	}
+
+	/**
+	 * @param listener to tell about changes to the fields of parts and products from now on
+	 */
+	public void addListener(InventoryListener listener)
+	{
+		listeners.add(listener);
+	}
+
+	/**
+	 * @param listener to stop telling about changes
+	 */
+	public void removeListener(InventoryListener listener)
+	{
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Called by a part in this inventory when its name changes
+	 * @param part that was renamed
+	 * @param oldName name before the change
+	 */
+	void partRenamed(Part part, String oldName)
+	{
+		if(partNames != null)
+		{
+			partNames.rename(oldName, part.getName(), part.getId());
+		}
+		partSearch.update(part);
+	}
+
+	/**
+	 * Called by a product in this inventory when its name changes
+	 * @param product that was renamed
+	 * @param oldName name before the change
+	 */
+	void productRenamed(Product product, String oldName)
+	{
+		productNames.rename(oldName, product.getName(), product.getId());
+		productSearch.update(product);
+	}
+
+	/**
+	 * Called by a part in this inventory before one of its fields changes. Inside a batch, saves the fields
+	 * the first time, so the batch can put them back if it fails.
+	 * @param part about to change
+	 */
+	void partChanging(Part part)
+	{
+		int partId = part.getId();
+		if(undo != null && changedParts.put(partId, 0) < 0)
+		{
+			Part before = SharedInventory.copyOf(part);
+			// Found again by id, as the part may have been replaced or removed and restored since
+			onUndo(() -> {
+				Part changed = parts.lookup(partId);
+				if(changed != null)
+				{
+					InventoryLog.copyPart(before, changed);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Called by a part in this inventory before its id changes. The id keys the part in the indexes, in its
+	 * products' associations and in the log, so it is refused, as replacing a part with another id is.
+	 * @param part about to change
+	 * @param id the part would take
+	 * @throws IllegalStateException always, unless the id stays the same
+	 */
+	void partIdChanging(Part part, int id)
+	{
+		if(id != part.getId())
+		{
+			throw new IllegalStateException("Part " + part.getId() + " is in an inventory, so its id cannot change");
+		}
+	}
+
+	/**
+	 * Called by a product in this inventory before one of its fields changes; see partChanging
+	 * @param product about to change
+	 */
+	void productChanging(Product product)
+	{
+		int productId = product.getId();
+		if(undo != null && changedProducts.put(productId, 0) < 0)
+		{
+			String name = product.getName();
+			double price = product.getPrice();
+			int stock = product.getStock();
+			int min = product.getMin();
+			int max = product.getMax();
+			onUndo(() -> {
+				Product changed = productsById.get(productId);
+				if(changed != null)
+				{
+					changed.setName(name);
+					changed.setPrice(price);
+					changed.setStock(stock);
+					changed.setMin(min);
+					changed.setMax(max);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Called by a part in this inventory after one of its fields changed
+	 * @param part that changed
+	 */
+	void partChanged(Part part)
+	{
+		if(log != null)
+		{
+			log.partChanged(part);
+		}
+		for(InventoryListener listener : listeners)
+		{
+			listener.partChanged(part);
+		}
+		updateBuildable(part.getId());
+	}
+
+	/**
+	 * Called by a product in this inventory after one of its fields changed
+	 * @param product that changed
+	 */
+	void productChanged(Product product)
+	{
+		if(log != null)
+		{
+			log.productChanged(product);
+		}
+		for(InventoryListener listener : listeners)
+		{
+			listener.productChanged(product);
+		}
+	}
+
+	/**
+	 * Called by a product in this inventory when a part is associated to it
+	 * @param product the part was added to
+	 * @param part that was added
+	 */
+	void partAssociated(Product product, Part part)
+	{
+		addUsage(product.getId(), part.getId());
+		if(log != null)
+		{
+			log.partAssociated(product.getId(), part.getId());
+		}
+		for(InventoryListener listener : listeners)
+		{
+			listener.associatedPartsChanged(product);
+		}
+		updateBuildable(product);
+	}
+
+	/**
+	 * Called by a product in this inventory when a part is no longer associated to it
+	 * @param product the part was removed from
+	 * @param part that was removed
+	 */
+	void partDissociated(Product product, Part part)
+	{
+		int partId = part.getId();
+		if(!product.isAssociated(partId))
+		{
+			removeUsage(product.getId(), partId);
+		}
+		if(log != null)
+		{
+			log.partDissociated(product.getId(), partId);
+		}
+		for(InventoryListener listener : listeners)
+		{
+			listener.associatedPartsChanged(product);
+		}
+		updateBuildable(product);
+	}
+
+	/**
+	 * Saves the whole inventory to its data directory and starts a new, empty log of changes.
+	 * Does nothing if nothing has changed since the last snapshot.
+	 * @throws IOException if the snapshot cannot be written, or the log has failed to write a change
+	 * @throws IllegalStateException if the inventory has no data directory
+	 */
+	public void snapshot() throws IOException
+	{
+		if(log == null)
+		{
+			throw new IllegalStateException("Inventory is not saved to a data directory");
+		}
+		if(undo != null)
+		{
+			throw new IllegalStateException("Cannot snapshot inside a batch");
+		}
+		log.checkFailure();
+		if(log.recordCount() == 0)
+		{
+			return;
+		}
+		// The writer thread reads the lists themselves while this thread waits for it, so nothing changes them
+		Path file = dataDirectory.resolve(SNAPSHOT_FILE);
+		try
+		{
+			log.rotate(generation -> InventorySnapshot.write(file, allParts, allProducts, generation)).get();
+		}
+		catch(InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while saving the inventory snapshot");
+		}
+		catch(ExecutionException ex)
+		{
+			if(ex.getCause() instanceof IOException)
+			{
+				throw (IOException) ex.getCause();
+			}
+			throw new IOException("Unable to save the inventory snapshot", ex.getCause());
+		}
+	}
+
+	/**
+	 * Saves the whole inventory like snapshot(), without waiting for it to be encoded and written. Only
+	 * copies the parts and products here, and of those only the ones in chunks changed since the last time;
+	 * the log's writer thread saves the copies and then starts the new log. Keeps the copies between
+	 * snapshots. Does nothing if nothing has changed since the last snapshot.
+	 * @return completes once the snapshot is saved, or with the error that kept it from being saved, in
+	 * which case the log carries on as it was
+	 * @throws IllegalStateException if the inventory has no data directory
+	 */
+	public CompletableFuture<Void> snapshotInBackground()
+	{
+		if(log == null)
+		{
+			throw new IllegalStateException("Inventory is not saved to a data directory");
+		}
+		if(undo != null)
+		{
+			throw new IllegalStateException("Cannot snapshot inside a batch");
+		}
+		if(log.getFailure() != null)
+		{
+			return CompletableFuture.failedFuture(log.getFailure());
+		}
+		if(log.recordCount() == 0)
+		{
+			return CompletableFuture.completedFuture(null);
+		}
+		if(savedParts == null)
+		{
+			savedParts = new ChunkedCopy<>(allParts, SharedInventory::copyOf, Part::getId);
+			savedProducts = new ChunkedCopy<>(allProducts, SharedInventory::copyOf, Product::getId);
+			addListener(new InventoryListener() {
+				@Override
+				public void partChanged(Part part)
+				{
+					// A product's copy only needs its parts' ids, so it is not copied again for them
+					savedParts.changed(part.getId());
+				}
+
+				@Override
+				public void productChanged(Product product)
+				{
+					savedProducts.changed(product.getId());
+				}
+
+				@Override
+				public void associatedPartsChanged(Product product)
+				{
+					savedProducts.changed(product.getId());
+				}
+			});
+		}
+		Path file = dataDirectory.resolve(SNAPSHOT_FILE);
+		List<Part> parts = savedParts.copy();
+		List<Product> products = savedProducts.copy();
+		return log.rotate(generation -> InventorySnapshot.write(file, parts, products, generation));
+	}
+
+	/**
+	 * Takes a final snapshot, then flushes and closes the log of changes, and the part store if it holds open files
+	 * @throws IOException if any of them cannot be written
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if(log != null)
+		{
+			try
+			{
+				snapshot();
+			}
+			finally
+			{
+				log.close();
+				log = null;
+			}
+		}
+		if(parts instanceof Closeable)
+		{
+			((Closeable) parts).close();
+		}
+	}
+
+	/**
+	 * Lets the search indexes copy the lists once loading is done, so background searches can build them
+	 */
+	private void prepareSearch()
+	{
+		partSearch.prepare();
+		productSearch.prepare();
+	}
+
+	private void appendParts(List<Part> newParts)
+	{
+		int from = allParts.size();
+		List<Part> added = parts.addAll(newParts);
+		int to = allParts.size();
+		onUndo(() -> {
+			for(int i = to - 1; i >= from; i--)
+			{
+				removePartAt(i);
+			}
+		});
+		for(Part part : added)
+		{
+			indexPart(part);
+			if(log != null)
+			{
+				log.partAdded(part);
+			}
+			// Products may name a part before it is in the inventory
+			updateBuildable(part.getId());
+		}
+	}
+
+	private void replacePart(int index, Part selectedPart)
+	{
+		Part oldPart = allParts.get(index);
+		if(selectedPart.getId() != oldPart.getId())
+		{
+			// Products and the where-used index know the part by id
+			throw new IllegalArgumentException("Part " + oldPart.getId() + " cannot be replaced by a part with id "
+					+ selectedPart.getId());
+		}
+		Part previous = parts.copyOf(oldPart);
+		unindexPart(oldPart);
+		Part newPart = parts.set(index, selectedPart);
+		onUndo(() -> replacePart(index, previous));
+		indexPart(newPart);
+
+		// Point products using the replaced part at its replacement, however many times they use it
+		if(!oldPart.equals(newPart))
+		{
+			for(Product product : whereUsed(oldPart.getId()))
+			{
+				product.replaceAssociatedPart(oldPart, newPart);
+			}
+		}
+		updateBuildable(newPart.getId());
+		if(log != null)
+		{
+			log.partUpdated(index, newPart);
+		}
+	}
+
+	private void removePartAt(int index)
+	{
+		Part part = allParts.get(index);
+		int partId = part.getId();
+
+		// Remove the part from every product using it so no product keeps a deleted part
+		List<Product> users = new ArrayList<>(whereUsed(partId));
+		List<int[]> positions = new ArrayList<>(users.size());
+		for(Product product : users)
+		{
+			positions.add(positionsOf(product.getAllAssociatedParts(), part));
+			while(product.deleteAssociatedPart(part))
+			{
+				// Until every occurrence is gone
+			}
+		}
+		Part previous = parts.copyOf(part);
+		unindexPart(part);
+		parts.remove(index);
+		onUndo(() -> {
+			Part restored = parts.insert(index, previous);
+			indexPart(restored);
+			for(int i = 0; i < users.size(); i++)
+			{
+				Product product = users.get(i);
+				for(int position : positions.get(i))
+				{
+					product.getAllAssociatedParts().add(position, restored);
+				}
+				addUsage(product.getId(), partId);
+				updateBuildable(product);
+			}
+		});
+		if(log != null)
+		{
+			log.partDeleted(partId);
+		}
+	}
+
+	private void appendProducts(List<Product> newProducts)
+	{
+		int from = allProducts.size();
+		allProducts.addAll(newProducts);
+		int to = allProducts.size();
+		onUndo(() -> {
+			for(int i = to - 1; i >= from; i--)
+			{
+				removeProductAt(i);
+			}
+		});
+		for(Product product : newProducts)
+		{
+			indexProduct(product);
+			if(log != null)
+			{
+				log.productAdded(product);
+			}
+		}
+	}
+
+	private void replaceProduct(int index, Product selectedProduct)
+	{
+		Product oldProduct = allProducts.set(index, selectedProduct);
+		onUndo(() -> replaceProduct(index, oldProduct));
+		unindexProduct(oldProduct);
+		indexProduct(selectedProduct);
+		if(log != null)
+		{
+			log.productUpdated(index, selectedProduct);
+		}
+	}
+
+	private void removeProductAt(int index)
+	{
+		Product product = allProducts.remove(index);
+		onUndo(() -> {
+			allProducts.add(index, product);
+			indexProduct(product);
+		});
+		unindexProduct(product);
+		if(log != null)
+		{
+			log.productDeleted(product.getId());
+		}
+	}
+
+	/**
+	 * Records how to undo a change, when inside a batch
+	 */
+	private void onUndo(Runnable action)
+	{
+		if(undo != null)
+		{
+			undo.push(action);
+		}
+	}
+
+	private static int[] positionsOf(List<Part> list, Part part)
+	{
+		int count = 0;
+		int[] positions = new int[1];
+		for(int i = 0; i < list.size(); i++)
+		{
+			if(list.get(i).equals(part))
+			{
+				if(count == positions.length)
+				{
+					positions = Arrays.copyOf(positions, count * 2);
+				}
+				positions[count++] = i;
+			}
+		}
+		return Arrays.copyOf(positions, count);
+	}
+
+	/**
+	 * Transaction handed to batch bodies, applying each change straight to this inventory
+	 */
+	private final class Tx implements InventoryTx {
+		@Override
+		public void addPart(Part newPart)
+		{
+			Inventory.this.addPart(newPart);
+		}
+
+		@Override
+		public void addParts(Collection<? extends Part> newParts)
+		{
+			Inventory.this.addParts(newParts);
+		}
+
+		@Override
+		public void updatePart(int index, Part selectedPart)
+		{
+			Inventory.this.updatePart(index, selectedPart);
+		}
+
+		@Override
+		public void updateParts(Map<Integer, ? extends Part> partsByIndex)
+		{
+			Inventory.this.updateParts(partsByIndex);
+		}
+
+		@Override
+		public boolean deletePart(Part selectedPart)
+		{
+			return Inventory.this.deletePart(selectedPart);
+		}
+
+		@Override
+		public int deleteParts(Collection<? extends Part> selectedParts)
+		{
+			return Inventory.this.deleteParts(selectedParts);
+		}
+
+		@Override
+		public void addProduct(Product newProduct)
+		{
+			Inventory.this.addProduct(newProduct);
+		}
+
+		@Override
+		public void addProducts(Collection<? extends Product> newProducts)
+		{
+			Inventory.this.addProducts(newProducts);
+		}
+
+		@Override
+		public void updateProduct(int index, Product selectedProduct)
+		{
+			Inventory.this.updateProduct(index, selectedProduct);
+		}
+
+		@Override
+		public boolean deleteProduct(Product selectedProduct)
+		{
+			return Inventory.this.deleteProduct(selectedProduct);
+		}
+	}
+
+	private void addUsage(int productId, int partId)
+	{
+		IntSortedSet products = partUsage.get(partId);
+		if(products == null)
+		{
+			products = new IntSortedSet();
+			partUsage.put(partId, products);
+		}
+		products.add(productId);
+	}
+
+	private void removeUsage(int productId, int partId)
+	{
+		IntSortedSet products = partUsage.get(partId);
+		if(products != null && products.remove(productId) && products.isEmpty())
+		{
+			partUsage.remove(partId);
+		}
+	}
+
+	private void indexPart(Part part)
+	{
+		part.inventory = this;
+		partIds.observe(part.getId());
+		if(partNames != null)
+		{
+			partNames.add(part.getName(), part.getId());
+		}
+	}
+
+	private void unindexPart(Part part)
+	{
+		if(partNames != null)
+		{
+			partNames.remove(part.getName(), part.getId());
+		}
+		part.inventory = null;
+	}
+
+	private void indexProduct(Product product)
+	{
+		product.inventory = this;
+		productIds.observe(product.getId());
+		productsById.put(product.getId(), product);
+		productNames.add(product.getName(), product.getId());
+		for(int partId : product.getAssociatedParts().ids())
+		{
+			addUsage(product.getId(), partId);
+		}
+		buildable.update(product);
+	}
+
+	private void unindexProduct(Product product)
+	{
+		if(productsById.remove(product.getId(), product))
+		{
+			productNames.remove(product.getName(), product.getId());
+			for(int partId : product.getAssociatedParts().ids())
+			{
+				removeUsage(product.getId(), partId);
+			}
+			buildable.remove(product);
+		}
+		product.inventory = null;
+	}
+
+	/**
+	 * Recomputes the buildable quantity of every product using a part
+	 */
+	private void updateBuildable(int partId)
+	{
+		IntSortedSet users = partUsage.get(partId);
+		if(users == null)
+		{
+			return;
+		}
+		for(int i = 0; i < users.size(); i++)
+		{
+			Product product = productsById.get(users.get(i));
+			if(product != null)
+			{
+				updateBuildable(product);
+			}
+		}
+	}
+
+	private void updateBuildable(Product product)
+	{
+		if(product.inventory == this && buildable.update(product))
+		{
+			for(InventoryListener listener : listeners)
+			{
+				listener.buildableChanged(product);
+			}
+		}
+	}
+
+	/**
+	 * Turns a set of ids from an index into an unmodifiable list of items
+	 */
+	private static <T> List<T> resolve(IntSortedSet ids, IntFunction<T> byId)
+	{
+		if(ids == null)
+		{
+			return Collections.emptyList();
+		}
+		List<T> matches = new ArrayList<>(ids.size());
+		for(int i = 0; i < ids.size(); i++)
+		{
+			T item = byId.apply(ids.get(i));
+			if(item != null)
+			{
+				matches.add(item);
+			}
+		}
+		return Collections.unmodifiableList(matches);
+	}
+}
@@ -0,0 +1,524 @@
+package classes;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streams parts and products from a CSV file into an inventory.
+ * The file is parsed on the calling thread, normally a background thread, and handed a batch at a time
+ * to the committer, normally the JavaFX thread, which adds each batch with a single list change.
+ * At most two batches wait to be committed at once, so memory stays bounded however large the file.
+ * <p>
+ * The first row names the columns, in any order: type, id, name, price, stock, min, max, machineId,
+ * companyName and parts. Type is InHouse, Outsourced or Product. A blank id is taken from the
+ * inventory's id sequence. Parts lists a product's associated part ids separated by semicolons; the
+ * parts must already be in the inventory or earlier in the file. Rows that are invalid or whose id is
+ * already taken are skipped and reported in the result.
+ */
+public class InventoryImporter {
+	private static final int DEFAULT_BATCH_SIZE = 10_000;
+	private static final int MAX_PENDING_BATCHES = 2;
+	private static final int MAX_REPORTED_ERRORS = 100;
+
+	/**
+	 * Receives progress after each committed batch, on the committer thread
+	 */
+	public interface Progress {
+		/**
+		 * @param bytesRead bytes of the file parsed so far
+		 * @param totalBytes size of the file
+		 * @param rowsImported parts and products added so far
+		 */
+		void update(long bytesRead, long totalBytes, int rowsImported);
+	}
+
+	/**
+	 * Outcome of an import
+	 */
+	public static final class Result {
+		private final int parts;
+		private final int products;
+		private final int skipped;
+		private final List<String> errors;
+		private final boolean cancelled;
+		private final boolean failed;
+
+		Result(int parts, int products, int skipped, List<String> errors, boolean cancelled, boolean failed)
+		{
+			this.parts = parts;
+			this.products = products;
+			this.skipped = skipped;
+			this.errors = errors;
+			this.cancelled = cancelled;
+			this.failed = failed;
+		}
+
+		/**
+		 * @return number of parts added
+		 */
+		public int getParts()
+		{
+			return parts;
+		}
+
+		/**
+		 * @return number of products added
+		 */
+		public int getProducts()
+		{
+			return products;
+		}
+
+		/**
+		 * @return number of rows left out because they were invalid
+		 */
+		public int getSkipped()
+		{
+			return skipped;
+		}
+
+		/**
+		 * @return why rows were skipped or only partly imported, for the first such rows only
+		 */
+		public List<String> getErrors()
+		{
+			return errors;
+		}
+
+		/**
+		 * @return true if the import stopped early; batches committed before that are kept
+		 */
+		public boolean isCancelled()
+		{
+			return cancelled;
+		}
+
+		/**
+		 * @return true if a batch could not be added to the inventory, which stopped the import; the error
+		 * is the last one reported, and batches committed before it are kept
+		 */
+		public boolean isFailed()
+		{
+			return failed;
+		}
+	}
+
+	private final Inventory inventory;
+	private final Executor committer;
+	private final int batchSize;
+
+	/**
+	 * @param inventory to import into
+	 * @param committer runs each batch on the thread that owns the inventory, such as Platform::runLater
+	 */
+	public InventoryImporter(Inventory inventory, Executor committer)
+	{
+		this(inventory, committer, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * @param inventory to import into
+	 * @param committer runs each batch on the thread that owns the inventory, such as Platform::runLater
+	 * @param batchSize number of rows committed together
+	 */
+	public InventoryImporter(Inventory inventory, Executor committer, int batchSize)
+	{
+		if(batchSize < 1)
+		{
+			throw new IllegalArgumentException("batchSize must be positive");
+		}
+		this.inventory = inventory;
+		this.committer = committer;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Imports a file, returning once every batch has been committed.
+	 * Interrupting the calling thread cancels the import. Must not be called on the committer thread.
+	 * @param file CSV file to read
+	 * @param progress told about each committed batch, may be null
+	 * @return what was imported
+	 * @throws IOException if the file cannot be read or has no usable header
+	 */
+	public Result importFile(Path file, Progress progress) throws IOException
+	{
+		return new Run(Files.size(file), progress).importFile(file);
+	}
+
+	/**
+	 * State of a single import
+	 */
+	private final class Run {
+		private final long totalBytes;
+		private final Progress progress;
+		private final Semaphore pending = new Semaphore(MAX_PENDING_BATCHES);
+		private final AtomicInteger parts = new AtomicInteger();
+		private final AtomicInteger products = new AtomicInteger();
+		private final AtomicInteger skipped = new AtomicInteger();
+		private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+		private volatile boolean cancelled;
+		private volatile boolean failed;
+		private Map<String, Integer> columns;
+
+		Run(long totalBytes, Progress progress)
+		{
+			this.totalBytes = totalBytes;
+			this.progress = progress;
+		}
+
+		Result importFile(Path file) throws IOException
+		{
+			try(CountingInputStream counter = new CountingInputStream(Files.newInputStream(file)))
+			{
+				CsvReader reader = new CsvReader(new InputStreamReader(counter, StandardCharsets.UTF_8));
+				readHeader(reader.next());
+				Batch batch = new Batch();
+				String[] row;
+				while(!cancelled && !failed && (row = reader.next()) != null)
+				{
+					parseRow(row, reader.line(), batch);
+					if(batch.size() == batchSize)
+					{
+						submit(batch, counter.count);
+						batch = new Batch();
+					}
+					if(Thread.currentThread().isInterrupted())
+					{
+						cancelled = true;
+					}
+				}
+				if(!cancelled && !failed && batch.size() > 0)
+				{
+					submit(batch, counter.count);
+				}
+			}
+			finally
+			{
+				// Wait for batches already handed over, so the counts are final
+				boolean interrupted = Thread.interrupted();
+				pending.acquireUninterruptibly(MAX_PENDING_BATCHES);
+				if(interrupted)
+				{
+					Thread.currentThread().interrupt();
+				}
+			}
+			return new Result(parts.get(), products.get(), skipped.get(), new ArrayList<>(errors), cancelled, failed);
+		}
+
+		private void readHeader(String[] header) throws IOException
+		{
+			if(header == null)
+			{
+				throw new IOException("File is empty");
+			}
+			columns = new HashMap<>();
+			for(int i = 0; i < header.length; i++)
+			{
+				columns.put(header[i].toLowerCase(Locale.ROOT), i);
+			}
+			for(String required : new String[]{"type", "name", "price", "stock", "min", "max"})
+			{
+				if(!columns.containsKey(required))
+				{
+					throw new IOException("Missing column " + required);
+				}
+			}
+		}
+
+		private void submit(Batch batch, long bytesRead)
+		{
+			try
+			{
+				pending.acquire();
+			}
+			catch(InterruptedException ex)
+			{
+				cancelled = true;
+				Thread.currentThread().interrupt();
+				return;
+			}
+			committer.execute(() -> {
+				try
+				{
+					if(!cancelled && !failed)
+					{
+						commit(batch);
+						if(progress != null)
+						{
+							progress.update(bytesRead, totalBytes, parts.get() + products.get());
+						}
+					}
+				}
+				catch(RuntimeException ex)
+				{
+					// The committer would only swallow it; the batch was undone, so none of it is kept
+					errors.add("Import stopped: " + ex);
+					failed = true;
+				}
+				finally
+				{
+					pending.release();
+				}
+			});
+		}
+
+		/**
+		 * Adds a batch to the inventory as one inventory batch, on the committer thread
+		 */
+		private void commit(Batch batch)
+		{
+			int[] added = new int[2];
+			inventory.batch(tx -> add(batch, added));
+			parts.addAndGet(added[0]);
+			products.addAndGet(added[1]);
+		}
+
+		/**
+		 * @param added set to the number of parts and products added
+		 */
+		private void add(Batch batch, int[] added)
+		{
+			List<Part> newParts = new ArrayList<>(batch.parts.size());
+			IntMap<Part> batchParts = new IntMap<>();
+			for(int i = 0; i < batch.parts.size(); i++)
+			{
+				Part part = batch.parts.get(i);
+				if(inventory.lookupPart(part.getId()) != null || batchParts.containsKey(part.getId()))
+				{
+					error(batch.partLines.get(i), "part id " + part.getId() + " is already in use");
+					continue;
+				}
+				batchParts.put(part.getId(), part);
+				newParts.add(part);
+			}
+			inventory.addParts(newParts);
+			added[0] = newParts.size();
+
+			List<Product> newProducts = new ArrayList<>(batch.products.size());
+			IntMap<Product> batchProducts = new IntMap<>();
+			for(int i = 0; i < batch.products.size(); i++)
+			{
+				Product product = batch.products.get(i);
+				int line = batch.productLines.get(i);
+				if(inventory.lookupProduct(product.getId()) != null || batchProducts.containsKey(product.getId()))
+				{
+					error(line, "product id " + product.getId() + " is already in use");
+					continue;
+				}
+				for(int partId : batch.productParts.get(i))
+				{
+					Part part = inventory.lookupPart(partId);
+					if(part == null)
+					{
+						report(line, "no part with id " + partId + "; association left out");
+					}
+					else
+					{
+						product.addAssociatedPart(part);
+					}
+				}
+				batchProducts.put(product.getId(), product);
+				newProducts.add(product);
+			}
+			inventory.addProducts(newProducts);
+			added[1] = newProducts.size();
+		}
+
+		private void parseRow(String[] row, int line, Batch batch)
+		{
+			try
+			{
+				String type = field(row, "type");
+				String name = field(row, "name");
+				if(name.isEmpty())
+				{
+					throw new IllegalArgumentException("name is blank");
+				}
+				double price = Double.parseDouble(field(row, "price"));
+				int stock = Integer.parseInt(field(row, "stock"));
+				int min = Integer.parseInt(field(row, "min"));
+				int max = Integer.parseInt(field(row, "max"));
+				if(min > max || stock < min || stock > max)
+				{
+					throw new IllegalArgumentException("stock must be within min and max");
+				}
+				String id = field(row, "id");
+
+				switch(type.toLowerCase(Locale.ROOT))
+				{
+					case "inhouse":
+						int machineId = Integer.parseInt(field(row, "machineid"));
+						batch.addPart(new InHouse(partId(id), name, price, stock, min, max, machineId), line);
+						break;
+					case "outsourced":
+						String companyName = field(row, "companyname");
+						if(companyName.isEmpty())
+						{
+							throw new IllegalArgumentException("company name is blank");
+						}
+						batch.addPart(new Outsourced(partId(id), name, price, stock, min, max, companyName), line);
+						break;
+					case "product":
+						int[] partIds = partIds(field(row, "parts"));
+						batch.addProduct(new Product(productId(id), name, price, stock, min, max), partIds, line);
+						break;
+					default:
+						throw new IllegalArgumentException("unknown type \"" + type + "\"");
+				}
+			}
+			catch(NumberFormatException ex)
+			{
+				error(line, "not a number: " + ex.getMessage());
+			}
+			catch(IllegalArgumentException ex)
+			{
+				error(line, ex.getMessage());
+			}
+		}
+
+		/**
+		 * An explicit id moves the sequence past it at once, not when its batch commits, so no blank id in
+		 * a later row is given the same id
+		 * @return the row's part id, or a new one if it is blank
+		 */
+		private int partId(String id)
+		{
+			if(id.isEmpty())
+			{
+				return inventory.nextPartId();
+			}
+			int partId = Integer.parseInt(id);
+			inventory.observePartId(partId);
+			return partId;
+		}
+
+		/**
+		 * @return the row's product id, or a new one if it is blank; see partId
+		 */
+		private int productId(String id)
+		{
+			if(id.isEmpty())
+			{
+				return inventory.nextProductId();
+			}
+			int productId = Integer.parseInt(id);
+			inventory.observeProductId(productId);
+			return productId;
+		}
+
+		/**
+		 * @return the value of a column in a row, or an empty string if the row or header lacks it
+		 */
+		private String field(String[] row, String column)
+		{
+			Integer index = columns.get(column);
+			return index == null || index >= row.length ? "" : row[index];
+		}
+
+		private int[] partIds(String text)
+		{
+			if(text.isEmpty())
+			{
+				return new int[0];
+			}
+			String[] ids = text.split(";");
+			int[] partIds = new int[ids.length];
+			for(int i = 0; i < ids.length; i++)
+			{
+				partIds[i] = Integer.parseInt(ids[i].trim());
+			}
+			return partIds;
+		}
+
+		private void error(int line, String message)
+		{
+			skipped.incrementAndGet();
+			report(line, message);
+		}
+
+		private void report(int line, String message)
+		{
+			if(errors.size() < MAX_REPORTED_ERRORS)
+			{
+				errors.add("Line " + line + ": " + message);
+			}
+		}
+	}
+
+	/**
+	 * Rows parsed but not yet committed
+	 */
+	private static final class Batch {
+		final List<Part> parts = new ArrayList<>();
+		final List<Integer> partLines = new ArrayList<>();
+		final List<Product> products = new ArrayList<>();
+		final List<int[]> productParts = new ArrayList<>();
+		final List<Integer> productLines = new ArrayList<>();
+
+		void addPart(Part part, int line)
+		{
+			parts.add(part);
+			partLines.add(line);
+		}
+
+		void addProduct(Product product, int[] partIds, int line)
+		{
+			products.add(product);
+			productParts.add(partIds);
+			productLines.add(line);
+		}
+
+		int size()
+		{
+			return parts.size() + products.size();
+		}
+	}
+
+	/**
+	 * Counts bytes read, for progress
+	 */
+	private static final class CountingInputStream extends FilterInputStream {
+		volatile long count;
+
+		CountingInputStream(InputStream in)
+		{
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			int b = super.read();
+			if(b >= 0)
+			{
+				count++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException
+		{
+			int n = super.read(b, off, len);
+			if(n > 0)
+			{
+				count += n;
+			}
+			return n;
+		}
+	}
+}
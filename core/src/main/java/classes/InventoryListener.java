@@ -0,0 +1,35 @@
+package classes;
+
+/**
+ * Told when a field of a part or product in an inventory changes, such as its stock or price.
+ * Parts and products being added, removed or replaced show up as changes to the inventory's lists instead.
+ */
+public interface InventoryListener {
+	/**
+	 * @param part whose fields changed
+	 */
+	default void partChanged(Part part)
+	{
+	}
+
+	/**
+	 * @param product whose fields changed
+	 */
+	default void productChanged(Product product)
+	{
+	}
+
+	/**
+	 * @param product a part was associated to or dissociated from
+	 */
+	default void associatedPartsChanged(Product product)
+	{
+	}
+
+	/**
+	 * @param product whose buildable quantity changed, as the stock or associations of its parts changed
+	 */
+	default void buildableChanged(Product product)
+	{
+	}
+}
@@ -0,0 +1,816 @@
+package classes;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log of inventory changes.
+ * Callers only encode a record and queue it; a background writer drains everything queued so far,
+ * writes it in one go and syncs it to disk according to the {@link FsyncPolicy}, so the JavaFX
+ * thread never waits on the disk.
+ * Each record is framed as its length, its payload and a CRC32 of the payload. Replay stops at the
+ * first incomplete or damaged record, which is what a crash in the middle of a write leaves behind,
+ * and cuts the file back to the last good record.
+ * Records written between begin() and commit() are replayed all together or, if the log ends
+ * before the commit, not at all.
+ * The file starts with a generation number. Taking a snapshot rotates the log into the next
+ * generation, so a log left over from before the latest snapshot is recognized and skipped. The writer
+ * thread saves the snapshot itself, in its place among the records, so records queued while it is saved
+ * go to the next generation and none are dropped.
+ */
+public class InventoryLog implements Closeable {
+	/**
+	 * When the log forces written records to disk
+	 */
+	public enum FsyncPolicy {
+		/** After every group of records written, so nothing acknowledged is lost */
+		ALWAYS,
+		/** At most once per sync interval, losing at most that much work on a power failure */
+		PERIODIC,
+		/** Never; the operating system writes the file back when it likes */
+		NEVER
+	}
+
+	private static final byte ADD_PART = 1;
+	private static final byte UPDATE_PART = 2;
+	private static final byte DELETE_PART = 3;
+	private static final byte CHANGE_PART = 4;
+	private static final byte ADD_PRODUCT = 5;
+	private static final byte UPDATE_PRODUCT = 6;
+	private static final byte DELETE_PRODUCT = 7;
+	private static final byte CHANGE_PRODUCT = 8;
+	private static final byte ASSOCIATE_PART = 9;
+	private static final byte DISSOCIATE_PART = 10;
+	private static final byte BEGIN_BATCH = 11;
+	private static final byte END_BATCH = 12;
+
+	private static final int MAGIC = 0x494E564C;
+	private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES;
+
+	private static final byte IN_HOUSE = 1;
+	private static final byte OUTSOURCED = 2;
+
+	private static final int MAX_GROUP = 4096;
+	private static final byte[] STOP = new byte[0];
+	private static final byte[] ROTATE = new byte[0];
+
+	private final FileChannel channel;
+	private final FsyncPolicy fsyncPolicy;
+	private final long syncIntervalNanos;
+	private final BlockingQueue<byte[]> pending = new LinkedBlockingQueue<>();
+	// One for each ROTATE in the pending records, in the same order
+	private final Queue<Rotation> rotations = new ConcurrentLinkedQueue<>();
+	private final Thread writer;
+	private volatile IOException failure;
+	private long lastSync = System.nanoTime();
+	private boolean unsynced;
+	// Generation as seen by callers, and as last written to the file by the writer thread
+	private long generation;
+	private long writtenGeneration;
+	private long recordCount;
+	// Records of the batch in progress, held back until it commits
+	private List<byte[]> batch;
+
+	/**
+	 * Opens a log file, creating it if needed
+	 * @param file to append records to
+	 * @param fsyncPolicy when to force records to disk
+	 * @param syncIntervalMillis longest time between syncs for {@link FsyncPolicy#PERIODIC}
+	 * @throws IOException if the file cannot be opened
+	 */
+	public InventoryLog(Path file, FsyncPolicy fsyncPolicy, long syncIntervalMillis) throws IOException
+	{
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		this.fsyncPolicy = fsyncPolicy;
+		this.syncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(syncIntervalMillis);
+		this.writer = new Thread(this::writeLoop, "inventory-log-writer");
+		this.writer.setDaemon(true);
+	}
+
+	/**
+	 * Applies every record in the log to an inventory, then starts accepting new records.
+	 * The inventory must not be logging to this log yet, or replay would log itself again.
+	 * @param inventory to rebuild
+	 * @param snapshotGeneration generation of the log that follows the snapshot the inventory was loaded from, 0 if none
+	 * @return number of records applied
+	 * @throws IOException if the log cannot be read, or belongs to a later snapshot than the one loaded
+	 */
+	int replay(Inventory inventory, long snapshotGeneration) throws IOException
+	{
+		long size = channel.size();
+		long position = HEADER_SIZE;
+		int applied = 0;
+		generation = snapshotGeneration;
+		if(size < HEADER_SIZE)
+		{
+			// New log, or one torn while its header was written
+			writeHeader(snapshotGeneration);
+		}
+		else
+		{
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			readFully(header, 0);
+			if(header.getInt(0) != MAGIC)
+			{
+				throw new IOException("Not an inventory log");
+			}
+			long logGeneration = header.getLong(Integer.BYTES);
+			if(logGeneration > snapshotGeneration)
+			{
+				throw new IOException("Inventory log generation " + logGeneration
+						+ " is newer than the snapshot, which expects " + snapshotGeneration);
+			}
+			if(logGeneration < snapshotGeneration)
+			{
+				// Everything in it is already in the snapshot
+				writeHeader(snapshotGeneration);
+			}
+			else
+			{
+				position = replayRecords(inventory, size);
+				applied = (int) recordCount;
+			}
+		}
+
+		// Anything after the last good record is a torn write; drop it before appending
+		channel.truncate(position);
+		channel.position(position);
+		writtenGeneration = generation;
+		writer.start();
+		return applied;
+	}
+
+	/**
+	 * @return generation of the records currently being appended
+	 */
+	long generation()
+	{
+		return generation;
+	}
+
+	/**
+	 * @return number of records in the current generation
+	 */
+	long recordCount()
+	{
+		return recordCount;
+	}
+
+	/**
+	 * Saves a snapshot covering every record queued so far, on the writer thread once they are written,
+	 * then starts the next generation, discarding them. If saving fails, the log carries on in its
+	 * generation and the next snapshot covers these records too.
+	 * @param save writes the snapshot, given the generation of the log that follows it
+	 * @return completes once the snapshot is saved and the log rotated, or with the error that kept it
+	 * from being saved
+	 */
+	CompletableFuture<Void> rotate(Save save)
+	{
+		generation++;
+		recordCount = 0;
+		Rotation rotation = new Rotation(generation, save);
+		rotations.add(rotation);
+		pending.add(ROTATE);
+		if(failure != null && rotations.remove(rotation))
+		{
+			// The writer thread stopped before it could take it
+			rotation.done.completeExceptionally(failure);
+		}
+		return rotation.done;
+	}
+
+	/**
+	 * Writes a snapshot for rotate()
+	 */
+	interface Save {
+		/**
+		 * @param generation of the log holding the changes made after the snapshot
+		 * @throws IOException if the snapshot cannot be written
+		 */
+		void write(long generation) throws IOException;
+	}
+
+	private static final class Rotation {
+		final long generation;
+		final Save save;
+		final CompletableFuture<Void> done = new CompletableFuture<>();
+
+		Rotation(long generation, Save save)
+		{
+			this.generation = generation;
+			this.save = save;
+		}
+	}
+
+	/**
+	 * Holds back the records that follow until commit() or rollback()
+	 */
+	void begin()
+	{
+		batch = new ArrayList<>();
+		append(BEGIN_BATCH, out -> {});
+	}
+
+	/**
+	 * Queues the batch's records, framed so replay applies all or none of them
+	 */
+	void commit()
+	{
+		append(END_BATCH, out -> {});
+		List<byte[]> records = batch;
+		batch = null;
+		if(records.size() > 3)
+		{
+			pending.addAll(records);
+		}
+		else
+		{
+			// A single record is atomic by itself, and an empty batch needs nothing written
+			recordCount -= 2;
+			if(records.size() == 3)
+			{
+				pending.add(records.get(1));
+			}
+		}
+	}
+
+	/**
+	 * Drops the batch's records
+	 */
+	void rollback()
+	{
+		recordCount -= batch.size();
+		batch = null;
+	}
+
+	private long replayRecords(Inventory inventory, long size) throws IOException
+	{
+		ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+		long position = HEADER_SIZE;
+		// Records of a batch are only applied once its end marker is read
+		List<ByteBuffer> batched = null;
+		long batchStart = 0;
+		while(position + Integer.BYTES <= size)
+		{
+			header.clear();
+			readFully(header, position);
+			int length = header.getInt(0);
+			if(length <= 0 || position + Integer.BYTES + length + Integer.BYTES > size)
+			{
+				break;
+			}
+			ByteBuffer body = ByteBuffer.allocate(length + Integer.BYTES);
+			readFully(body, position + Integer.BYTES);
+			CRC32 crc = new CRC32();
+			crc.update(body.array(), 0, length);
+			if((int) crc.getValue() != body.getInt(length))
+			{
+				break;
+			}
+			position += Integer.BYTES + length + Integer.BYTES;
+			recordCount++;
+
+			byte type = body.get(0);
+			if(type == BEGIN_BATCH)
+			{
+				batched = new ArrayList<>();
+				batchStart = position - (Integer.BYTES + length + Integer.BYTES);
+			}
+			else if(type == END_BATCH)
+			{
+				if(batched != null)
+				{
+					for(ByteBuffer record : batched)
+					{
+						apply(inventory, new DataInputStream(new ByteArrayInputStream(record.array(), 0, record.limit())));
+					}
+					batched = null;
+				}
+			}
+			else if(batched != null)
+			{
+				body.limit(length);
+				batched.add(body);
+			}
+			else
+			{
+				apply(inventory, new DataInputStream(new ByteArrayInputStream(body.array(), 0, length)));
+			}
+		}
+		if(batched != null)
+		{
+			// The batch never committed, so none of it happened
+			recordCount -= batched.size() + 1;
+			return batchStart;
+		}
+		return position;
+	}
+
+	private void writeHeader(long newGeneration) throws IOException
+	{
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putLong(newGeneration);
+		header.flip();
+		channel.truncate(0);
+		while(header.hasRemaining())
+		{
+			channel.write(header, header.position());
+		}
+		channel.force(false);
+	}
+
+	void partAdded(Part part)
+	{
+		append(ADD_PART, out -> writePart(out, part));
+	}
+
+	void partUpdated(int index, Part part)
+	{
+		append(UPDATE_PART, out -> {
+			out.writeInt(index);
+			writePart(out, part);
+		});
+	}
+
+	void partDeleted(int partId)
+	{
+		append(DELETE_PART, out -> out.writeInt(partId));
+	}
+
+	void partChanged(Part part)
+	{
+		append(CHANGE_PART, out -> writePart(out, part));
+	}
+
+	void productAdded(Product product)
+	{
+		append(ADD_PRODUCT, out -> writeProduct(out, product, true));
+	}
+
+	void productUpdated(int index, Product product)
+	{
+		append(UPDATE_PRODUCT, out -> {
+			out.writeInt(index);
+			writeProduct(out, product, true);
+		});
+	}
+
+	void productDeleted(int productId)
+	{
+		append(DELETE_PRODUCT, out -> out.writeInt(productId));
+	}
+
+	void productChanged(Product product)
+	{
+		append(CHANGE_PRODUCT, out -> writeProduct(out, product, false));
+	}
+
+	void partAssociated(int productId, int partId)
+	{
+		append(ASSOCIATE_PART, out -> {
+			out.writeInt(productId);
+			out.writeInt(partId);
+		});
+	}
+
+	void partDissociated(int productId, int partId)
+	{
+		append(DISSOCIATE_PART, out -> {
+			out.writeInt(productId);
+			out.writeInt(partId);
+		});
+	}
+
+	/**
+	 * @return the error that stopped the writer thread, or null if it is still writing
+	 */
+	public IOException getFailure()
+	{
+		return failure;
+	}
+
+	/**
+	 * @throws IOException the error that stopped the writer thread, if it has stopped
+	 */
+	void checkFailure() throws IOException
+	{
+		if(failure != null)
+		{
+			throw failure;
+		}
+	}
+
+	/**
+	 * Writes out every queued record, syncs it to disk and closes the file
+	 * @throws IOException if a record could not be written
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if(writer.isAlive())
+		{
+			pending.add(STOP);
+			try
+			{
+				writer.join();
+			}
+			catch(InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+		if(failure == null)
+		{
+			channel.force(false);
+		}
+		channel.close();
+		if(failure != null)
+		{
+			throw failure;
+		}
+	}
+
+	private interface Body {
+		void write(DataOutputStream out) throws IOException;
+	}
+
+	/**
+	 * Frames a record and hands it to the writer thread
+	 */
+	private void append(byte type, Body body)
+	{
+		if(failure != null)
+		{
+			throw new UncheckedIOException("Inventory log failed", failure);
+		}
+		try
+		{
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeInt(0);
+			out.writeByte(type);
+			body.write(out);
+			out.writeInt(0);
+
+			byte[] record = bytes.toByteArray();
+			int length = record.length - 2 * Integer.BYTES;
+			CRC32 crc = new CRC32();
+			crc.update(record, Integer.BYTES, length);
+			ByteBuffer.wrap(record).putInt(0, length).putInt(record.length - Integer.BYTES, (int) crc.getValue());
+			recordCount++;
+			if(batch != null)
+			{
+				batch.add(record);
+			}
+			else
+			{
+				pending.add(record);
+			}
+		}
+		catch(IOException ex)
+		{
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	/**
+	 * Group commit: wait for a record, take everything else already queued, write it all, then sync.
+	 */
+	private void writeLoop()
+	{
+		List<byte[]> group = new ArrayList<>();
+		boolean stopping = false;
+		try
+		{
+			while(!stopping)
+			{
+				byte[] first = fsyncPolicy == FsyncPolicy.PERIODIC && unsynced
+						? pending.poll(syncIntervalNanos, TimeUnit.NANOSECONDS)
+						: pending.take();
+				if(first != null)
+				{
+					group.add(first);
+					pending.drainTo(group, MAX_GROUP);
+				}
+
+				int from = 0;
+				for(int i = 0; i < group.size(); i++)
+				{
+					byte[] record = group.get(i);
+					if(record == STOP)
+					{
+						stopping = true;
+					}
+					else if(record == ROTATE)
+					{
+						write(group, from, i);
+						from = i + 1;
+						rotate(rotations.poll());
+					}
+				}
+				write(group, from, group.size());
+				group.clear();
+				sync();
+			}
+		}
+		catch(IOException ex)
+		{
+			// Kept for callers: the next record appended, snapshot() and close() all throw it
+			failure = ex;
+			for(Rotation rotation; (rotation = rotations.poll()) != null; )
+			{
+				rotation.done.completeExceptionally(ex);
+			}
+		}
+		catch(InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Saves a rotation's snapshot and, if it is saved, starts its generation
+	 */
+	private void rotate(Rotation rotation) throws IOException
+	{
+		try
+		{
+			rotation.save.write(rotation.generation);
+		}
+		catch(IOException | RuntimeException ex)
+		{
+			rotation.done.completeExceptionally(ex);
+			return;
+		}
+		writtenGeneration = rotation.generation;
+		writeHeader(writtenGeneration);
+		channel.position(HEADER_SIZE);
+		unsynced = false;
+		rotation.done.complete(null);
+	}
+
+	private void write(List<byte[]> group, int from, int to) throws IOException
+	{
+		int total = 0;
+		for(int i = from; i < to; i++)
+		{
+			total += group.get(i).length;
+		}
+		if(total == 0)
+		{
+			return;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(total);
+		for(int i = from; i < to; i++)
+		{
+			buffer.put(group.get(i));
+		}
+		buffer.flip();
+		while(buffer.hasRemaining())
+		{
+			channel.write(buffer);
+		}
+		unsynced = true;
+	}
+
+	private void sync() throws IOException
+	{
+		if(!unsynced || fsyncPolicy == FsyncPolicy.NEVER)
+		{
+			return;
+		}
+		long now = System.nanoTime();
+		if(fsyncPolicy == FsyncPolicy.ALWAYS || now - lastSync >= syncIntervalNanos)
+		{
+			channel.force(false);
+			lastSync = now;
+			unsynced = false;
+		}
+	}
+
+	private void readFully(ByteBuffer buffer, long position) throws IOException
+	{
+		while(buffer.hasRemaining())
+		{
+			if(channel.read(buffer, position + buffer.position()) < 0)
+			{
+				throw new EOFException();
+			}
+		}
+	}
+
+	private static void apply(Inventory inventory, DataInputStream in) throws IOException
+	{
+		byte type = in.readByte();
+		switch(type)
+		{
+			case ADD_PART:
+				inventory.addPart(readPart(in));
+				break;
+			case UPDATE_PART:
+			{
+				int index = in.readInt();
+				inventory.updatePart(index, readPart(in));
+				break;
+			}
+			case DELETE_PART:
+			{
+				Part part = inventory.lookupPart(in.readInt());
+				if(part != null)
+				{
+					inventory.deletePart(part);
+				}
+				break;
+			}
+			case CHANGE_PART:
+			{
+				Part changed = readPart(in);
+				Part part = inventory.lookupPart(changed.getId());
+				if(part != null)
+				{
+					copyPart(changed, part);
+				}
+				break;
+			}
+			case ADD_PRODUCT:
+				inventory.addProduct(readProduct(in, inventory));
+				break;
+			case UPDATE_PRODUCT:
+			{
+				int index = in.readInt();
+				inventory.updateProduct(index, readProduct(in, inventory));
+				break;
+			}
+			case DELETE_PRODUCT:
+			{
+				Product product = inventory.lookupProduct(in.readInt());
+				if(product != null)
+				{
+					inventory.deleteProduct(product);
+				}
+				break;
+			}
+			case CHANGE_PRODUCT:
+			{
+				Product changed = readProduct(in, null);
+				Product product = inventory.lookupProduct(changed.getId());
+				if(product != null)
+				{
+					product.setName(changed.getName());
+					product.setPrice(changed.getPrice());
+					product.setStock(changed.getStock());
+					product.setMin(changed.getMin());
+					product.setMax(changed.getMax());
+				}
+				break;
+			}
+			case ASSOCIATE_PART:
+			case DISSOCIATE_PART:
+			{
+				Product product = inventory.lookupProduct(in.readInt());
+				Part part = inventory.lookupPart(in.readInt());
+				if(product != null && part != null)
+				{
+					if(type == ASSOCIATE_PART)
+					{
+						product.addAssociatedPart(part);
+					}
+					else
+					{
+						product.deleteAssociatedPart(part);
+					}
+				}
+				break;
+			}
+			default:
+				throw new IOException("Unknown inventory log record type " + type);
+		}
+	}
+
+	/**
+	 * Sets every field of a part but its id to those of another
+	 */
+	static void copyPart(Part from, Part to)
+	{
+		to.setName(from.getName());
+		to.setPrice(from.getPrice());
+		to.setStock(from.getStock());
+		to.setMin(from.getMin());
+		to.setMax(from.getMax());
+		if(from instanceof InHouse && to instanceof InHouse)
+		{
+			((InHouse) to).setMachineId(((InHouse) from).getMachineId());
+		}
+		else if(from instanceof Outsourced && to instanceof Outsourced)
+		{
+			((Outsourced) to).setCompanyName(((Outsourced) from).getCompanyName());
+		}
+	}
+
+	static void writePart(DataOutputStream out, Part part) throws IOException
+	{
+		out.writeByte(part instanceof InHouse ? IN_HOUSE : OUTSOURCED);
+		out.writeInt(part.getId());
+		writeString(out, part.getName());
+		out.writeDouble(part.getPrice());
+		out.writeInt(part.getStock());
+		out.writeInt(part.getMin());
+		out.writeInt(part.getMax());
+		if(part instanceof InHouse)
+		{
+			out.writeInt(((InHouse) part).getMachineId());
+		}
+		else
+		{
+			writeString(out, ((Outsourced) part).getCompanyName());
+		}
+	}
+
+	static Part readPart(DataInputStream in) throws IOException
+	{
+		byte kind = in.readByte();
+		int id = in.readInt();
+		String name = readString(in);
+		double price = in.readDouble();
+		int stock = in.readInt();
+		int min = in.readInt();
+		int max = in.readInt();
+		if(kind == IN_HOUSE)
+		{
+			return new InHouse(id, name, price, stock, min, max, in.readInt());
+		}
+		return new Outsourced(id, name, price, stock, min, max, readString(in));
+	}
+
+	private static void writeProduct(DataOutputStream out, Product product, boolean withParts) throws IOException
+	{
+		out.writeInt(product.getId());
+		writeString(out, product.getName());
+		out.writeDouble(product.getPrice());
+		out.writeInt(product.getStock());
+		out.writeInt(product.getMin());
+		out.writeInt(product.getMax());
+		if(withParts)
+		{
+			List<Part> parts = product.getAllAssociatedParts();
+			out.writeInt(parts.size());
+			for(Part part : parts)
+			{
+				out.writeInt(part.getId());
+			}
+		}
+	}
+
+	/**
+	 * @param inventory to resolve associated part ids against, or null when the record has none
+	 */
+	private static Product readProduct(DataInputStream in, Inventory inventory) throws IOException
+	{
+		Product product = new Product(in.readInt(), readString(in), in.readDouble(), in.readInt(), in.readInt(), in.readInt());
+		if(inventory != null)
+		{
+			int count = in.readInt();
+			for(int i = 0; i < count; i++)
+			{
+				Part part = inventory.lookupPart(in.readInt());
+				if(part != null)
+				{
+					product.addAssociatedPart(part);
+				}
+			}
+		}
+		return product;
+	}
+
+	static void writeString(DataOutputStream out, String value) throws IOException
+	{
+		out.writeBoolean(value != null);
+		if(value != null)
+		{
+			out.writeUTF(value);
+		}
+	}
+
+	static String readString(DataInputStream in) throws IOException
+	{
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+}
@@ -0,0 +1,255 @@
+package classes;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Compact binary image of a whole inventory, so startup reads one file instead of replaying the log.
+ * Layout, big endian:
+ * <pre>
+ * magic, version, log generation, part count, product count
+ * parts:    kind, id, price, stock, min, max, machine id or company name, name
+ * products: id, price, stock, min, max, name, associated part count, associated part ids
+ * CRC32 of everything before it
+ * </pre>
+ * Strings are a byte length, -1 for null, followed by UTF-8 bytes. A snapshot is written to a temporary
+ * file and moved into place, so a crash leaves either the old snapshot or the new one.
+ */
+final class InventorySnapshot {
+	private static final int MAGIC = 0x494E5653;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 3 * Integer.BYTES + Long.BYTES + Integer.BYTES;
+	private static final byte IN_HOUSE = 1;
+	private static final byte OUTSOURCED = 2;
+
+	private InventorySnapshot()
+	{
+	}
+
+	/**
+	 * Writes every part and product to a snapshot file
+	 * @param file to replace with the snapshot
+	 * @param parts in list order
+	 * @param products in list order
+	 * @param logGeneration generation of the log holding changes made after this snapshot
+	 * @throws IOException if the file cannot be written
+	 */
+	static void write(Path file, List<Part> parts, List<Product> products, long logGeneration) throws IOException
+	{
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			CRC32 crc = new CRC32();
+			OutputStream raw = Channels.newOutputStream(channel);
+			DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(raw, 1 << 16), crc));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(logGeneration);
+			out.writeInt(parts.size());
+			out.writeInt(products.size());
+			for(Part part : parts)
+			{
+				writePart(out, part);
+			}
+			for(Product product : products)
+			{
+				writeProduct(out, product);
+			}
+			out.flush();
+			// The checksum itself is not part of what it covers, so bypass the checked stream
+			DataOutputStream trailer = new DataOutputStream(raw);
+			trailer.writeInt((int) crc.getValue());
+			trailer.flush();
+			channel.force(true);
+		}
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Reads a snapshot into an empty inventory in one pass over the mapped file
+	 * @param file snapshot to read
+	 * @param inventory to fill
+	 * @return generation of the log that follows the snapshot
+	 * @throws IOException if the file cannot be read or is damaged
+	 */
+	static long load(Path file, Inventory inventory) throws IOException
+	{
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			long size = channel.size();
+			if(size < HEADER_SIZE + Integer.BYTES || size > Integer.MAX_VALUE)
+			{
+				throw new IOException("Inventory snapshot " + file + " has an invalid size");
+			}
+			MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			int bodySize = (int) size - Integer.BYTES;
+			CRC32 crc = new CRC32();
+			crc.update((ByteBuffer) in.duplicate().limit(bodySize));
+			if((int) crc.getValue() != in.getInt(bodySize))
+			{
+				throw new IOException("Inventory snapshot " + file + " is damaged");
+			}
+			if(in.getInt() != MAGIC)
+			{
+				throw new IOException(file + " is not an inventory snapshot");
+			}
+			int version = in.getInt();
+			if(version != VERSION)
+			{
+				throw new IOException("Unsupported inventory snapshot version " + version);
+			}
+			long logGeneration = in.getLong();
+			int partCount = in.getInt();
+			int productCount = in.getInt();
+
+			Reader reader = new Reader(in);
+			List<Part> parts = new ArrayList<>(partCount);
+			for(int i = 0; i < partCount; i++)
+			{
+				parts.add(reader.readPart());
+			}
+			inventory.addParts(parts);
+
+			// Associations point at the parts as held by the inventory's store, so resolve them after loading
+			List<Product> products = new ArrayList<>(productCount);
+			for(int i = 0; i < productCount; i++)
+			{
+				products.add(reader.readProduct(inventory));
+			}
+			inventory.addProducts(products);
+			return logGeneration;
+		}
+	}
+
+	private static void writePart(DataOutputStream out, Part part) throws IOException
+	{
+		boolean inHouse = part instanceof InHouse;
+		out.writeByte(inHouse ? IN_HOUSE : OUTSOURCED);
+		out.writeInt(part.getId());
+		out.writeDouble(part.getPrice());
+		out.writeInt(part.getStock());
+		out.writeInt(part.getMin());
+		out.writeInt(part.getMax());
+		if(inHouse)
+		{
+			out.writeInt(((InHouse) part).getMachineId());
+		}
+		else
+		{
+			writeString(out, ((Outsourced) part).getCompanyName());
+		}
+		writeString(out, part.getName());
+	}
+
+	private static void writeProduct(DataOutputStream out, Product product) throws IOException
+	{
+		out.writeInt(product.getId());
+		out.writeDouble(product.getPrice());
+		out.writeInt(product.getStock());
+		out.writeInt(product.getMin());
+		out.writeInt(product.getMax());
+		writeString(out, product.getName());
+		List<Part> associated = product.getAllAssociatedParts();
+		out.writeInt(associated.size());
+		for(Part part : associated)
+		{
+			out.writeInt(part.getId());
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException
+	{
+		if(value == null)
+		{
+			out.writeInt(-1);
+			return;
+		}
+		byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(encoded.length);
+		out.write(encoded);
+	}
+
+	/**
+	 * Decodes records from the mapped file, reusing one buffer for string bytes
+	 */
+	private static final class Reader {
+		private final ByteBuffer in;
+		private byte[] scratch = new byte[256];
+
+		Reader(ByteBuffer in)
+		{
+			this.in = in;
+		}
+
+		Part readPart() throws IOException
+		{
+			byte kind = in.get();
+			int id = in.getInt();
+			double price = in.getDouble();
+			int stock = in.getInt();
+			int min = in.getInt();
+			int max = in.getInt();
+			if(kind == IN_HOUSE)
+			{
+				int machineId = in.getInt();
+				return new InHouse(id, readString(), price, stock, min, max, machineId);
+			}
+			if(kind == OUTSOURCED)
+			{
+				String companyName = readString();
+				return new Outsourced(id, readString(), price, stock, min, max, companyName);
+			}
+			throw new IOException("Unknown part kind " + kind + " in inventory snapshot");
+		}
+
+		Product readProduct(Inventory inventory)
+		{
+			int id = in.getInt();
+			double price = in.getDouble();
+			int stock = in.getInt();
+			int min = in.getInt();
+			int max = in.getInt();
+			Product product = new Product(id, readString(), price, stock, min, max);
+			int count = in.getInt();
+			for(int i = 0; i < count; i++)
+			{
+				Part part = inventory.lookupPart(in.getInt());
+				if(part != null)
+				{
+					product.addAssociatedPart(part);
+				}
+			}
+			return product;
+		}
+
+		String readString()
+		{
+			int length = in.getInt();
+			if(length < 0)
+			{
+				return null;
+			}
+			if(length > scratch.length)
+			{
+				scratch = new byte[Math.max(length, scratch.length * 2)];
+			}
+			in.get(scratch, 0, length);
+			return new String(scratch, 0, length, StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package classes;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Changes made to an inventory inside {@link Inventory#batch}.
+ * They take effect immediately, so later calls in the batch see earlier ones, but the part and product
+ * lists only tell their listeners once the batch ends, with one change each. If the batch throws,
+ * every change made through this interface is undone.
+ */
+public interface InventoryTx {
+	/**
+	 * @param newPart to add
+	 */
+	void addPart(Part newPart);
+
+	/**
+	 * @param newParts to add, in order
+	 */
+	void addParts(Collection<? extends Part> newParts);
+
+	/**
+	 * @param index position of the part to replace
+	 * @param selectedPart replacement
+	 */
+	void updatePart(int index, Part selectedPart);
+
+	/**
+	 * @param partsByIndex replacement parts keyed by the position of the part they replace
+	 */
+	void updateParts(Map<Integer, ? extends Part> partsByIndex);
+
+	/**
+	 * @param selectedPart to delete
+	 * @return true if the part was in the inventory
+	 */
+	boolean deletePart(Part selectedPart);
+
+	/**
+	 * @param selectedParts to delete
+	 * @return number of parts that were in the inventory and were deleted
+	 */
+	int deleteParts(Collection<? extends Part> selectedParts);
+
+	/**
+	 * @param newProduct to add
+	 */
+	void addProduct(Product newProduct);
+
+	/**
+	 * @param newProducts to add, in order
+	 */
+	void addProducts(Collection<? extends Product> newProducts);
+
+	/**
+	 * @param index position of the product to replace
+	 * @param selectedProduct replacement
+	 */
+	void updateProduct(int index, Product selectedProduct);
+
+	/**
+	 * @param selectedProduct to delete
+	 * @return true if the product was in the inventory
+	 */
+	boolean deleteProduct(Product selectedProduct);
+}
@@ -0,0 +1,440 @@
+package classes;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps parts outside the Java heap, in fixed width slots of a memory-mapped file.
+ * Names and company names are kept in a second mapped file, the string heap, and slots refer
+ * to them by offset. A renamed part reuses its name's space when the new name fits; space left by
+ * longer names and removed parts is reclaimed by compacting the heap before it grows. The heap
+ * is one mapping, so its live strings are limited to 2 GB.
+ * Only the list order, the id index and a small cache of row objects stay on
+ * the heap, so catalogs larger than the heap can stay resident.
+ * The files are working storage and are recreated each time the store is opened.
+ */
+public class MappedPartStore extends SlotPartStore implements Closeable {
+	private static final int SLOT_SIZE = 40;
+	private static final int KIND = 0;
+	private static final int ID = 4;
+	private static final int PRICE = 8;
+	private static final int STOCK = 16;
+	private static final int MIN = 20;
+	private static final int MAX = 24;
+	// Machine id for in-house parts, company name offset for outsourced parts
+	private static final int EXTRA = 28;
+	private static final int NAME = 32;
+
+	// Each string on the heap: its capacity, the slot whose name it is, its length, then its bytes
+	private static final int CAPACITY = 0;
+	private static final int OWNER = 4;
+	private static final int LENGTH = 8;
+	private static final int HEADER = 12;
+	// Owners that are not slots: space no longer in use, and company names, which many slots share
+	private static final int UNUSED = -1;
+	private static final int COMPANY = -2;
+
+	private static final int INITIAL_SLOTS = 64 * 1024;
+	private static final int INITIAL_STRING_BYTES = 1024 * 1024;
+	private static final int DEFAULT_CACHE_SIZE = 4096;
+
+	private final FileChannel slotChannel;
+	private final FileChannel stringChannel;
+	private MappedByteBuffer slots;
+	private MappedByteBuffer strings;
+	private int stringsUsed;
+	// Bytes of the string heap no longer in use, reclaimed by the next compaction
+	private long stringsUnused;
+
+	// Company names repeat across many parts, so each is written to the string heap once; slots hold its
+	// number, so compacting the heap only moves the one offset
+	private final Map<String, Integer> companyNumbers = new HashMap<>();
+	private int[] companyOffsets = new int[16];
+	private final Map<Integer, Part> rowCache;
+
+	/**
+	 * @param file to keep the part slots in; the string heap goes next to it
+	 * @throws IOException if the files cannot be created or mapped
+	 */
+	public MappedPartStore(Path file) throws IOException
+	{
+		this(file, DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * @param file to keep the part slots in; the string heap goes next to it
+	 * @param cacheSize number of row objects to keep on the heap
+	 * @throws IOException if the files cannot be created or mapped
+	 */
+	public MappedPartStore(Path file, int cacheSize) throws IOException
+	{
+		super(INITIAL_SLOTS);
+		slotChannel = open(file);
+		stringChannel = open(file.resolveSibling(file.getFileName() + ".strings"));
+		slots = slotChannel.map(FileChannel.MapMode.READ_WRITE, 0, (long) INITIAL_SLOTS * SLOT_SIZE);
+		strings = stringChannel.map(FileChannel.MapMode.READ_WRITE, 0, INITIAL_STRING_BYTES);
+		rowCache = new LinkedHashMap<>(cacheSize * 4 / 3 + 1, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Part> eldest)
+			{
+				return size() > cacheSize;
+			}
+		};
+	}
+
+	/**
+	 * Flushes the mapped files and closes their channels. The mappings stay until the buffers are
+	 * garbage collected, so the store must not be used afterwards.
+	 * @throws IOException if the files cannot be written
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		slots.force();
+		strings.force();
+		slotChannel.close();
+		stringChannel.close();
+	}
+
+	@Override
+	Part row(int slot)
+	{
+		Part part;
+		// Readers of a shared inventory look rows up on several threads at once, and an access-ordered
+		// get moves the entry, so even reads change the cache
+		synchronized(rowCache)
+		{
+			part = rowCache.get(slot);
+			// A replacement of the other kind is written over the slot, leaving a row of the wrong class
+			if(part == null || (part instanceof InHouse) != (kind(slot) == IN_HOUSE))
+			{
+				part = super.row(slot);
+				rowCache.put(slot, part);
+			}
+		}
+		part.inventory = inventory;
+		return part;
+	}
+
+	/**
+	 * @return number of row objects kept on the heap
+	 */
+	int cachedRows()
+	{
+		synchronized(rowCache)
+		{
+			return rowCache.size();
+		}
+	}
+
+	@Override
+	void released(int slot)
+	{
+		synchronized(rowCache)
+		{
+			rowCache.remove(slot);
+		}
+		discard(slots.getInt(slot * SLOT_SIZE + NAME));
+	}
+
+	@Override
+	void ensureSlots(int count)
+	{
+		long needed = (long) count * SLOT_SIZE;
+		if(needed > slots.capacity())
+		{
+			slots = remap(slotChannel, slots.capacity(), needed);
+		}
+	}
+
+	@Override
+	byte kind(int slot)
+	{
+		return slots.get(slot * SLOT_SIZE + KIND);
+	}
+
+	@Override
+	void kind(int slot, byte kind)
+	{
+		slots.put(slot * SLOT_SIZE + KIND, kind);
+	}
+
+	@Override
+	int id(int slot)
+	{
+		return slots.getInt(slot * SLOT_SIZE + ID);
+	}
+
+	@Override
+	void id(int slot, int id)
+	{
+		slots.putInt(slot * SLOT_SIZE + ID, id);
+	}
+
+	@Override
+	String name(int slot)
+	{
+		return readString(slots.getInt(slot * SLOT_SIZE + NAME));
+	}
+
+	@Override
+	void name(int slot, String name)
+	{
+		int offset = -1;
+		if(kind(slot) != FREE)
+		{
+			// A rename: the new name goes in the old one's place if it fits there
+			offset = slots.getInt(slot * SLOT_SIZE + NAME);
+			byte[] encoded = name == null ? null : name.getBytes(StandardCharsets.UTF_8);
+			if(encoded != null && offset >= 0 && encoded.length <= strings.getInt(offset + CAPACITY))
+			{
+				putString(offset, slot, encoded);
+				return;
+			}
+			discard(offset);
+		}
+		slots.putInt(slot * SLOT_SIZE + NAME, writeString(name, slot));
+	}
+
+	@Override
+	double price(int slot)
+	{
+		return slots.getDouble(slot * SLOT_SIZE + PRICE);
+	}
+
+	@Override
+	void price(int slot, double price)
+	{
+		slots.putDouble(slot * SLOT_SIZE + PRICE, price);
+	}
+
+	@Override
+	int stock(int slot)
+	{
+		return slots.getInt(slot * SLOT_SIZE + STOCK);
+	}
+
+	@Override
+	void stock(int slot, int stock)
+	{
+		slots.putInt(slot * SLOT_SIZE + STOCK, stock);
+	}
+
+	@Override
+	int min(int slot)
+	{
+		return slots.getInt(slot * SLOT_SIZE + MIN);
+	}
+
+	@Override
+	void min(int slot, int min)
+	{
+		slots.putInt(slot * SLOT_SIZE + MIN, min);
+	}
+
+	@Override
+	int max(int slot)
+	{
+		return slots.getInt(slot * SLOT_SIZE + MAX);
+	}
+
+	@Override
+	void max(int slot, int max)
+	{
+		slots.putInt(slot * SLOT_SIZE + MAX, max);
+	}
+
+	@Override
+	int machineId(int slot)
+	{
+		return slots.getInt(slot * SLOT_SIZE + EXTRA);
+	}
+
+	@Override
+	void machineId(int slot, int machineId)
+	{
+		slots.putInt(slot * SLOT_SIZE + EXTRA, machineId);
+	}
+
+	@Override
+	String companyName(int slot)
+	{
+		int number = slots.getInt(slot * SLOT_SIZE + EXTRA);
+		return number < 0 ? null : readString(companyOffsets[number]);
+	}
+
+	@Override
+	void companyName(int slot, String companyName)
+	{
+		Integer number = companyName == null ? Integer.valueOf(-1) : companyNumbers.get(companyName);
+		if(number == null)
+		{
+			number = companyNumbers.size();
+			if(number == companyOffsets.length)
+			{
+				companyOffsets = Arrays.copyOf(companyOffsets, number * 2);
+			}
+			companyOffsets[number] = writeString(companyName, COMPANY);
+			companyNumbers.put(companyName, number);
+		}
+		slots.putInt(slot * SLOT_SIZE + EXTRA, number);
+	}
+
+	/**
+	 * Adds a string to the end of the string heap, compacting the heap first rather than growing it
+	 * when a quarter of it is no longer in use
+	 * @param owner slot whose name it is, or COMPANY
+	 * @return offset of the string, or -1 for null
+	 * @throws IllegalStateException if the live strings would not fit in one mapping
+	 */
+	private int writeString(String value, int owner)
+	{
+		if(value == null)
+		{
+			return -1;
+		}
+		byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+		// Capacity rounded up to whole ints, leaving a little room for a longer name later
+		int capacity = (encoded.length + 3) & ~3;
+		long needed = (long) stringsUsed + HEADER + capacity;
+		if(needed > strings.capacity() && stringsUnused > 0
+				&& (stringsUnused * 4 > stringsUsed || needed > Integer.MAX_VALUE))
+		{
+			compactStrings();
+			needed = (long) stringsUsed + HEADER + capacity;
+		}
+		if(needed > Integer.MAX_VALUE)
+		{
+			throw new IllegalStateException("Mapped part store's string heap is full: " + stringsUsed
+					+ " bytes of strings in use");
+		}
+		if(needed > strings.capacity())
+		{
+			strings = remap(stringChannel, strings.capacity(), needed);
+		}
+		int offset = stringsUsed;
+		strings.putInt(offset + CAPACITY, capacity);
+		putString(offset, owner, encoded);
+		stringsUsed = (int) needed;
+		return offset;
+	}
+
+	private void putString(int offset, int owner, byte[] encoded)
+	{
+		strings.putInt(offset + OWNER, owner);
+		strings.putInt(offset + LENGTH, encoded.length);
+		strings.duplicate().position(offset + HEADER).put(encoded);
+	}
+
+	private String readString(int offset)
+	{
+		if(offset < 0)
+		{
+			return null;
+		}
+		byte[] encoded = new byte[strings.getInt(offset + LENGTH)];
+		strings.duplicate().position(offset + HEADER).get(encoded);
+		return new String(encoded, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Marks a name's space on the string heap as no longer in use
+	 * @param offset of the name, or -1 for none
+	 */
+	private void discard(int offset)
+	{
+		if(offset >= 0 && strings.getInt(offset + OWNER) != UNUSED)
+		{
+			strings.putInt(offset + OWNER, UNUSED);
+			stringsUnused += HEADER + strings.getInt(offset + CAPACITY);
+		}
+	}
+
+	/**
+	 * Slides the strings in use to the start of the string heap, in the order they are in, and points
+	 * their slots and company numbers at their new offsets
+	 */
+	private void compactStrings()
+	{
+		int to = 0;
+		int from = 0;
+		while(from < stringsUsed)
+		{
+			int size = HEADER + strings.getInt(from + CAPACITY);
+			int owner = strings.getInt(from + OWNER);
+			if(owner != UNUSED)
+			{
+				if(to != from)
+				{
+					byte[] entry = new byte[size];
+					strings.duplicate().position(from).get(entry);
+					strings.duplicate().position(to).put(entry);
+				}
+				if(owner == COMPANY)
+				{
+					companyOffsets[companyNumber(to)] = to;
+				}
+				else
+				{
+					slots.putInt(owner * SLOT_SIZE + NAME, to);
+				}
+				to += size;
+			}
+			from += size;
+		}
+		stringsUsed = to;
+		stringsUnused = 0;
+	}
+
+	private int companyNumber(int offset)
+	{
+		return companyNumbers.get(readString(offset));
+	}
+
+	/**
+	 * Maps a larger region of a file, doubling until it fits
+	 */
+	private static MappedByteBuffer remap(FileChannel channel, long current, long needed)
+	{
+		long size = current;
+		while(size < needed)
+		{
+			size *= 2;
+		}
+		if(size > Integer.MAX_VALUE)
+		{
+			size = Integer.MAX_VALUE;
+			if(needed > size)
+			{
+				throw new IllegalStateException("Mapped part store is full");
+			}
+		}
+		try
+		{
+			return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+		catch(IOException ex)
+		{
+			throw new UncheckedIOException("Unable to grow mapped part store", ex);
+		}
+	}
+
+	private static FileChannel open(Path file) throws IOException
+	{
+		return FileChannel.open(file,
+				StandardOpenOption.CREATE,
+				StandardOpenOption.READ,
+				StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+	}
+}
@@ -0,0 +1,497 @@
+package classes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Trigram index answering "name or id contains" searches without scanning the whole list.
+ * Each item is indexed as its lower case name followed by its id, padded with a boundary character,
+ * so every substring of one or two characters also sits inside at least one trigram.
+ * <p>
+ * The list is only touched on the thread that owns it, but {@link #searchIds} may run on any thread.
+ * Nothing is indexed until {@link #prepare()} copies the ids and names out of the list; the index itself
+ * is built from that copy by the first search, on whichever thread runs it, while list changes made
+ * in the meantime wait in a backlog. The build takes no lock, so those changes never wait for it; the
+ * built index is swapped in and the backlog replayed under the write lock. Ids must not be negative.
+ * @param <T> type of item indexed
+ */
+class NGramIndex<T> {
+	private static final int GRAM = 3;
+	private static final char BOUNDARY = '\0';
+	// How often long scans look for an interrupt
+	private static final int CANCEL_CHECK_INTERVAL = 4096;
+
+	private enum State { NEW, PREPARED, BUILT }
+
+	// Replaced once the index is built; read and changed under the lock
+	private Map<Long, IntSortedSet> postings = new HashMap<>();
+	private IntMap<String> texts = new IntMap<>();
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	// Held by the one search building the index, so others wait for it rather than build it again
+	private final Object buildLock = new Object();
+	private final ToIntFunction<T> idOf;
+	private final Function<T, String> nameOf;
+	private final IntFunction<T> lookup;
+	private final ChangeList<T> source;
+	private volatile State state = State.NEW;
+	// Counts changes to the items indexed; only the list's thread writes it
+	private volatile long version;
+
+	// Copy of the list taken by prepare(), and the changes made to the list since, until the index is built
+	private int[] preparedIds;
+	private String[] preparedNames;
+	private final List<Object[]> backlog = new ArrayList<>();
+
+	/**
+	 * Indexes a list and keeps the index up to date as the list changes
+	 * @param source list of items to index
+	 * @param idOf gets the id of an item
+	 * @param nameOf gets the name of an item
+	 * @param lookup finds an item by id when returning results
+	 */
+	NGramIndex(ChangeList<T> source, ToIntFunction<T> idOf, Function<T, String> nameOf, IntFunction<T> lookup)
+	{
+		this.idOf = idOf;
+		this.nameOf = nameOf;
+		this.lookup = lookup;
+		this.source = source;
+		source.addListener(new ChangeList.Listener<T>() {
+			@Override
+			public void added(int from, int to)
+			{
+				for(int i = from; i < to && state != State.NEW; i++)
+				{
+					T item = source.get(i);
+					apply(idOf.applyAsInt(item), nameOf.apply(item));
+				}
+			}
+
+			@Override
+			public void removed(int index, T removed)
+			{
+				if(state != State.NEW)
+				{
+					apply(idOf.applyAsInt(removed), null);
+				}
+			}
+
+			@Override
+			public void replaced(int index, T replaced)
+			{
+				removed(index, replaced);
+				added(index, index + 1);
+			}
+		});
+	}
+
+	/**
+	 * Copies what needs indexing out of the list, on the list's thread. Until then the index ignores the list.
+	 */
+	void prepare()
+	{
+		if(state != State.NEW)
+		{
+			return;
+		}
+		int size = source.size();
+		preparedIds = new int[size];
+		preparedNames = new String[size];
+		for(int i = 0; i < size; i++)
+		{
+			T item = source.get(i);
+			preparedIds[i] = idOf.applyAsInt(item);
+			preparedNames[i] = nameOf.apply(item);
+		}
+		state = State.PREPARED;
+	}
+
+	/**
+	 * Re-indexes an item after its name changed, on the list's thread
+	 * @param item that changed
+	 */
+	void update(T item)
+	{
+		if(state != State.NEW)
+		{
+			int id = idOf.applyAsInt(item);
+			apply(id, null);
+			apply(id, nameOf.apply(item));
+		}
+	}
+
+	/**
+	 * Finds every item whose name or id contains the query, ignoring case, on the list's thread
+	 * @param query text to find
+	 * @return matching items ordered by id
+	 */
+	List<T> search(String query)
+	{
+		prepare();
+		int[] ids = searchIds(query);
+		List<T> matches = new ArrayList<>(ids.length);
+		for(int id : ids)
+		{
+			T item = lookup.apply(id);
+			if(item != null)
+			{
+				matches.add(item);
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Finds the ids of every item whose name or id contains the query, ignoring case. Safe on any thread
+	 * once prepare() has run. Interrupting the thread abandons the search.
+	 * @param query text to find
+	 * @return matching ids in ascending order
+	 * @throws CancellationException if the thread was interrupted
+	 */
+	int[] searchIds(String query)
+	{
+		String text = normalize(query);
+		if(text.isEmpty())
+		{
+			return new int[0];
+		}
+		if(state != State.BUILT)
+		{
+			build();
+		}
+		lock.readLock().lock();
+		try
+		{
+			return text.length() < GRAM ? searchShort(text) : searchLong(text);
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Narrows an earlier result down to the items whose name or id contains the query, ignoring case.
+	 * Falls back to a fresh search when the query's trigrams alone leave fewer candidates. Safe on any thread once prepare() has run. Interrupting the thread abandons the search.
+	 * @param candidates ids in ascending order, such as the result of a query the new one contains
+	 * @param query text to find
+	 * @return matching candidates in ascending order, leaving out any no longer indexed
+	 * @throws CancellationException if the thread was interrupted
+	 */
+	int[] refineIds(int[] candidates, String query)
+	{
+		String text = normalize(query);
+		if(text.isEmpty())
+		{
+			return new int[0];
+		}
+		if(state != State.BUILT)
+		{
+			build();
+		}
+		lock.readLock().lock();
+		try
+		{
+			if(text.length() >= GRAM && smallestPosting(text) < candidates.length)
+			{
+				// The query's own rarest trigram narrows things down further than the earlier result
+				return searchLong(text);
+			}
+			int[] matches = new int[candidates.length];
+			int count = 0;
+			for(int i = 0; i < candidates.length; i++)
+			{
+				if((i + 1) % CANCEL_CHECK_INTERVAL == 0)
+				{
+					checkCancelled();
+				}
+				String indexed = texts.get(candidates[i]);
+				if(indexed != null && indexed.contains(text))
+				{
+					matches[count++] = candidates[i];
+				}
+			}
+			return Arrays.copyOf(matches, count);
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return a count that changes whenever an item is added, removed or renamed, so results can be reused
+	 * for as long as it stays the same
+	 */
+	long version()
+	{
+		return version;
+	}
+
+	/**
+	 * Indexes a change, or holds it back while the index is still to be built
+	 * @param name new name of the item, or null if it was removed
+	 */
+	private void apply(int id, String name)
+	{
+		// The version moves only once the change is visible to searches, so a search that sees the same
+		// version before and after it ran saw every change counted
+		synchronized(backlog)
+		{
+			if(state == State.PREPARED)
+			{
+				backlog.add(new Object[]{id, name});
+				version++;
+				return;
+			}
+		}
+		lock.writeLock().lock();
+		try
+		{
+			if(name == null)
+			{
+				remove(postings, texts, id);
+			}
+			else
+			{
+				add(postings, texts, id, name);
+			}
+			version++;
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void build()
+	{
+		if(state == State.NEW)
+		{
+			throw new IllegalStateException("Search index has not been prepared");
+		}
+		synchronized(buildLock)
+		{
+			if(state == State.BUILT)
+			{
+				return;
+			}
+			// Built off to the side, so searches and changes are only held up by the swap below
+			Map<Long, IntSortedSet> builtPostings = new HashMap<>();
+			IntMap<String> builtTexts = new IntMap<>();
+			for(int i = 0; i < preparedIds.length; i++)
+			{
+				add(builtPostings, builtTexts, preparedIds[i], preparedNames[i]);
+			}
+			preparedIds = null;
+			preparedNames = null;
+			// Changes made during the build are indexed here too, leaving the swap only those made since
+			List<Object[]> changes;
+			while(!(changes = takeBacklog()).isEmpty())
+			{
+				replay(changes, builtPostings, builtTexts);
+			}
+			lock.writeLock().lock();
+			try
+			{
+				postings = builtPostings;
+				texts = builtTexts;
+				synchronized(backlog)
+				{
+					replay(backlog, postings, texts);
+					backlog.clear();
+					state = State.BUILT;
+				}
+			}
+			finally
+			{
+				lock.writeLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * @return the changes held back so far, leaving the backlog empty
+	 */
+	private List<Object[]> takeBacklog()
+	{
+		synchronized(backlog)
+		{
+			List<Object[]> changes = new ArrayList<>(backlog);
+			backlog.clear();
+			return changes;
+		}
+	}
+
+	private static void replay(List<Object[]> changes, Map<Long, IntSortedSet> postings, IntMap<String> texts)
+	{
+		for(Object[] change : changes)
+		{
+			int id = (Integer) change[0];
+			if(change[1] == null)
+			{
+				remove(postings, texts, id);
+			}
+			else
+			{
+				add(postings, texts, id, (String) change[1]);
+			}
+		}
+	}
+
+	/**
+	 * Short queries fit inside a single trigram, so the result is the union of every trigram containing them.
+	 */
+	private int[] searchShort(String text)
+	{
+		BitSet ids = new BitSet();
+		int checked = 0;
+		for(Map.Entry<Long, IntSortedSet> entry : postings.entrySet())
+		{
+			if(unpack(entry.getKey()).contains(text))
+			{
+				IntSortedSet posting = entry.getValue();
+				for(int i = 0; i < posting.size(); i++)
+				{
+					ids.set(posting.get(i));
+				}
+			}
+			if(++checked % CANCEL_CHECK_INTERVAL == 0)
+			{
+				checkCancelled();
+			}
+		}
+		return ids.stream().toArray();
+	}
+
+	/**
+	 * Longer queries intersect the postings of their trigrams, smallest first, then check the candidates.
+	 */
+	private int[] searchLong(String text)
+	{
+		IntSortedSet[] lists = new IntSortedSet[text.length() - GRAM + 1];
+		for(int i = 0; i < lists.length; i++)
+		{
+			lists[i] = postings.get(pack(text, i));
+			if(lists[i] == null)
+			{
+				return new int[0];
+			}
+		}
+		Arrays.sort(lists, Comparator.comparingInt(IntSortedSet::size));
+
+		IntSortedSet smallest = lists[0];
+		int[] cursors = new int[lists.length];
+		int[] matches = new int[Math.min(smallest.size(), 16)];
+		int count = 0;
+		for(int i = 0; i < smallest.size(); i++)
+		{
+			if((i + 1) % CANCEL_CHECK_INTERVAL == 0)
+			{
+				checkCancelled();
+			}
+			int id = smallest.get(i);
+			boolean inAll = true;
+			for(int j = 1; j < lists.length && inAll; j++)
+			{
+				// Candidates come in ascending order, so each list is only ever walked forwards.
+				cursors[j] = lists[j].seek(id, cursors[j]);
+				inAll = cursors[j] < lists[j].size() && lists[j].get(cursors[j]) == id;
+			}
+			// Every trigram being present does not mean they are adjacent, so confirm the match.
+			if(inAll && texts.get(id).contains(text))
+			{
+				if(count == matches.length)
+				{
+					matches = Arrays.copyOf(matches, count * 2);
+				}
+				matches[count++] = id;
+			}
+		}
+		return Arrays.copyOf(matches, count);
+	}
+
+	/**
+	 * @return number of items holding the query's rarest trigram
+	 */
+	private int smallestPosting(String text)
+	{
+		int smallest = Integer.MAX_VALUE;
+		for(int i = 0; i + GRAM <= text.length(); i++)
+		{
+			IntSortedSet posting = postings.get(pack(text, i));
+			smallest = Math.min(smallest, posting == null ? 0 : posting.size());
+		}
+		return smallest;
+	}
+
+	private static void add(Map<Long, IntSortedSet> postings, IntMap<String> texts, int id, String name)
+	{
+		String text = BOUNDARY + normalize(name) + BOUNDARY + id + BOUNDARY;
+		String oldText = texts.put(id, text);
+		if(oldText != null)
+		{
+			removeGrams(postings, oldText, id);
+		}
+		for(int i = 0; i + GRAM <= text.length(); i++)
+		{
+			postings.computeIfAbsent(pack(text, i), key -> new IntSortedSet()).add(id);
+		}
+	}
+
+	private static void remove(Map<Long, IntSortedSet> postings, IntMap<String> texts, int id)
+	{
+		String text = texts.remove(id);
+		if(text != null)
+		{
+			removeGrams(postings, text, id);
+		}
+	}
+
+	private static void removeGrams(Map<Long, IntSortedSet> postings, String text, int id)
+	{
+		for(int i = 0; i + GRAM <= text.length(); i++)
+		{
+			Long key = pack(text, i);
+			IntSortedSet posting = postings.get(key);
+			if(posting != null && posting.remove(id) && posting.isEmpty())
+			{
+				postings.remove(key);
+			}
+		}
+	}
+
+	private static void checkCancelled()
+	{
+		if(Thread.currentThread().isInterrupted())
+		{
+			throw new CancellationException("Search cancelled");
+		}
+	}
+
+	private static long pack(String text, int start)
+	{
+		return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+	}
+
+	private static String unpack(long gram)
+	{
+		return new String(new char[]{(char) (gram >>> 32), (char) (gram >>> 16), (char) gram});
+	}
+
+	private static String normalize(String text)
+	{
+		return text == null ? "" : text.toLowerCase(Locale.ROOT);
+	}
+}
@@ -0,0 +1,81 @@
+package classes;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Maps names to the ids that carry them, both exactly and ignoring case.
+ */
+class NameIndex {
+	private final Map<String, IntSortedSet> exact = new HashMap<>();
+	private final Map<String, IntSortedSet> folded = new HashMap<>();
+
+	/**
+	 * @param name to index
+	 * @param id carrying the name
+	 */
+	void add(String name, int id)
+	{
+		if(name == null)
+		{
+			return;
+		}
+		exact.computeIfAbsent(name, key -> new IntSortedSet()).add(id);
+		folded.computeIfAbsent(fold(name), key -> new IntSortedSet()).add(id);
+	}
+
+	/**
+	 * @param name to remove the id from
+	 * @param id no longer carrying the name
+	 */
+	void remove(String name, int id)
+	{
+		if(name == null)
+		{
+			return;
+		}
+		remove(exact, name, id);
+		remove(folded, fold(name), id);
+	}
+
+	/**
+	 * Moves an id from its old name to its new one.
+	 * @param oldName previous name
+	 * @param newName current name
+	 * @param id that was renamed
+	 */
+	void rename(String oldName, String newName, int id)
+	{
+		remove(oldName, id);
+		add(newName, id);
+	}
+
+	/**
+	 * @param name to find
+	 * @param ignoreCase true to match regardless of case
+	 * @return ids with the name, or null if there are none
+	 */
+	IntSortedSet find(String name, boolean ignoreCase)
+	{
+		if(name == null)
+		{
+			return null;
+		}
+		return ignoreCase ? folded.get(fold(name)) : exact.get(name);
+	}
+
+	private static void remove(Map<String, IntSortedSet> map, String key, int id)
+	{
+		IntSortedSet ids = map.get(key);
+		if(ids != null && ids.remove(id) && ids.isEmpty())
+		{
+			map.remove(key);
+		}
+	}
+
+	private static String fold(String name)
+	{
+		return name.toLowerCase(Locale.ROOT);
+	}
+}
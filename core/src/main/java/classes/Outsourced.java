@@ -7,7 +7,7 @@ public class Outsourced extends Part {
 	public Outsourced(int id, String name, double price, int stock, int min, int max, String companyName) 
 	{
 		super(id, name, price, stock, min, max);
-		this.setCompanyName(companyName);
+		this.companyName = companyName;
 	}
 
 	/**
@@ -23,7 +23,9 @@ public class Outsourced extends Part {
 	 * @param companyName string to set the company name as
 	 */
 	public void setCompanyName(String companyName) {
+		changing();
 		this.companyName = companyName;
+		changed();
 	}
 
 }
@@ -15,6 +15,9 @@ public abstract class Part {
 	private int stock;
 	private int min;
 	private int max;
+	// Owning inventory, told about every change so it can keep its indexes and log current
+	Inventory inventory;
+
 	public Part(int id, String name, double price, int stock, int min, int max) 
 	{
 		this.id = id;
@@ -36,6 +39,10 @@ public abstract class Part {
 	 * @param id the id to set
 	 */
 	public void setId(int id) {
+		if(inventory != null)
+		{
+			inventory.partIdChanging(this, id);
+		}
 		this.id = id;
 	}
 
@@ -50,7 +57,14 @@ public abstract class Part {
 	 * @param name the name to set
 	 */
 	public void setName(String name) {
+		changing();
+		String oldName = this.name;
 		this.name = name;
+		if(inventory != null)
+		{
+			inventory.partRenamed(this, oldName);
+		}
+		changed();
 	}
 
 	/**
@@ -64,7 +78,9 @@ public abstract class Part {
 	 * @param price the price to set
 	 */
 	public void setPrice(double price) {
+		changing();
 		this.price = price;
+		changed();
 	}
 
 	/**
@@ -78,7 +94,9 @@ public abstract class Part {
 	 * @param stock the stock to set
 	 */
 	public void setStock(int stock) {
+		changing();
 		this.stock = stock;
+		changed();
 	}
 
 	/**
@@ -92,7 +110,9 @@ public abstract class Part {
 	 * @param min the min to set
 	 */
 	public void setMin(int min) {
+		changing();
 		this.min = min;
+		changed();
 	}
 
 	/**
@@ -106,6 +126,30 @@ public abstract class Part {
 	 * @param max the max to set
 	 */
 	public void setMax(int max) {
+		changing();
 		this.max = max;
+		changed();
+	}
+
+	/**
+	 * Tells the owning inventory this part is about to change, so a batch that fails can put it back
+	 */
+	void changing()
+	{
+		if(inventory != null)
+		{
+			inventory.partChanging(this);
+		}
+	}
+
+	/**
+	 * Tells the owning inventory this part changed
+	 */
+	void changed()
+	{
+		if(inventory != null)
+		{
+			inventory.partChanged(this);
+		}
 	}
 }
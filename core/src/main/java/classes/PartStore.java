@@ -0,0 +1,77 @@
+package classes;
+
+import java.util.List;
+
+/**
+ * Storage behind the inventory's part list.
+ * The inventory keeps its secondary indexes itself; a store only holds the parts in list order
+ * and finds them by id. While nothing changes it, lookups and reads of the list may run on several
+ * threads at once, as they do for the readers of a {@link SharedInventory}.
+ */
+public abstract class PartStore {
+	// Inventory using this store, given to any part objects the store creates
+	Inventory inventory;
+
+	/**
+	 * @return the parts in list order, as shown in the table views
+	 */
+	abstract ChangeList<Part> list();
+
+	/**
+	 * @param id of the part
+	 * @return the part with the id, or null
+	 */
+	abstract Part lookup(int id);
+
+	/**
+	 * Adds a part to the end of the list
+	 * @param part to add
+	 * @return the part as held by the store
+	 */
+	abstract Part add(Part part);
+
+	/**
+	 * Inserts a part at a position
+	 * @param index position in the list
+	 * @param part to insert
+	 * @return the part as held by the store
+	 */
+	abstract Part insert(int index, Part part);
+
+	/**
+	 * Adds parts to the end of the list as a single change
+	 * @param parts to add
+	 * @return the parts as held by the store
+	 */
+	abstract List<Part> addAll(List<Part> parts);
+
+	/**
+	 * Replaces the part at a position
+	 * @param index position in the list
+	 * @param part replacement
+	 * @return the replacement as held by the store
+	 */
+	abstract Part set(int index, Part part);
+
+	/**
+	 * Removes the part at a position
+	 * @param index position in the list
+	 */
+	abstract void remove(int index);
+
+	/**
+	 * @param part held by this store
+	 * @return a part with the same fields that stays usable once the part leaves the store
+	 */
+	abstract Part copyOf(Part part);
+
+	/**
+	 * Starts a batch of list changes, which views may show as one change; calls may nest
+	 */
+	abstract void beginBatch();
+
+	/**
+	 * Ends the batch started by the matching beginBatch()
+	 */
+	abstract void endBatch();
+}
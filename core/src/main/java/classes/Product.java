@@ -1,16 +1,17 @@
 package classes;
 
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import java.util.List;
 
 public class Product {
-	private ObservableList<Part> associatedParts;
+	private final AssociatedParts associatedParts = new AssociatedParts();
 	private int id;
 	private String name;
 	private double price;
 	private int stock;
 	private int min;
 	private int max;
+	// Owning inventory, told about every change so it can keep its indexes and log current
+	Inventory inventory;
 
 	public Product(int id, String name, double price, int stock, int min, int max) 
 	{
@@ -20,7 +21,6 @@ public class Product {
 		this.stock = stock;
 		this.max = max;
 		this.min = min;
-		this.associatedParts = FXCollections.observableArrayList();
 	}
 	
 	/**
@@ -52,7 +52,14 @@ public class Product {
 	 * @param name value to set as name
 	 */
 	public void setName(String name) {
+		changing();
+		String oldName = this.name;
 		this.name = name;
+		if(inventory != null)
+		{
+			inventory.productRenamed(this, oldName);
+		}
+		changed();
 	}
 
 	/**
@@ -68,7 +75,9 @@ public class Product {
 	 * @param price value to set as price
 	 */
 	public void setPrice(double price) {
+		changing();
 		this.price = price;
+		changed();
 	}
 
 	/**
@@ -84,7 +93,9 @@ public class Product {
 	 * @param stock value to set as stock
 	 */
 	public void setStock(int stock) {
+		changing();
 		this.stock = stock;
+		changed();
 	}
 
 	/**
@@ -100,7 +111,9 @@ public class Product {
 	 * @param min value to set as min
 	 */
 	public void setMin(int min) {
+		changing();
 		this.min = min;
+		changed();
 	}
 
 	/**
@@ -116,7 +129,9 @@ public class Product {
 	 * @param max value to set as max
 	 */
 	public void setMax(int max) {
+		changing();
 		this.max = max;
+		changed();
 	}
 	
 	/**
@@ -126,6 +141,10 @@ public class Product {
 	public void addAssociatedPart(Part part)
 	{
 		associatedParts.add(part);
+		if(inventory != null)
+		{
+			inventory.partAssociated(this, part);
+		}
 	}
 	
 	/**
@@ -135,15 +154,80 @@ public class Product {
 	 */
 	public boolean deleteAssociatedPart(Part part) 
 	{
-		return associatedParts.remove(part);
+		if(!associatedParts.remove(part))
+		{
+			return false;
+		}
+		if(inventory != null)
+		{
+			inventory.partDissociated(this, part);
+		}
+		return true;
+	}
+
+	/**
+	 * Tells the owning inventory this product is about to change, so a batch that fails can put it back
+	 */
+	void changing()
+	{
+		if(inventory != null)
+		{
+			inventory.productChanging(this);
+		}
+	}
+
+	/**
+	 * Tells the owning inventory this product changed
+	 */
+	void changed()
+	{
+		if(inventory != null)
+		{
+			inventory.productChanged(this);
+		}
+	}
+
+	/**
+	 * Swaps an associated part for the part that replaced it in the inventory, wherever it is associated
+	 * @param oldPart part being replaced
+	 * @param newPart part replacing it
+	 */
+	void replaceAssociatedPart(Part oldPart, Part newPart)
+	{
+		for(int i = 0; i < associatedParts.size(); i++)
+		{
+			if(associatedParts.get(i).equals(oldPart))
+			{
+				associatedParts.set(i, newPart);
+			}
+		}
 	}
 	
 	/**
 	 * 
 	 * @return associatedParts
 	 */
-	public ObservableList<Part> getAllAssociatedParts() 
+	public List<Part> getAllAssociatedParts() 
+	{
+		return associatedParts;
+	}
+
+	/**
+	 * 
+	 * @return associatedParts, with their ids for fast membership tests and set differences
+	 */
+	public AssociatedParts getAssociatedParts()
 	{
 		return associatedParts;
 	}
+
+	/**
+	 * 
+	 * @param partId id of a part
+	 * @return true if a part with that id is associated to the product
+	 */
+	public boolean isAssociated(int partId)
+	{
+		return associatedParts.containsId(partId);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,297 @@
+package classes;
+
+import java.util.Comparator;
+
+/**
+ * List kept in the order of a comparator, which tells its listeners about each change like any other
+ * change list. Held in a balanced tree that knows the size of each subtree, so adding, removing and
+ * finding an element, and getting the element at an index, each take O(log n); a view of the list
+ * following its changes never rescans it. Elements are placed by the comparator, so the list refuses to
+ * have them placed by index. The comparator must not find two different elements equal.
+ * @param <E> type of element
+ */
+class RankedList<E> extends ChangeList<E> {
+	private final Comparator<? super E> order;
+	private Node<E> root;
+	// State of the xorshift generator giving each node its random heap priority
+	private int seed = 0x2545F491;
+
+	/**
+	 * @param order of the elements
+	 */
+	RankedList(Comparator<? super E> order)
+	{
+		this.order = order;
+	}
+
+	@Override
+	public E get(int index)
+	{
+		if(index < 0 || index >= size())
+		{
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+		}
+		Node<E> node = root;
+		while(true)
+		{
+			int left = sizeOf(node.left);
+			if(index < left)
+			{
+				node = node.left;
+			}
+			else if(index == left)
+			{
+				return node.value;
+			}
+			else
+			{
+				index -= left + 1;
+				node = node.right;
+			}
+		}
+	}
+
+	@Override
+	public int size()
+	{
+		return sizeOf(root);
+	}
+
+	/**
+	 * Adds an element where the comparator puts it
+	 * @param element to add
+	 * @return index it was added at
+	 */
+	int insert(E element)
+	{
+		seed ^= seed << 13;
+		seed ^= seed >>> 17;
+		seed ^= seed << 5;
+		root = insert(root, new Node<>(element, seed));
+		int index = rank(element);
+		modCount++;
+		fireAdded(index, index + 1);
+		return index;
+	}
+
+	/**
+	 * Removes an element, found by the comparator
+	 * @param element to remove
+	 * @return index it was removed from, or -1 if it was not in the list
+	 */
+	int delete(E element)
+	{
+		int index = rank(element);
+		if(index < 0)
+		{
+			return -1;
+		}
+		E removed = get(index);
+		root = delete(root, element);
+		modCount++;
+		fireRemoved(index, removed);
+		return index;
+	}
+
+	/**
+	 * Puts an element in place of another, moving it if the comparator puts it elsewhere
+	 * @param old element to replace, which must be in the list
+	 * @param element to put in its place
+	 */
+	void replace(E old, E element)
+	{
+		if(order.compare(old, element) != 0)
+		{
+			delete(old);
+			insert(element);
+			return;
+		}
+		Node<E> node = root;
+		int index = 0;
+		while(true)
+		{
+			int c = order.compare(element, node.value);
+			if(c == 0)
+			{
+				break;
+			}
+			if(c < 0)
+			{
+				node = node.left;
+			}
+			else
+			{
+				index += sizeOf(node.left) + 1;
+				node = node.right;
+			}
+		}
+		node.value = element;
+		fireReplaced(index + sizeOf(node.left), old);
+	}
+
+	/**
+	 * @param element to find by the comparator
+	 * @return its index, or -1 if it is not in the list
+	 */
+	int rank(E element)
+	{
+		Node<E> node = root;
+		int index = 0;
+		while(node != null)
+		{
+			int c = order.compare(element, node.value);
+			if(c == 0)
+			{
+				return index + sizeOf(node.left);
+			}
+			if(c < 0)
+			{
+				node = node.left;
+			}
+			else
+			{
+				index += sizeOf(node.left) + 1;
+				node = node.right;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	void doAdd(int index, E element)
+	{
+		throw new UnsupportedOperationException("Elements are placed in order, not by index");
+	}
+
+	@Override
+	E doSet(int index, E element)
+	{
+		throw new UnsupportedOperationException("Elements are placed in order, not by index");
+	}
+
+	@Override
+	E doRemove(int index)
+	{
+		throw new UnsupportedOperationException("Elements are placed in order, not by index");
+	}
+
+	private Node<E> insert(Node<E> tree, Node<E> node)
+	{
+		if(tree == null)
+		{
+			return node;
+		}
+		if(node.priority > tree.priority)
+		{
+			// The new node goes above this subtree, which splits around it
+			split(tree, node);
+			node.update();
+			return node;
+		}
+		if(order.compare(node.value, tree.value) < 0)
+		{
+			tree.left = insert(tree.left, node);
+		}
+		else
+		{
+			tree.right = insert(tree.right, node);
+		}
+		tree.update();
+		return tree;
+	}
+
+	/**
+	 * Splits a subtree into the elements before the node's, which become its left subtree, and the rest,
+	 * which become its right
+	 */
+	private void split(Node<E> tree, Node<E> node)
+	{
+		if(tree == null)
+		{
+			node.left = null;
+			node.right = null;
+			return;
+		}
+		if(order.compare(tree.value, node.value) < 0)
+		{
+			split(tree.right, node);
+			tree.right = node.left;
+			tree.update();
+			node.left = tree;
+		}
+		else
+		{
+			split(tree.left, node);
+			tree.left = node.right;
+			tree.update();
+			node.right = tree;
+		}
+	}
+
+	private Node<E> delete(Node<E> tree, E element)
+	{
+		int c = order.compare(element, tree.value);
+		if(c == 0)
+		{
+			return merge(tree.left, tree.right);
+		}
+		if(c < 0)
+		{
+			tree.left = delete(tree.left, element);
+		}
+		else
+		{
+			tree.right = delete(tree.right, element);
+		}
+		tree.update();
+		return tree;
+	}
+
+	/**
+	 * Joins two subtrees, every element of the first being before every element of the second
+	 */
+	private static <E> Node<E> merge(Node<E> first, Node<E> second)
+	{
+		if(first == null)
+		{
+			return second;
+		}
+		if(second == null)
+		{
+			return first;
+		}
+		if(first.priority > second.priority)
+		{
+			first.right = merge(first.right, second);
+			first.update();
+			return first;
+		}
+		second.left = merge(first, second.left);
+		second.update();
+		return second;
+	}
+
+	private static int sizeOf(Node<?> node)
+	{
+		return node == null ? 0 : node.size;
+	}
+
+	private static final class Node<E> {
+		E value;
+		final int priority;
+		int size = 1;
+		Node<E> left;
+		Node<E> right;
+
+		Node(E value, int priority)
+		{
+			this.value = value;
+			this.priority = priority;
+		}
+
+		void update()
+		{
+			size = 1 + sizeOf(left) + sizeOf(right);
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package classes;
+
+import java.io.Closeable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs search box queries on background threads, so typing never waits for a search.
+ * A query only starts once typing pauses for the debounce delay. Each new query cancels the one before
+ * it, whether still waiting or already running, and only the latest query's result is handed to the
+ * publisher, normally Platform::runLater.
+ */
+public class SearchExecutor implements Closeable {
+	private static final int THREADS = 2;
+
+	private final ScheduledThreadPoolExecutor workers;
+	private final Executor publisher;
+	private final long debounceMillis;
+
+	/**
+	 * @param publisher runs results on the thread that shows them, such as Platform::runLater
+	 * @param debounceMillis how long typing must pause before a query runs
+	 */
+	public SearchExecutor(Executor publisher, long debounceMillis)
+	{
+		if(debounceMillis < 0)
+		{
+			throw new IllegalArgumentException("debounceMillis must not be negative");
+		}
+		AtomicInteger threadCount = new AtomicInteger();
+		workers = new ScheduledThreadPoolExecutor(THREADS, task -> {
+			Thread thread = new Thread(task, "inventory-search-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		workers.setRemoveOnCancelPolicy(true);
+		this.publisher = publisher;
+		this.debounceMillis = debounceMillis;
+	}
+
+	/**
+	 * Creates a search box's queue of queries
+	 * @param query runs a query on a worker thread; it should give up with a CancellationException when interrupted
+	 * @param onResult shows a result, on the publisher
+	 * @param <R> type of result
+	 * @return the search to submit the box's text to
+	 */
+	public <R> Search<R> newSearch(Function<String, R> query, Consumer<R> onResult)
+	{
+		return new Search<>(query, onResult);
+	}
+
+	/**
+	 * Stops the worker threads, abandoning any query not yet shown
+	 */
+	@Override
+	public void close()
+	{
+		workers.shutdownNow();
+	}
+
+	/**
+	 * Queries from one search box, where each supersedes the last. Submit and cancel on the publisher thread.
+	 * @param <R> type of result
+	 */
+	public final class Search<R> {
+		private final Function<String, R> query;
+		private final Consumer<R> onResult;
+		private final SearchMetrics metrics = new SearchMetrics();
+		// Bumped by every submit and cancel, so a query can tell whether it is still wanted
+		private final AtomicLong latest = new AtomicLong();
+		private Future<?> pending;
+
+		private Search(Function<String, R> query, Consumer<R> onResult)
+		{
+			this.query = query;
+			this.onResult = onResult;
+		}
+
+		/**
+		 * Runs a query once the debounce delay passes without another submit
+		 * @param text to search for
+		 */
+		public void submit(String text)
+		{
+			long requested = System.nanoTime();
+			long generation = supersede();
+			pending = workers.schedule(() -> run(text, generation, requested), debounceMillis, TimeUnit.MILLISECONDS);
+		}
+
+		/**
+		 * Drops the pending query, if any, without starting another
+		 */
+		public void cancel()
+		{
+			supersede();
+			pending = null;
+		}
+
+		/**
+		 * @return latency of this search box's queries
+		 */
+		public SearchMetrics getMetrics()
+		{
+			return metrics;
+		}
+
+		private long supersede()
+		{
+			if(pending != null && pending.cancel(true))
+			{
+				metrics.recordCancelled();
+			}
+			return latest.incrementAndGet();
+		}
+
+		private void run(String text, long generation, long requested)
+		{
+			long started = System.nanoTime();
+			R result;
+			try
+			{
+				result = query.apply(text);
+			}
+			catch(CancellationException ex)
+			{
+				return;
+			}
+			long finished = System.nanoTime();
+			if(latest.get() != generation)
+			{
+				return;
+			}
+			publisher.execute(() -> {
+				// A newer query may have been submitted while this result was on its way
+				if(latest.get() == generation)
+				{
+					onResult.accept(result);
+					metrics.record(started - requested, finished - started, System.nanoTime() - requested);
+				}
+				else
+				{
+					metrics.recordCancelled();
+				}
+			});
+		}
+	}
+}
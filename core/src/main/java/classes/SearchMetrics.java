@@ -0,0 +1,145 @@
+package classes;
+
+import java.util.Arrays;
+
+/**
+ * Latency of the searches run by a {@link SearchExecutor}, kept for every query whose result was shown.
+ * Wait time runs from the keystroke to the query starting, so it includes the debounce delay; query time
+ * is the search itself; total time runs from the keystroke to the result being shown. Safe on any thread.
+ */
+public class SearchMetrics {
+	// Number of recent total times percentiles are taken over
+	private static final int WINDOW = 1024;
+	private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+	private final long[] recent = new long[WINDOW];
+	private long completed;
+	private long cancelled;
+	private long queryNanos;
+	private long totalNanos;
+	private long maxTotalNanos;
+	private long lastWaitNanos;
+	private long lastQueryNanos;
+	private long lastTotalNanos;
+
+	/**
+	 * Records a query whose result was shown
+	 * @param waitNanos from the keystroke to the query starting
+	 * @param queryNanos running the query
+	 * @param totalNanos from the keystroke to the result being shown
+	 */
+	synchronized void record(long waitNanos, long queryNanos, long totalNanos)
+	{
+		recent[(int) (completed % WINDOW)] = totalNanos;
+		completed++;
+		this.queryNanos += queryNanos;
+		this.totalNanos += totalNanos;
+		maxTotalNanos = Math.max(maxTotalNanos, totalNanos);
+		lastWaitNanos = waitNanos;
+		lastQueryNanos = queryNanos;
+		lastTotalNanos = totalNanos;
+	}
+
+	/**
+	 * Records a query dropped because a newer one replaced it
+	 */
+	synchronized void recordCancelled()
+	{
+		cancelled++;
+	}
+
+	/**
+	 * @return number of queries whose result was shown
+	 */
+	public synchronized long getCompleted()
+	{
+		return completed;
+	}
+
+	/**
+	 * @return number of queries dropped, before or while running, because a newer one replaced them
+	 */
+	public synchronized long getCancelled()
+	{
+		return cancelled;
+	}
+
+	/**
+	 * @return wait time of the latest query shown, in milliseconds
+	 */
+	public synchronized double getLastWaitMillis()
+	{
+		return lastWaitNanos / NANOS_PER_MILLI;
+	}
+
+	/**
+	 * @return query time of the latest query shown, in milliseconds
+	 */
+	public synchronized double getLastQueryMillis()
+	{
+		return lastQueryNanos / NANOS_PER_MILLI;
+	}
+
+	/**
+	 * @return total time of the latest query shown, in milliseconds
+	 */
+	public synchronized double getLastTotalMillis()
+	{
+		return lastTotalNanos / NANOS_PER_MILLI;
+	}
+
+	/**
+	 * @return mean query time, in milliseconds
+	 */
+	public synchronized double getMeanQueryMillis()
+	{
+		return completed == 0 ? 0 : queryNanos / NANOS_PER_MILLI / completed;
+	}
+
+	/**
+	 * @return mean total time, in milliseconds
+	 */
+	public synchronized double getMeanTotalMillis()
+	{
+		return completed == 0 ? 0 : totalNanos / NANOS_PER_MILLI / completed;
+	}
+
+	/**
+	 * @return longest total time, in milliseconds
+	 */
+	public synchronized double getMaxTotalMillis()
+	{
+		return maxTotalNanos / NANOS_PER_MILLI;
+	}
+
+	/**
+	 * @param percentile between 0 and 100
+	 * @return total time the given share of the latest 1024 queries came in under, in milliseconds
+	 */
+	public synchronized double getTotalPercentileMillis(double percentile)
+	{
+		if(percentile < 0 || percentile > 100)
+		{
+			throw new IllegalArgumentException("percentile must be between 0 and 100");
+		}
+		int size = (int) Math.min(completed, WINDOW);
+		if(size == 0)
+		{
+			return 0;
+		}
+		long[] sorted = Arrays.copyOf(recent, size);
+		Arrays.sort(sorted);
+		int rank = (int) Math.ceil(percentile / 100 * size);
+		return sorted[Math.max(rank - 1, 0)] / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		return String.format("Last search: %.1f ms (query %.1f ms)%n"
+						+ "Mean: %.1f ms, 95th percentile: %.1f ms, max: %.1f ms%n"
+						+ "%d shown, %d cancelled",
+				getLastTotalMillis(), getLastQueryMillis(), getMeanTotalMillis(), getTotalPercentileMillis(95),
+				getMaxTotalMillis(), completed, cancelled);
+	}
+}
@@ -0,0 +1,472 @@
+package classes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Inventory shared between threads, such as background importers and report jobs running alongside the
+ * JavaFX thread. The app itself does not share its inventory yet; it keeps it on the JavaFX thread.
+ * Writers take turns changing the inventory, each write running as one batch. Readers never see a write
+ * half done: they take a snapshot, an immutable copy of the inventory as of the last write, which stays
+ * the same however the inventory changes afterwards. Taking a snapshot when nothing was written since the
+ * last one costs an optimistic read and no copying; after a write, only the parts of the lists it touched
+ * are copied again. Once shared, the inventory must only be used through this. Works over each of the
+ * part stores, which all allow reads on several threads at once.
+ * <p>
+ * Stock can also be reserved and adjusted without waiting for writers, for order intake running on many
+ * threads: each part's and product's stock is then kept in a cell changed with compare-and-set, and written
+ * back to the inventory in the background. Snapshots show such changes once they are written back.
+ */
+public class SharedInventory {
+	private final Inventory inventory;
+	private final StampedLock lock = new StampedLock();
+	private final ChunkedCopy<Part> parts;
+	private final ChunkedCopy<Product> products;
+	private final StockLedger stock;
+	private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+	// Number of writes so far; written under the write lock
+	private long version;
+	private volatile Snapshot latest;
+
+	/**
+	 * Shares an inventory, writing reserved and adjusted stock back to it on the common pool
+	 * @param inventory to share; from now on it must only be used through this
+	 */
+	public SharedInventory(Inventory inventory)
+	{
+		this(inventory, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param inventory to share; from now on it must only be used through this
+	 * @param stockWriter runs the writes of reserved and adjusted stock back to the inventory
+	 */
+	public SharedInventory(Inventory inventory, Executor stockWriter)
+	{
+		this.inventory = inventory;
+		this.stock = new StockLedger(this, inventory, stockWriter);
+		this.parts = new ChunkedCopy<>(inventory.getAllParts(), SharedInventory::copyOf, Part::getId);
+		this.products = new ChunkedCopy<>(inventory.getAllProducts(), SharedInventory::copyOf, Product::getId);
+		// A product's copy holds copies of its parts, so it is copied again when one of them changes
+		inventory.getAllParts().addListener(new ChangeList.Listener<Part>() {
+			@Override
+			public void added(int from, int to)
+			{
+			}
+
+			@Override
+			public void removed(int index, Part removed)
+			{
+				usersChanged(removed.getId());
+				stock.partRemoved(removed.getId());
+			}
+
+			@Override
+			public void replaced(int index, Part replaced)
+			{
+				Part replacement = inventory.getAllParts().get(index);
+				usersChanged(replaced.getId());
+				if(replacement.getId() != replaced.getId())
+				{
+					stock.partRemoved(replaced.getId());
+				}
+				stock.partChanged(replacement);
+			}
+		});
+		inventory.getAllProducts().addListener(new ChangeList.Listener<Product>() {
+			@Override
+			public void added(int from, int to)
+			{
+			}
+
+			@Override
+			public void removed(int index, Product removed)
+			{
+				stock.productRemoved(removed.getId());
+			}
+
+			@Override
+			public void replaced(int index, Product replaced)
+			{
+				Product replacement = inventory.getAllProducts().get(index);
+				if(replacement.getId() != replaced.getId())
+				{
+					stock.productRemoved(replaced.getId());
+				}
+				stock.productChanged(replacement);
+			}
+		});
+		inventory.addListener(new InventoryListener() {
+			@Override
+			public void partChanged(Part part)
+			{
+				parts.changed(part.getId());
+				usersChanged(part.getId());
+				stock.partChanged(part);
+			}
+
+			@Override
+			public void productChanged(Product product)
+			{
+				products.changed(product.getId());
+				stock.productChanged(product);
+			}
+
+			@Override
+			public void associatedPartsChanged(Product product)
+			{
+				products.changed(product.getId());
+			}
+		});
+		this.latest = new Snapshot(0, parts.copy(), products.copy());
+	}
+
+	/**
+	 * Returns the inventory as of the last write. May be called from any thread.
+	 * @return immutable copy of the inventory
+	 */
+	public Snapshot snapshot()
+	{
+		long stamp = lock.tryOptimisticRead();
+		Snapshot snapshot = latest;
+		long written = version;
+		if(snapshot.version == written && lock.validate(stamp))
+		{
+			return snapshot;
+		}
+		stamp = lock.readLock();
+		try
+		{
+			// Readers holding the read lock take turns copying; the ones after the first find the copy made
+			synchronized(this)
+			{
+				snapshot = latest;
+				if(snapshot.version != version)
+				{
+					snapshot = new Snapshot(version, parts.copy(), products.copy());
+					latest = snapshot;
+				}
+				return snapshot;
+			}
+		}
+		finally
+		{
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Changes the inventory, waiting for other writers and for snapshots being copied. The body runs as one
+	 * batch, so if it throws, the changes it made through the inventory's methods are undone, as with
+	 * Inventory.batch. Listeners are told once the write is done. May be called from any thread, but not
+	 * from inside a body, which must not take a snapshot either.
+	 * @param body makes the changes; the inventory it is given must not be kept after it returns
+	 */
+	public void write(Consumer<Inventory> body)
+	{
+		long stamp = lock.writeLock();
+		try
+		{
+			inventory.batch(tx -> body.accept(inventory));
+		}
+		catch(RuntimeException | Error ex)
+		{
+			// Changes made straight to parts and products are not undone, nor reported by undo
+			parts.invalidate();
+			products.invalidate();
+			throw ex;
+		}
+		finally
+		{
+			version++;
+			lock.unlockWrite(stamp);
+		}
+		for(Runnable listener : listeners)
+		{
+			listener.run();
+		}
+	}
+
+	/**
+	 * Sets stock of a part aside for an order, if as much is left over the part's min once it and every other
+	 * reservation is taken. Does not wait for writers. May be called from any thread.
+	 * @param partId id of the part
+	 * @param quantity to set aside, at least 1
+	 * @param timeout how long the reservation may stay open before it expires and gives the stock back
+	 * @param unit of the timeout
+	 * @return the reservation, or null if there is not enough stock or no part with the id
+	 */
+	public StockReservation tryReservePart(int partId, int quantity, long timeout, TimeUnit unit)
+	{
+		return stock.reservePart(partId, quantity, timeout, unit);
+	}
+
+	/**
+	 * Sets stock of a product aside for an order; see tryReservePart
+	 * @param productId id of the product
+	 * @param quantity to set aside, at least 1
+	 * @param timeout how long the reservation may stay open before it expires and gives the stock back
+	 * @param unit of the timeout
+	 * @return the reservation, or null if there is not enough stock or no product with the id
+	 */
+	public StockReservation tryReserveProduct(int productId, int quantity, long timeout, TimeUnit unit)
+	{
+		return stock.reserveProduct(productId, quantity, timeout, unit);
+	}
+
+	/**
+	 * Adds to or takes from a part's stock, if it stays within the part's max and, net of reservations,
+	 * at or above its min. Does not wait for writers. May be called from any thread.
+	 * @param partId id of the part
+	 * @param delta change in stock
+	 * @return false if the change would leave the stock out of bounds, or there is no part with the id
+	 */
+	public boolean adjustPartStock(int partId, int delta)
+	{
+		return stock.adjustPart(partId, delta);
+	}
+
+	/**
+	 * Adds to or takes from a product's stock; see adjustPartStock
+	 * @param productId id of the product
+	 * @param delta change in stock
+	 * @return false if the change would leave the stock out of bounds, or there is no product with the id
+	 */
+	public boolean adjustProductStock(int productId, int delta)
+	{
+		return stock.adjustProduct(productId, delta);
+	}
+
+	/**
+	 * Writes the stock reserved and adjusted so far back to the inventory now, rather than waiting for the
+	 * background write, so the next snapshot shows it. May be called from any thread.
+	 */
+	public void flushStock()
+	{
+		stock.write();
+	}
+
+	/**
+	 * Finds the ids of all parts whose name or id contains the search text, ignoring case; look them up
+	 * in a snapshot. May be called from any thread.
+	 * @param searchText text typed into a search box
+	 * @return matching part ids in ascending order
+	 */
+	public int[] findPartIds(String searchText)
+	{
+		return inventory.findPartIds(searchText);
+	}
+
+	/**
+	 * Finds the ids of all products whose name or id contains the search text, ignoring case; look them up
+	 * in a snapshot. May be called from any thread.
+	 * @param searchText text typed into a search box
+	 * @return matching product ids in ascending order
+	 */
+	public int[] findProductIds(String searchText)
+	{
+		return inventory.findProductIds(searchText);
+	}
+
+	/**
+	 * @param listener to run after each write from now on, on the writing thread
+	 */
+	public void addListener(Runnable listener)
+	{
+		listeners.add(listener);
+	}
+
+	/**
+	 * @param listener to stop running after writes
+	 */
+	public void removeListener(Runnable listener)
+	{
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Reads the inventory itself with no write under way; readers may run at the same time
+	 * @param body reads the inventory, and must not change it
+	 * @return what the body returns
+	 */
+	<T> T read(Supplier<T> body)
+	{
+		long stamp = lock.readLock();
+		try
+		{
+			return body.get();
+		}
+		finally
+		{
+			lock.unlockRead(stamp);
+		}
+	}
+
+	private void usersChanged(int partId)
+	{
+		for(Product product : inventory.whereUsed(partId))
+		{
+			products.changed(product.getId());
+		}
+	}
+
+	/**
+	 * @return a copy of the part that does not belong to any inventory
+	 */
+	static Part copyOf(Part part)
+	{
+		if(part instanceof InHouse)
+		{
+			return new InHouse(part.getId(), part.getName(), part.getPrice(), part.getStock(), part.getMin(),
+					part.getMax(), ((InHouse) part).getMachineId());
+		}
+		return new Outsourced(part.getId(), part.getName(), part.getPrice(), part.getStock(), part.getMin(),
+				part.getMax(), ((Outsourced) part).getCompanyName());
+	}
+
+	/**
+	 * @return a copy of the product and its associated parts that does not belong to any inventory
+	 */
+	static Product copyOf(Product product)
+	{
+		Product copy = new Product(product.getId(), product.getName(), product.getPrice(), product.getStock(),
+				product.getMin(), product.getMax());
+		for(Part part : product.getAllAssociatedParts())
+		{
+			copy.addAssociatedPart(copyOf(part));
+		}
+		return copy;
+	}
+
+	/**
+	 * The inventory as of one write. Its parts and products are copies that belong to no inventory;
+	 * changing them changes nothing here, so treat them as read only. May be shared between threads.
+	 */
+	public static final class Snapshot {
+		private final long version;
+		private final List<Part> allParts;
+		private final List<Product> allProducts;
+		// Positions by id, built on the first lookup
+		private volatile IntIntMap partIndex;
+		private volatile IntIntMap productIndex;
+
+		Snapshot(long version, List<Part> allParts, List<Product> allProducts)
+		{
+			this.version = version;
+			this.allParts = allParts;
+			this.allProducts = allProducts;
+		}
+
+		/**
+		 * @return number of writes made to the inventory before this snapshot
+		 */
+		public long getVersion()
+		{
+			return version;
+		}
+
+		/**
+		 * @return unmodifiable list of the parts
+		 */
+		public List<Part> getAllParts()
+		{
+			return allParts;
+		}
+
+		/**
+		 * @return unmodifiable list of the products
+		 */
+		public List<Product> getAllProducts()
+		{
+			return allProducts;
+		}
+
+		/**
+		 * @param partId id of the part
+		 * @return the part, or null if there was none with the id
+		 */
+		public Part lookupPart(int partId)
+		{
+			IntIntMap index = partIndex;
+			if(index == null)
+			{
+				index = indexOf(allParts, Part::getId);
+				partIndex = index;
+			}
+			int position = index.get(partId);
+			return position < 0 ? null : allParts.get(position);
+		}
+
+		/**
+		 * @param productId id of the product
+		 * @return the product, or null if there was none with the id
+		 */
+		public Product lookupProduct(int productId)
+		{
+			IntIntMap index = productIndex;
+			if(index == null)
+			{
+				index = indexOf(allProducts, Product::getId);
+				productIndex = index;
+			}
+			int position = index.get(productId);
+			return position < 0 ? null : allProducts.get(position);
+		}
+
+		/**
+		 * Finds parts by id, such as those found by SharedInventory.findPartIds, leaving out ids not in this snapshot
+		 * @param partIds ids of the parts
+		 * @return the parts, in the order of the ids
+		 */
+		public List<Part> lookupParts(int[] partIds)
+		{
+			List<Part> matches = new ArrayList<>(partIds.length);
+			for(int id : partIds)
+			{
+				Part part = lookupPart(id);
+				if(part != null)
+				{
+					matches.add(part);
+				}
+			}
+			return matches;
+		}
+
+		/**
+		 * Finds products by id, leaving out ids not in this snapshot
+		 * @param productIds ids of the products
+		 * @return the products, in the order of the ids
+		 */
+		public List<Product> lookupProducts(int[] productIds)
+		{
+			List<Product> matches = new ArrayList<>(productIds.length);
+			for(int id : productIds)
+			{
+				Product product = lookupProduct(id);
+				if(product != null)
+				{
+					matches.add(product);
+				}
+			}
+			return matches;
+		}
+
+		private static <T> IntIntMap indexOf(List<T> items, ToIntFunction<T> idOf)
+		{
+			IntIntMap index = new IntIntMap(-1);
+			for(int i = 0; i < items.size(); i++)
+			{
+				index.put(idOf.applyAsInt(items.get(i)), i);
+			}
+			return index;
+		}
+	}
+}
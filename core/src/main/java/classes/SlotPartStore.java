@@ -0,0 +1,603 @@
+package classes;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Part store that keeps each part's fields in a numbered slot rather than in a part object.
+ * Subclasses decide where the slots live. The part list creates lightweight row objects on demand
+ * that read and write straight through to the slots, so only the rows currently in use exist as objects.
+ * Rows compare equal when they point at the same slot. Replacing a part writes over its slot, so rows
+ * kept while it was replaced show the replacement. A row kept after its part was removed must not be used,
+ * since the slot may be reused by a later part.
+ */
+public abstract class SlotPartStore extends PartStore {
+	static final byte FREE = 0;
+	static final byte IN_HOUSE = 1;
+	static final byte OUTSOURCED = 2;
+
+	private final IntIntMap slotsById = new IntIntMap(-1);
+	private final Rows rows = new Rows();
+	private int slotCount;
+
+	// Free slots left by removed parts, reused before new slots are added
+	private int[] freeSlots = new int[16];
+	private int freeCount;
+
+	// Slot of each position in the list
+	private int[] order;
+	private int size;
+
+	/**
+	 * @param expectedParts number of parts to size the list for
+	 */
+	SlotPartStore(int expectedParts)
+	{
+		order = new int[Math.max(16, expectedParts)];
+	}
+
+	/**
+	 * Makes room for at least the given number of slots
+	 * @param slots number of slots needed
+	 */
+	abstract void ensureSlots(int slots);
+
+	abstract byte kind(int slot);
+
+	abstract void kind(int slot, byte kind);
+
+	abstract int id(int slot);
+
+	abstract void id(int slot, int id);
+
+	abstract String name(int slot);
+
+	abstract void name(int slot, String name);
+
+	abstract double price(int slot);
+
+	abstract void price(int slot, double price);
+
+	abstract int stock(int slot);
+
+	abstract void stock(int slot, int stock);
+
+	abstract int min(int slot);
+
+	abstract void min(int slot, int min);
+
+	abstract int max(int slot);
+
+	abstract void max(int slot, int max);
+
+	abstract int machineId(int slot);
+
+	abstract void machineId(int slot, int machineId);
+
+	abstract String companyName(int slot);
+
+	abstract void companyName(int slot, String companyName);
+
+	/**
+	 * Called after a slot is freed, before it can be reused
+	 * @param slot that was freed
+	 */
+	void released(int slot)
+	{
+	}
+
+	@Override
+	ChangeList<Part> list()
+	{
+		return rows;
+	}
+
+	@Override
+	Part lookup(int id)
+	{
+		int slot = slotsById.get(id);
+		return slot < 0 ? null : row(slot);
+	}
+
+	@Override
+	Part add(Part part)
+	{
+		rows.add(part);
+		return rows.get(size - 1);
+	}
+
+	@Override
+	Part insert(int index, Part part)
+	{
+		rows.add(index, part);
+		return rows.get(index);
+	}
+
+	@Override
+	List<Part> addAll(List<Part> parts)
+	{
+		int from = size;
+		rows.addAll(parts);
+		return rows.subList(from, size);
+	}
+
+	@Override
+	Part set(int index, Part part)
+	{
+		rows.set(index, part);
+		return rows.get(index);
+	}
+
+	@Override
+	void remove(int index)
+	{
+		rows.remove(index);
+	}
+
+	@Override
+	Part copyOf(Part part)
+	{
+		int slot = slotOf(part);
+		return slot < 0 ? part : detach(slot);
+	}
+
+	@Override
+	void beginBatch()
+	{
+		rows.beginBatch();
+	}
+
+	@Override
+	void endBatch()
+	{
+		rows.endBatch();
+	}
+
+	/**
+	 * List over the slots, in list order
+	 */
+	private class Rows extends ChangeList<Part> {
+		@Override
+		public Part get(int index)
+		{
+			if(index < 0 || index >= size)
+			{
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+			}
+			return row(order[index]);
+		}
+
+		@Override
+		public int size()
+		{
+			return size;
+		}
+
+		@Override
+		public boolean addAll(Collection<? extends Part> parts)
+		{
+			// One range added, rather than an element at a time
+			if(parts.isEmpty())
+			{
+				return false;
+			}
+			int from = size;
+			for(Part part : parts)
+			{
+				doAdd(size, part);
+			}
+			modCount++;
+			fireAdded(from, size);
+			return true;
+		}
+
+		@Override
+		void doAdd(int index, Part element)
+		{
+			int slot = allocate();
+			write(slot, element);
+			if(size == order.length)
+			{
+				order = Arrays.copyOf(order, size + (size >> 1));
+			}
+			System.arraycopy(order, index, order, index + 1, size - index);
+			order[index] = slot;
+			size++;
+		}
+
+		@Override
+		Part doSet(int index, Part element)
+		{
+			// Written over in place, so rows kept by forms, selections and alerts still show this part
+			int slot = order[index];
+			Part oldPart = detach(slot);
+			slotsById.remove(id(slot), slot);
+			write(slot, element);
+			return oldPart;
+		}
+
+		@Override
+		Part doRemove(int index)
+		{
+			int oldSlot = order[index];
+			Part oldPart = detach(oldSlot);
+			System.arraycopy(order, index + 1, order, index, size - index - 1);
+			size--;
+			free(oldSlot);
+			return oldPart;
+		}
+
+		@Override
+		public int indexOf(Object o)
+		{
+			int slot = slotOf(o);
+			if(slot >= 0)
+			{
+				for(int i = 0; i < size; i++)
+				{
+					if(order[i] == slot)
+					{
+						return i;
+					}
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		public boolean contains(Object o)
+		{
+			return indexOf(o) >= 0;
+		}
+	}
+
+	/**
+	 * @param slot to view
+	 * @return a row object over the slot
+	 */
+	Part row(int slot)
+	{
+		byte kind = kind(slot);
+		if(kind == FREE)
+		{
+			throw new IllegalStateException("Slot " + slot + " holds no part");
+		}
+		Part part = kind == IN_HOUSE ? new InHouseRow(this, slot) : new OutsourcedRow(this, slot);
+		part.inventory = inventory;
+		return part;
+	}
+
+	/**
+	 * @return a standalone copy of a slot, for parts leaving the store
+	 */
+	private Part detach(int slot)
+	{
+		if(kind(slot) == IN_HOUSE)
+		{
+			return new InHouse(id(slot), name(slot), price(slot), stock(slot), min(slot), max(slot), machineId(slot));
+		}
+		return new Outsourced(id(slot), name(slot), price(slot), stock(slot), min(slot), max(slot), companyName(slot));
+	}
+
+	private void write(int slot, Part part)
+	{
+		id(slot, part.getId());
+		name(slot, part.getName());
+		price(slot, part.getPrice());
+		stock(slot, part.getStock());
+		min(slot, part.getMin());
+		max(slot, part.getMax());
+		if(part instanceof InHouse)
+		{
+			kind(slot, IN_HOUSE);
+			machineId(slot, ((InHouse) part).getMachineId());
+		}
+		else
+		{
+			kind(slot, OUTSOURCED);
+			companyName(slot, ((Outsourced) part).getCompanyName());
+		}
+		slotsById.put(part.getId(), slot);
+	}
+
+	private int allocate()
+	{
+		if(freeCount > 0)
+		{
+			return freeSlots[--freeCount];
+		}
+		ensureSlots(slotCount + 1);
+		return slotCount++;
+	}
+
+	private void free(int slot)
+	{
+		slotsById.remove(id(slot), slot);
+		kind(slot, FREE);
+		released(slot);
+		if(freeCount == freeSlots.length)
+		{
+			freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+		}
+		freeSlots[freeCount++] = slot;
+	}
+
+	private int slotOf(Object o)
+	{
+		if(o instanceof InHouseRow && ((InHouseRow) o).store == this)
+		{
+			return ((InHouseRow) o).slot;
+		}
+		if(o instanceof OutsourcedRow && ((OutsourcedRow) o).store == this)
+		{
+			return ((OutsourcedRow) o).slot;
+		}
+		return -1;
+	}
+
+	private void rename(Part row, int slot, String name)
+	{
+		row.changing();
+		String oldName = name(slot);
+		name(slot, name);
+		if(row.inventory != null)
+		{
+			row.inventory.partRenamed(row, oldName);
+		}
+		row.changed();
+	}
+
+	private void changeId(Part row, int slot, int id)
+	{
+		if(row.inventory != null)
+		{
+			row.inventory.partIdChanging(row, id);
+		}
+		slotsById.remove(id(slot), slot);
+		id(slot, id);
+		slotsById.put(id, slot);
+	}
+
+	/**
+	 * In-house part backed by a slot
+	 */
+	public static final class InHouseRow extends InHouse {
+		private final SlotPartStore store;
+		private final int slot;
+
+		InHouseRow(SlotPartStore store, int slot)
+		{
+			super(0, null, 0, 0, 0, 0, 0);
+			this.store = store;
+			this.slot = slot;
+		}
+
+		@Override
+		public int getId()
+		{
+			return store.id(slot);
+		}
+
+		@Override
+		public void setId(int id)
+		{
+			store.changeId(this, slot, id);
+		}
+
+		@Override
+		public String getName()
+		{
+			return store.name(slot);
+		}
+
+		@Override
+		public void setName(String name)
+		{
+			store.rename(this, slot, name);
+		}
+
+		@Override
+		public double getPrice()
+		{
+			return store.price(slot);
+		}
+
+		@Override
+		public void setPrice(double price)
+		{
+			changing();
+			store.price(slot, price);
+			changed();
+		}
+
+		@Override
+		public int getStock()
+		{
+			return store.stock(slot);
+		}
+
+		@Override
+		public void setStock(int stock)
+		{
+			changing();
+			store.stock(slot, stock);
+			changed();
+		}
+
+		@Override
+		public int getMin()
+		{
+			return store.min(slot);
+		}
+
+		@Override
+		public void setMin(int min)
+		{
+			changing();
+			store.min(slot, min);
+			changed();
+		}
+
+		@Override
+		public int getMax()
+		{
+			return store.max(slot);
+		}
+
+		@Override
+		public void setMax(int max)
+		{
+			changing();
+			store.max(slot, max);
+			changed();
+		}
+
+		@Override
+		public int getMachineId()
+		{
+			return store.machineId(slot);
+		}
+
+		@Override
+		public void setMachineId(int machineId)
+		{
+			changing();
+			store.machineId(slot, machineId);
+			changed();
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			return o instanceof InHouseRow && ((InHouseRow) o).store == store && ((InHouseRow) o).slot == slot;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return slot;
+		}
+	}
+
+	/**
+	 * Outsourced part backed by a slot
+	 */
+	public static final class OutsourcedRow extends Outsourced {
+		private final SlotPartStore store;
+		private final int slot;
+
+		OutsourcedRow(SlotPartStore store, int slot)
+		{
+			super(0, null, 0, 0, 0, 0, null);
+			this.store = store;
+			this.slot = slot;
+		}
+
+		@Override
+		public int getId()
+		{
+			return store.id(slot);
+		}
+
+		@Override
+		public void setId(int id)
+		{
+			store.changeId(this, slot, id);
+		}
+
+		@Override
+		public String getName()
+		{
+			return store.name(slot);
+		}
+
+		@Override
+		public void setName(String name)
+		{
+			store.rename(this, slot, name);
+		}
+
+		@Override
+		public double getPrice()
+		{
+			return store.price(slot);
+		}
+
+		@Override
+		public void setPrice(double price)
+		{
+			changing();
+			store.price(slot, price);
+			changed();
+		}
+
+		@Override
+		public int getStock()
+		{
+			return store.stock(slot);
+		}
+
+		@Override
+		public void setStock(int stock)
+		{
+			changing();
+			store.stock(slot, stock);
+			changed();
+		}
+
+		@Override
+		public int getMin()
+		{
+			return store.min(slot);
+		}
+
+		@Override
+		public void setMin(int min)
+		{
+			changing();
+			store.min(slot, min);
+			changed();
+		}
+
+		@Override
+		public int getMax()
+		{
+			return store.max(slot);
+		}
+
+		@Override
+		public void setMax(int max)
+		{
+			changing();
+			store.max(slot, max);
+			changed();
+		}
+
+		@Override
+		public String getCompanyName()
+		{
+			return store.companyName(slot);
+		}
+
+		@Override
+		public void setCompanyName(String companyName)
+		{
+			changing();
+			store.companyName(slot, companyName);
+			changed();
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			return o instanceof OutsourcedRow && ((OutsourcedRow) o).store == store && ((OutsourcedRow) o).slot == slot;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return slot;
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package classes;
+
+/**
+ * A part or product whose stock is out of its bounds: below its min, so it needs reordering, or above its
+ * max. Holds the stock and bounds as they were when the alert was raised; a later change to them raises a
+ * new alert in this one's place. Immutable.
+ */
+public final class StockAlert {
+	private final Part part;
+	private final Product product;
+	private final int stock;
+	private final int min;
+	private final int max;
+
+	private StockAlert(Part part, Product product, int stock, int min, int max)
+	{
+		this.part = part;
+		this.product = product;
+		this.stock = stock;
+		this.min = min;
+		this.max = max;
+	}
+
+	/**
+	 * @return an alert for the part, or null if its stock is within its bounds
+	 */
+	static StockAlert of(Part part)
+	{
+		int stock = part.getStock();
+		return stock >= part.getMin() && stock <= part.getMax() ? null
+				: new StockAlert(part, null, stock, part.getMin(), part.getMax());
+	}
+
+	/**
+	 * @return an alert for the product, or null if its stock is within its bounds
+	 */
+	static StockAlert of(Product product)
+	{
+		int stock = product.getStock();
+		return stock >= product.getMin() && stock <= product.getMax() ? null
+				: new StockAlert(null, product, stock, product.getMin(), product.getMax());
+	}
+
+	/**
+	 * @return the part whose stock is out of bounds, or null if the alert is for a product
+	 */
+	public Part getPart()
+	{
+		return part;
+	}
+
+	/**
+	 * @return the product whose stock is out of bounds, or null if the alert is for a part
+	 */
+	public Product getProduct()
+	{
+		return product;
+	}
+
+	/**
+	 * @return true if the alert is for a product
+	 */
+	public boolean isProduct()
+	{
+		return product != null;
+	}
+
+	/**
+	 * @return id of the part or product
+	 */
+	public int getId()
+	{
+		return part != null ? part.getId() : product.getId();
+	}
+
+	/**
+	 * @return name of the part or product
+	 */
+	public String getName()
+	{
+		return part != null ? part.getName() : product.getName();
+	}
+
+	/**
+	 * @return stock when the alert was raised
+	 */
+	public int getStock()
+	{
+		return stock;
+	}
+
+	/**
+	 * @return min when the alert was raised
+	 */
+	public int getMin()
+	{
+		return min;
+	}
+
+	/**
+	 * @return max when the alert was raised
+	 */
+	public int getMax()
+	{
+		return max;
+	}
+
+	/**
+	 * @return true if the stock is below the min
+	 */
+	public boolean isLow()
+	{
+		return stock < min;
+	}
+
+	/**
+	 * @return how far the stock is below the min, or 0 if it is not
+	 */
+	public int getShortfall()
+	{
+		return isLow() ? (int) Math.min(Integer.MAX_VALUE, (long) min - stock) : 0;
+	}
+
+	/**
+	 * @return how far the stock is above the max, or 0 if it is not
+	 */
+	public int getExcess()
+	{
+		return stock > max ? (int) Math.min(Integer.MAX_VALUE, (long) stock - max) : 0;
+	}
+
+	@Override
+	public String toString()
+	{
+		return (isProduct() ? "Product " : "Part ") + getId() + (isLow() ? " short by " + getShortfall()
+				: " over by " + getExcess());
+	}
+}
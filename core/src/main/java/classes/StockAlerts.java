@@ -0,0 +1,209 @@
+package classes;
+
+import java.util.Comparator;
+
+/**
+ * Watches an inventory's stock against each part's and product's min and max. Items below their min are
+ * kept in a needs-reorder list, furthest below first; items above their max in an over-stock list,
+ * furthest above first. The lists change as the stock and bounds do: an item crossing a bound is added to
+ * or removed from its list, and an item moving further from it is moved, each in O(log n) without looking
+ * at the rest of the inventory. The lists tell their listeners like the inventory's own lists, and changes
+ * made in an inventory batch reach them as one. Use on the inventory's thread, like the inventory.
+ */
+public class StockAlerts {
+	// Furthest out of bounds first; then parts before products, then by id, so no two alerts are equal
+	private static final Comparator<StockAlert> BY_ITEM = Comparator
+			.comparing(StockAlert::isProduct)
+			.thenComparingInt(StockAlert::getId);
+	private static final Comparator<StockAlert> BY_SHORTFALL = Comparator
+			.comparingInt(StockAlert::getShortfall).reversed()
+			.thenComparing(BY_ITEM);
+	private static final Comparator<StockAlert> BY_EXCESS = Comparator
+			.comparingInt(StockAlert::getExcess).reversed()
+			.thenComparing(BY_ITEM);
+
+	private final RankedList<StockAlert> reorder = new RankedList<>(BY_SHORTFALL);
+	private final RankedList<StockAlert> overStock = new RankedList<>(BY_EXCESS);
+	private final IntMap<StockAlert> partAlerts = new IntMap<>();
+	private final IntMap<StockAlert> productAlerts = new IntMap<>();
+
+	/**
+	 * Checks every part and product once, then follows their changes
+	 * @param inventory to watch
+	 */
+	public StockAlerts(Inventory inventory)
+	{
+		for(Part part : inventory.getAllParts())
+		{
+			partChanged(part);
+		}
+		for(Product product : inventory.getAllProducts())
+		{
+			productChanged(product);
+		}
+
+		inventory.addListener(new InventoryListener() {
+			@Override
+			public void partChanged(Part part)
+			{
+				StockAlerts.this.partChanged(part);
+			}
+
+			@Override
+			public void productChanged(Product product)
+			{
+				StockAlerts.this.productChanged(product);
+			}
+		});
+		inventory.getAllParts().addListener(new BatchForwarder<Part>() {
+			@Override
+			public void added(int from, int to)
+			{
+				for(int i = from; i < to; i++)
+				{
+					partChanged(inventory.getAllParts().get(i));
+				}
+			}
+
+			@Override
+			public void removed(int index, Part removed)
+			{
+				update(partAlerts, removed.getId(), null);
+			}
+
+			@Override
+			public void replaced(int index, Part replaced)
+			{
+				Part part = inventory.getAllParts().get(index);
+				if(replaced.getId() != part.getId())
+				{
+					update(partAlerts, replaced.getId(), null);
+				}
+				partChanged(part);
+			}
+		});
+		inventory.getAllProducts().addListener(new BatchForwarder<Product>() {
+			@Override
+			public void added(int from, int to)
+			{
+				for(int i = from; i < to; i++)
+				{
+					productChanged(inventory.getAllProducts().get(i));
+				}
+			}
+
+			@Override
+			public void removed(int index, Product removed)
+			{
+				update(productAlerts, removed.getId(), null);
+			}
+
+			@Override
+			public void replaced(int index, Product replaced)
+			{
+				Product product = inventory.getAllProducts().get(index);
+				if(replaced.getId() != product.getId())
+				{
+					update(productAlerts, replaced.getId(), null);
+				}
+				productChanged(product);
+			}
+		});
+	}
+
+	/**
+	 * @return parts and products below their min, furthest below first
+	 */
+	public ChangeList<StockAlert> getNeedsReorder()
+	{
+		return reorder;
+	}
+
+	/**
+	 * @return parts and products above their max, furthest above first
+	 */
+	public ChangeList<StockAlert> getOverStock()
+	{
+		return overStock;
+	}
+
+	/**
+	 * @param partId id of a part
+	 * @return the part's alert, or null if its stock is within its bounds
+	 */
+	public StockAlert partAlert(int partId)
+	{
+		return partAlerts.get(partId);
+	}
+
+	/**
+	 * @param productId id of a product
+	 * @return the product's alert, or null if its stock is within its bounds
+	 */
+	public StockAlert productAlert(int productId)
+	{
+		return productAlerts.get(productId);
+	}
+
+	private void partChanged(Part part)
+	{
+		update(partAlerts, part.getId(), StockAlert.of(part));
+	}
+
+	private void productChanged(Product product)
+	{
+		update(productAlerts, product.getId(), StockAlert.of(product));
+	}
+
+	/**
+	 * Puts an item's new alert in the list it belongs to, in place of its old one
+	 * @param alert null if the item is within its bounds or gone
+	 */
+	private void update(IntMap<StockAlert> alerts, int id, StockAlert alert)
+	{
+		StockAlert old = alert == null ? alerts.remove(id) : alerts.put(id, alert);
+		if(old == null && alert == null)
+		{
+			return;
+		}
+		RankedList<StockAlert> from = old == null ? null : listOf(old);
+		RankedList<StockAlert> to = alert == null ? null : listOf(alert);
+		if(from == to)
+		{
+			to.replace(old, alert);
+			return;
+		}
+		if(from != null)
+		{
+			from.delete(old);
+		}
+		if(to != null)
+		{
+			to.insert(alert);
+		}
+	}
+
+	private RankedList<StockAlert> listOf(StockAlert alert)
+	{
+		return alert.isLow() ? reorder : overStock;
+	}
+
+	/**
+	 * Brackets the alert lists' changes made during an inventory batch, so views see them as one change
+	 */
+	private abstract class BatchForwarder<E> implements ChangeList.Listener<E> {
+		@Override
+		public void batchStarted()
+		{
+			reorder.beginBatch();
+			overStock.beginBatch();
+		}
+
+		@Override
+		public void batchEnded()
+		{
+			overStock.endBatch();
+			reorder.endBatch();
+		}
+	}
+}
@@ -0,0 +1,234 @@
+package classes;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Stock of one part or product, changed with compare-and-set so many threads can reserve and take stock
+ * without a lock. The stock on hand and the quantity reserved out of it are packed into one long, so each
+ * change is a single compare-and-set. Every change keeps the stock within max and what is left once the
+ * reservations are taken at or above min, as the Add and Modify forms require.
+ */
+final class StockCell {
+	private static final VarHandle STATE;
+	private static final VarHandle DIRTY;
+
+	static
+	{
+		try
+		{
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			STATE = lookup.findVarHandle(StockCell.class, "state", long.class);
+			DIRTY = lookup.findVarHandle(StockCell.class, "dirty", boolean.class);
+		}
+		catch(ReflectiveOperationException ex)
+		{
+			throw new ExceptionInInitializerError(ex);
+		}
+	}
+
+	final boolean product;
+	final int id;
+	// Stock on hand in the high half, quantity reserved in the low half
+	private volatile long state;
+	private volatile int min;
+	private volatile int max;
+	private volatile boolean removed;
+	// Set when the stock changed and the inventory has not been told yet
+	private volatile boolean dirty;
+	// Stock as the inventory last had it, so edits made there apply as a change; only used under the write lock
+	private int saved;
+	// Reservations not yet committed or released, roughly oldest first, swept of closed ones as they go
+	final Queue<StockReservation> open = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * @param product true for a product's stock, false for a part's
+	 * @param id of the part or product
+	 * @param stock on hand
+	 * @param min least stock left once reservations are taken
+	 * @param max most stock on hand
+	 */
+	StockCell(boolean product, int id, int stock, int min, int max)
+	{
+		this.product = product;
+		this.id = id;
+		this.state = pack(stock, 0);
+		this.saved = stock;
+		this.min = min;
+		this.max = max;
+	}
+
+	/**
+	 * @return stock on hand, including reserved stock
+	 */
+	int stock()
+	{
+		return stockOf(state);
+	}
+
+	/**
+	 * @return quantity reserved and not yet committed or released
+	 */
+	int reserved()
+	{
+		return reservedOf(state);
+	}
+
+	/**
+	 * Sets quantity aside if as much is left over the min once it and every other reservation is taken
+	 * @param quantity to set aside
+	 * @return false if there is not enough stock, or the part or product was removed
+	 */
+	boolean reserve(int quantity)
+	{
+		while(true)
+		{
+			long current = state;
+			int stock = stockOf(current);
+			int reserved = reservedOf(current);
+			if(removed || (long) stock - reserved - quantity < min)
+			{
+				return false;
+			}
+			if(STATE.compareAndSet(this, current, pack(stock, reserved + quantity)))
+			{
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Gives reserved stock back
+	 * @param quantity reserved
+	 */
+	void unreserve(int quantity)
+	{
+		while(true)
+		{
+			long current = state;
+			if(STATE.compareAndSet(this, current, pack(stockOf(current), reservedOf(current) - quantity)))
+			{
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Takes reserved stock out of the stock on hand
+	 * @param quantity reserved
+	 * @return false if the part or product was removed
+	 */
+	boolean take(int quantity)
+	{
+		while(true)
+		{
+			long current = state;
+			if(removed)
+			{
+				return false;
+			}
+			if(STATE.compareAndSet(this, current, pack(stockOf(current) - quantity, reservedOf(current) - quantity)))
+			{
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Adds to or takes from the stock on hand, if that keeps it within the bounds
+	 * @param delta change in stock
+	 * @return false if the change would leave the stock out of bounds, or the part or product was removed
+	 */
+	boolean adjust(int delta)
+	{
+		while(true)
+		{
+			long current = state;
+			long stock = (long) stockOf(current) + delta;
+			if(removed || stock > max || stock - reservedOf(current) < min)
+			{
+				return false;
+			}
+			if(STATE.compareAndSet(this, current, pack((int) stock, reservedOf(current))))
+			{
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Takes the bounds saved in the inventory, and any change made there to the stock since it was last read
+	 * or written back, keeping the reservations and the changes not yet written back. Under the write lock.
+	 * @param stock saved in the inventory
+	 */
+	void overwrite(int stock, int min, int max)
+	{
+		this.min = min;
+		this.max = max;
+		int delta = stock - saved;
+		saved = stock;
+		if(delta == 0)
+		{
+			// Some other field changed; the stock held here is still the latest
+			return;
+		}
+		while(true)
+		{
+			long current = state;
+			if(STATE.compareAndSet(this, current, pack(stockOf(current) + delta, reservedOf(current))))
+			{
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Notes the stock written back to the inventory, under the write lock
+	 * @param stock written
+	 */
+	void saved(int stock)
+	{
+		saved = stock;
+	}
+
+	/**
+	 * Refuses every later reservation and change, for a part or product no longer in the inventory
+	 */
+	void remove()
+	{
+		removed = true;
+	}
+
+	/**
+	 * @return true if the stock was not already waiting to be written to the inventory
+	 */
+	boolean markDirty()
+	{
+		return DIRTY.compareAndSet(this, false, true);
+	}
+
+	/**
+	 * Called before the stock is read to be written to the inventory, so changes after the read mark it again
+	 */
+	void markClean()
+	{
+		dirty = false;
+	}
+
+	private static long pack(int stock, int reserved)
+	{
+		return ((long) stock << 32) | (reserved & 0xFFFFFFFFL);
+	}
+
+	private static int stockOf(long state)
+	{
+		return (int) (state >> 32);
+	}
+
+	private static int reservedOf(long state)
+	{
+		return (int) state;
+	}
+}
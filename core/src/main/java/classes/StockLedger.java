@@ -0,0 +1,260 @@
+package classes;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Stock cells of a shared inventory's parts and products, made the first time each one's stock is
+ * reserved or adjusted. The cells hold the latest stock; changes to it are written back to the inventory
+ * in the background, many at a time, so reserving and taking stock never waits for the write lock.
+ * Changes made to the inventory's bounds, such as from the Modify forms, replace the cells', and changes made
+ * there to the stock are added to the cells' on top of the changes not yet written back.
+ */
+final class StockLedger {
+	private final SharedInventory shared;
+	private final Inventory inventory;
+	private final Executor writer;
+	private final Map<Integer, StockCell> parts = new ConcurrentHashMap<>();
+	private final Map<Integer, StockCell> products = new ConcurrentHashMap<>();
+	private final Queue<StockCell> dirty = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean writePending = new AtomicBoolean();
+	// Set while cells are written to the inventory, so the change they cause is not copied back; under the write lock
+	private boolean writing;
+
+	/**
+	 * @param shared inventory whose stock this keeps
+	 * @param inventory the shared inventory itself
+	 * @param writer runs the writes of changed stock to the inventory
+	 */
+	StockLedger(SharedInventory shared, Inventory inventory, Executor writer)
+	{
+		this.shared = shared;
+		this.inventory = inventory;
+		this.writer = writer;
+	}
+
+	StockReservation reservePart(int partId, int quantity, long timeout, TimeUnit unit)
+	{
+		return reserve(partCell(partId), quantity, timeout, unit);
+	}
+
+	StockReservation reserveProduct(int productId, int quantity, long timeout, TimeUnit unit)
+	{
+		return reserve(productCell(productId), quantity, timeout, unit);
+	}
+
+	boolean adjustPart(int partId, int delta)
+	{
+		return adjust(partCell(partId), delta);
+	}
+
+	boolean adjustProduct(int productId, int delta)
+	{
+		return adjust(productCell(productId), delta);
+	}
+
+	/**
+	 * Called by a stock reservation once it took its stock
+	 * @param cell whose stock changed
+	 */
+	void changed(StockCell cell)
+	{
+		if(cell.markDirty())
+		{
+			dirty.add(cell);
+			if(writePending.compareAndSet(false, true))
+			{
+				writer.execute(this::write);
+			}
+		}
+	}
+
+	/**
+	 * Writes every changed stock to the inventory in one write
+	 */
+	void write()
+	{
+		// Cleared first, so a change landing after the drain below asks for another write
+		writePending.set(false);
+		if(dirty.isEmpty())
+		{
+			return;
+		}
+		shared.write(live -> {
+			writing = true;
+			try
+			{
+				StockCell cell;
+				while((cell = dirty.poll()) != null)
+				{
+					cell.markClean();
+					int stock = cell.stock();
+					cell.saved(stock);
+					if(cell.product)
+					{
+						Product product = live.lookupProduct(cell.id);
+						if(product != null && product.getStock() != stock)
+						{
+							product.setStock(stock);
+						}
+					}
+					else
+					{
+						Part part = live.lookupPart(cell.id);
+						if(part != null && part.getStock() != stock)
+						{
+							part.setStock(stock);
+						}
+					}
+				}
+			}
+			finally
+			{
+				writing = false;
+			}
+		});
+	}
+
+	/**
+	 * Called under the write lock after a part's fields changed in the inventory
+	 */
+	void partChanged(Part part)
+	{
+		StockCell cell = parts.get(part.getId());
+		if(cell != null && !writing)
+		{
+			cell.overwrite(part.getStock(), part.getMin(), part.getMax());
+		}
+	}
+
+	/**
+	 * Called under the write lock after a product's fields changed in the inventory
+	 */
+	void productChanged(Product product)
+	{
+		StockCell cell = products.get(product.getId());
+		if(cell != null && !writing)
+		{
+			cell.overwrite(product.getStock(), product.getMin(), product.getMax());
+		}
+	}
+
+	/**
+	 * Called under the write lock after a part left the inventory
+	 */
+	void partRemoved(int partId)
+	{
+		StockCell cell = parts.remove(partId);
+		if(cell != null)
+		{
+			cell.remove();
+		}
+	}
+
+	/**
+	 * Called under the write lock after a product left the inventory
+	 */
+	void productRemoved(int productId)
+	{
+		StockCell cell = products.remove(productId);
+		if(cell != null)
+		{
+			cell.remove();
+		}
+	}
+
+	private StockReservation reserve(StockCell cell, int quantity, long timeout, TimeUnit unit)
+	{
+		if(quantity <= 0)
+		{
+			throw new IllegalArgumentException("Quantity to reserve must be positive");
+		}
+		if(cell == null)
+		{
+			return null;
+		}
+		long now = System.nanoTime();
+		if(!cell.reserve(quantity))
+		{
+			// Stock held by expired reservations is only given back once something needs it
+			if(sweep(cell, now) == 0 || !cell.reserve(quantity))
+			{
+				return null;
+			}
+		}
+		StockReservation reservation = new StockReservation(this, cell, quantity, now + unit.toNanos(timeout));
+		cell.open.add(reservation);
+		// Drop the reservations that ended at the front, so the queue stays about as long as the open ones
+		StockReservation oldest;
+		while((oldest = cell.open.peek()) != null && (oldest.expire(now) || oldest.isClosed()))
+		{
+			cell.open.remove(oldest);
+		}
+		return reservation;
+	}
+
+	private boolean adjust(StockCell cell, int delta)
+	{
+		if(cell == null || !cell.adjust(delta))
+		{
+			return false;
+		}
+		changed(cell);
+		return true;
+	}
+
+	/**
+	 * Expires the cell's reservations whose time is up and drops every ended one from its queue
+	 * @return number of reservations that expired
+	 */
+	private static int sweep(StockCell cell, long now)
+	{
+		int expired = 0;
+		for(StockReservation reservation : cell.open)
+		{
+			if(reservation.expire(now))
+			{
+				expired++;
+			}
+			if(reservation.isClosed())
+			{
+				cell.open.remove(reservation);
+			}
+		}
+		return expired;
+	}
+
+	private StockCell partCell(int partId)
+	{
+		StockCell cell = parts.get(partId);
+		if(cell != null)
+		{
+			return cell;
+		}
+		// Under the read lock, so no write changes the part between reading it and publishing its cell
+		return shared.read(() -> {
+			Part part = inventory.lookupPart(partId);
+			return part == null ? null : parts.computeIfAbsent(partId,
+					id -> new StockCell(false, id, part.getStock(), part.getMin(), part.getMax()));
+		});
+	}
+
+	private StockCell productCell(int productId)
+	{
+		StockCell cell = products.get(productId);
+		if(cell != null)
+		{
+			return cell;
+		}
+		return shared.read(() -> {
+			Product product = inventory.lookupProduct(productId);
+			return product == null ? null : products.computeIfAbsent(productId,
+					id -> new StockCell(true, id, product.getStock(), product.getMin(), product.getMax()));
+		});
+	}
+}
@@ -0,0 +1,118 @@
+package classes;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Stock set aside for an order until it is committed, which takes the stock, or released, which gives it
+ * back. A reservation not committed or released before its timeout runs out expires and gives its stock
+ * back too; it can no longer be committed. May be used from any thread; each reservation ends only once.
+ */
+public final class StockReservation {
+	private static final VarHandle STATE;
+	private static final int OPEN = 0;
+	private static final int COMMITTED = 1;
+	private static final int RELEASED = 2;
+	private static final int EXPIRED = 3;
+
+	static
+	{
+		try
+		{
+			STATE = MethodHandles.lookup().findVarHandle(StockReservation.class, "state", int.class);
+		}
+		catch(ReflectiveOperationException ex)
+		{
+			throw new ExceptionInInitializerError(ex);
+		}
+	}
+
+	private final StockLedger ledger;
+	private final StockCell cell;
+	private final int quantity;
+	private final long deadline;
+	private volatile int state;
+
+	StockReservation(StockLedger ledger, StockCell cell, int quantity, long deadline)
+	{
+		this.ledger = ledger;
+		this.cell = cell;
+		this.quantity = quantity;
+		this.deadline = deadline;
+	}
+
+	/**
+	 * @return id of the part or product the stock is reserved from
+	 */
+	public int getId()
+	{
+		return cell.id;
+	}
+
+	/**
+	 * @return quantity reserved
+	 */
+	public int getQuantity()
+	{
+		return quantity;
+	}
+
+	/**
+	 * @return true until the reservation is committed, released or expires
+	 */
+	public boolean isOpen()
+	{
+		return state == OPEN && System.nanoTime() - deadline < 0;
+	}
+
+	/**
+	 * Takes the reserved stock
+	 * @return false if the reservation already ended or expired, or its part or product was removed
+	 */
+	public boolean commit()
+	{
+		if(expire(System.nanoTime()) || !STATE.compareAndSet(this, OPEN, COMMITTED) || !cell.take(quantity))
+		{
+			return false;
+		}
+		ledger.changed(cell);
+		return true;
+	}
+
+	/**
+	 * Gives the reserved stock back
+	 * @return false if the reservation already ended, or expired
+	 */
+	public boolean release()
+	{
+		if(expire(System.nanoTime()) || !STATE.compareAndSet(this, OPEN, RELEASED))
+		{
+			return false;
+		}
+		cell.unreserve(quantity);
+		return true;
+	}
+
+	/**
+	 * Ends the reservation if its time is up, giving its stock back
+	 * @param now System.nanoTime()
+	 * @return true if it expired now, rather than before or not at all
+	 */
+	boolean expire(long now)
+	{
+		if(now - deadline < 0 || !STATE.compareAndSet(this, OPEN, EXPIRED))
+		{
+			return false;
+		}
+		cell.unreserve(quantity);
+		return true;
+	}
+
+	/**
+	 * @return true once committed, released or expired
+	 */
+	boolean isClosed()
+	{
+		return state != OPEN;
+	}
+}
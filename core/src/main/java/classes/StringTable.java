@@ -0,0 +1,137 @@
+package classes;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Append-only table of strings kept as UTF-8 bytes in one shared array.
+ * Each distinct string is stored once and referred to by an int, so columns can hold names without
+ * a String object per row. Strings are only materialized when read.
+ */
+public class StringTable {
+	private byte[] bytes = new byte[1024];
+	private int used;
+	private int[] offsets = new int[64];
+	private int count;
+	private int[] table = new int[64];
+
+	/**
+	 * Adds a string if it is not already in the table
+	 * @param value string to store, may be null
+	 * @return reference to the stored string, or -1 for null
+	 */
+	public int intern(String value)
+	{
+		if(value == null)
+		{
+			return -1;
+		}
+		byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+		int mask = table.length - 1;
+		int slot = hash(encoded) & mask;
+		while(table[slot] != 0)
+		{
+			int ref = table[slot] - 1;
+			if(equalsAt(ref, encoded))
+			{
+				return ref;
+			}
+			slot = (slot + 1) & mask;
+		}
+		int ref = append(encoded);
+		table[slot] = ref + 1;
+		if(count * 4 > table.length * 3)
+		{
+			rehash();
+		}
+		return ref;
+	}
+
+	/**
+	 * @param ref reference from intern()
+	 * @return the string, or null for -1
+	 */
+	public String get(int ref)
+	{
+		if(ref < 0)
+		{
+			return null;
+		}
+		return new String(bytes, offsets[ref], length(ref), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return number of distinct strings stored
+	 */
+	public int size()
+	{
+		return count;
+	}
+
+	/**
+	 * @return number of bytes used by string data
+	 */
+	public int byteSize()
+	{
+		return used;
+	}
+
+	private int append(byte[] encoded)
+	{
+		if(used + encoded.length > bytes.length)
+		{
+			bytes = Arrays.copyOf(bytes, Math.max(used + encoded.length, bytes.length * 2));
+		}
+		if(count == offsets.length)
+		{
+			offsets = Arrays.copyOf(offsets, count * 2);
+		}
+		System.arraycopy(encoded, 0, bytes, used, encoded.length);
+		offsets[count] = used;
+		used += encoded.length;
+		return count++;
+	}
+
+	private int length(int ref)
+	{
+		int end = ref + 1 < count ? offsets[ref + 1] : used;
+		return end - offsets[ref];
+	}
+
+	private boolean equalsAt(int ref, byte[] encoded)
+	{
+		int start = offsets[ref];
+		return Arrays.equals(bytes, start, start + length(ref), encoded, 0, encoded.length);
+	}
+
+	private void rehash()
+	{
+		table = new int[table.length * 2];
+		int mask = table.length - 1;
+		for(int ref = 0; ref < count; ref++)
+		{
+			int start = offsets[ref];
+			int slot = hash(bytes, start, start + length(ref)) & mask;
+			while(table[slot] != 0)
+			{
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = ref + 1;
+		}
+	}
+
+	private static int hash(byte[] data)
+	{
+		return hash(data, 0, data.length);
+	}
+
+	private static int hash(byte[] data, int from, int to)
+	{
+		int h = 1;
+		for(int i = from; i < to; i++)
+		{
+			h = 31 * h + data[i];
+		}
+		return h ^ (h >>> 16);
+	}
+}
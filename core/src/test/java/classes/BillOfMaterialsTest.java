@@ -0,0 +1,95 @@
+package classes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BillOfMaterialsTest {
+	private static final int BOLT = 1;
+	private static final int PLATE = 2;
+	private static final int FRAME = 10;
+	private static final int WHEEL = 11;
+	private static final int CART = 12;
+
+	private final Inventory inventory = new Inventory();
+	private final BillOfMaterials bom = new BillOfMaterials(inventory);
+
+	/**
+	 * A cart is a frame and four wheels, and the frame and the wheels both take bolts
+	 */
+	@BeforeEach
+	void fill()
+	{
+		inventory.addPart(new InHouse(BOLT, "Bolt", 0.5, 100, 0, 1000, 1));
+		inventory.addPart(new InHouse(PLATE, "Plate", 4, 100, 0, 1000, 1));
+		bom.setPartQuantity(FRAME, BOLT, 6);
+		bom.setPartQuantity(FRAME, PLATE, 2);
+		bom.setPartQuantity(WHEEL, BOLT, 3);
+		bom.setProductQuantity(CART, FRAME, 1);
+		bom.setProductQuantity(CART, WHEEL, 4);
+		bom.setPartQuantity(CART, BOLT, 1);
+	}
+
+	@Test
+	void rollsUpOverEveryLevel()
+	{
+		assertEquals(11.0, bom.unitCost(FRAME));
+		assertEquals(1.5, bom.unitCost(WHEEL));
+		assertEquals(11.0 + 4 * 1.5 + 0.5, bom.unitCost(CART));
+		BillOfMaterials.Demand demand = bom.partDemand(CART);
+		assertEquals(2, demand.size());
+		assertEquals(6 + 4 * 3 + 1, demand.quantityOf(BOLT));
+		assertEquals(2, demand.quantityOf(PLATE));
+		assertEquals(21, demand.total());
+		assertSame(demand, bom.partDemand(CART));
+	}
+
+	@Test
+	void lineChangeClearsTheRollUpsAbove()
+	{
+		BillOfMaterials.Demand before = bom.partDemand(CART);
+		bom.partDemand(WHEEL);
+		bom.setPartQuantity(WHEEL, BOLT, 5);
+		assertEquals(6 + 4 * 5 + 1, bom.partDemand(CART).quantityOf(BOLT));
+		assertEquals(5, bom.partDemand(WHEEL).quantityOf(BOLT));
+		assertEquals(0.5 * 5, bom.unitCost(WHEEL));
+		bom.setProductQuantity(CART, WHEEL, 0);
+		assertEquals(6 + 1, bom.partDemand(CART).quantityOf(BOLT));
+		assertEquals(19, before.quantityOf(BOLT));
+	}
+
+	@Test
+	void priceChangeClearsTheCostsAbove()
+	{
+		assertEquals(17.5, bom.unitCost(CART));
+		inventory.updatePart(0, new InHouse(BOLT, "Bolt", 1, 100, 0, 1000, 1));
+		assertEquals(14.0 + 4 * 3.0 + 1.0, bom.unitCost(CART));
+		assertEquals(3.0, bom.unitCost(WHEEL));
+	}
+
+	@Test
+	void refusesCycles()
+	{
+		assertTrue(bom.contains(CART, FRAME));
+		assertFalse(bom.contains(FRAME, CART));
+		assertThrows(IllegalArgumentException.class, () -> bom.setProductQuantity(FRAME, CART, 1));
+		assertThrows(IllegalArgumentException.class, () -> bom.setProductQuantity(CART, CART, 1));
+		assertThrows(IllegalArgumentException.class, () -> bom.setPartQuantity(CART, BOLT, -1));
+		assertEquals(0, bom.getProductQuantity(FRAME, CART));
+	}
+
+	@Test
+	void clearDropsOnlyTheProductsOwnLines()
+	{
+		bom.clear(WHEEL);
+		assertEquals(0, bom.getPartQuantity(WHEEL, BOLT));
+		assertEquals(4, bom.getProductQuantity(CART, WHEEL));
+		assertEquals(7, bom.partDemand(CART).quantityOf(BOLT));
+		assertEquals(0, bom.partDemand(WHEEL).size());
+	}
+}
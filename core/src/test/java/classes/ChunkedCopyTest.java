@@ -0,0 +1,98 @@
+package classes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ChunkedCopyTest {
+	private static final int CHUNK = ChunkedCopy.CHUNK;
+
+	private final BatchList<Part> parts = new BatchList<>();
+	private ChunkedCopy<Part> copies;
+
+	@BeforeEach
+	void fill()
+	{
+		for(int id = 0; id < CHUNK * 4; id++)
+		{
+			parts.add(new InHouse(id, "Part " + id, 1, 1, 0, 5, 1));
+		}
+		copies = new ChunkedCopy<>(parts, SharedInventory::copyOf, Part::getId);
+	}
+
+	@Test
+	void copiesAreDetachedAndReused()
+	{
+		List<Part> copy = copies.copy();
+		assertEquals(parts.size(), copy.size());
+		assertNotSame(parts.get(0), copy.get(0));
+		assertEquals("Part 0", copy.get(0).getName());
+		assertSame(copy, copies.copy());
+		assertThrows(UnsupportedOperationException.class, () -> copy.set(0, parts.get(0)));
+		assertThrows(IndexOutOfBoundsException.class, () -> copy.get(copy.size()));
+	}
+
+	@Test
+	void changedIdRecopiesOnlyItsChunk()
+	{
+		List<Part> before = copies.copy();
+		parts.get(CHUNK + 3).setName("Renamed");
+		copies.changed(CHUNK + 3);
+		List<Part> after = copies.copy();
+		assertEquals("Renamed", after.get(CHUNK + 3).getName());
+		assertEquals("Part " + (CHUNK + 3), before.get(CHUNK + 3).getName());
+		assertSame(before.get(0), after.get(0));
+		assertNotSame(before.get(CHUNK), after.get(CHUNK));
+		assertSame(before.get(CHUNK * 2), after.get(CHUNK * 2));
+	}
+
+	@Test
+	void replacedRecopiesOnlyItsChunk()
+	{
+		List<Part> before = copies.copy();
+		parts.set(CHUNK * 2, new InHouse(-1, "Replacement", 1, 1, 0, 5, 1));
+		List<Part> after = copies.copy();
+		assertEquals("Replacement", after.get(CHUNK * 2).getName());
+		assertSame(before.get(CHUNK), after.get(CHUNK));
+		assertSame(before.get(CHUNK * 3), after.get(CHUNK * 3));
+	}
+
+	/**
+	 * Adding or removing moves every later element, so chunks from the change on are copied again
+	 */
+	@Test
+	void shiftRecopiesLaterChunks()
+	{
+		List<Part> before = copies.copy();
+		parts.remove(CHUNK + 1);
+		List<Part> after = copies.copy();
+		assertEquals(parts.size(), after.size());
+		assertSame(before.get(0), after.get(0));
+		for(int i = CHUNK; i < parts.size(); i++)
+		{
+			assertEquals(parts.get(i).getId(), after.get(i).getId());
+		}
+		parts.add(0, new InHouse(-2, "First", 1, 1, 0, 5, 1));
+		after = copies.copy();
+		assertEquals(-2, after.get(0).getId());
+		assertEquals(parts.get(parts.size() - 1).getId(), after.get(after.size() - 1).getId());
+	}
+
+	@Test
+	void invalidateRecopiesEverything()
+	{
+		List<Part> before = copies.copy();
+		parts.get(5).setPrice(9);
+		List<Part> stale = copies.copy();
+		assertSame(before, stale);
+		copies.invalidate();
+		List<Part> after = copies.copy();
+		assertEquals(9, after.get(5).getPrice());
+		assertNotSame(before.get(CHUNK * 3), after.get(CHUNK * 3));
+	}
+}
@@ -0,0 +1,74 @@
+package classes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class IntIntMapTest {
+	private static final int MISSING = -1;
+
+	@Test
+	void missingKeysGetTheMissingValue()
+	{
+		IntIntMap map = new IntIntMap(MISSING);
+		assertEquals(MISSING, map.get(5));
+		assertEquals(MISSING, map.put(5, 10));
+		assertEquals(10, map.put(5, 11));
+		assertEquals(11, map.get(5));
+	}
+
+	@Test
+	void removeOnlyMatchingValue()
+	{
+		IntIntMap map = new IntIntMap(MISSING);
+		map.put(1, 100);
+		assertFalse(map.remove(1, 99));
+		assertEquals(100, map.get(1));
+		assertTrue(map.remove(1, 100));
+		assertEquals(MISSING, map.get(1));
+		assertEquals(0, map.size());
+	}
+
+	@Test
+	void matchesHashMapUnderRandomChanges()
+	{
+		Random random = new Random(2);
+		IntIntMap map = new IntIntMap(MISSING);
+		Map<Integer, Integer> expected = new HashMap<>();
+		for(int i = 0; i < 200_000; i++)
+		{
+			int key = random.nextInt(3000);
+			if(random.nextInt(3) == 0)
+			{
+				Integer value = expected.get(key);
+				if(value != null)
+				{
+					assertTrue(map.remove(key, value));
+					expected.remove(key);
+				}
+				else
+				{
+					assertFalse(map.remove(key, i));
+				}
+			}
+			else
+			{
+				assertEquals(expected.getOrDefault(key, MISSING).intValue(), map.put(key, i));
+				expected.put(key, i);
+			}
+		}
+		assertEquals(expected.size(), map.size());
+		for(int key = 0; key < 3000; key++)
+		{
+			assertEquals(expected.getOrDefault(key, MISSING).intValue(), map.get(key));
+		}
+		map.clear();
+		assertEquals(0, map.size());
+		assertEquals(MISSING, map.get(1));
+	}
+}
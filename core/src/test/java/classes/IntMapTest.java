@@ -0,0 +1,84 @@
+package classes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class IntMapTest {
+	@Test
+	void putReturnsPreviousValue()
+	{
+		IntMap<String> map = new IntMap<>();
+		assertNull(map.put(7, "a"));
+		assertEquals("a", map.put(7, "b"));
+		assertEquals("b", map.get(7));
+		assertEquals(1, map.size());
+	}
+
+	@Test
+	void removeOnlyMatchingValue()
+	{
+		IntMap<String> map = new IntMap<>();
+		map.put(3, "x");
+		assertFalse(map.remove(3, "y"));
+		assertTrue(map.containsKey(3));
+		assertTrue(map.remove(3, "x"));
+		assertFalse(map.containsKey(3));
+		assertEquals(0, map.size());
+	}
+
+	/**
+	 * Keys that collide in the table, removed from the middle of their run, must leave the rest findable
+	 */
+	@Test
+	void removalKeepsCollidingKeysReachable()
+	{
+		IntMap<Integer> map = new IntMap<>();
+		for(int i = 0; i < 64; i++)
+		{
+			map.put(i * 1024, i);
+		}
+		for(int i = 0; i < 64; i += 3)
+		{
+			assertEquals(Integer.valueOf(i), map.remove(i * 1024));
+		}
+		for(int i = 0; i < 64; i++)
+		{
+			assertEquals(i % 3 == 0 ? null : Integer.valueOf(i), map.get(i * 1024));
+		}
+	}
+
+	@Test
+	void matchesHashMapUnderRandomChanges()
+	{
+		Random random = new Random(1);
+		IntMap<Integer> map = new IntMap<>();
+		Map<Integer, Integer> expected = new HashMap<>();
+		for(int i = 0; i < 200_000; i++)
+		{
+			int key = random.nextInt(5000) - 100;
+			if(random.nextInt(3) == 0)
+			{
+				assertEquals(expected.remove(key), map.remove(key));
+			}
+			else
+			{
+				assertEquals(expected.put(key, i), map.put(key, i));
+			}
+		}
+		assertEquals(expected.size(), map.size());
+		for(int key = -100; key < 4900; key++)
+		{
+			assertEquals(expected.get(key), map.get(key));
+		}
+		Map<Integer, Integer> seen = new HashMap<>();
+		map.forEachValue(value -> seen.merge(value, 1, Integer::sum));
+		assertEquals(expected.size(), seen.size());
+	}
+}
@@ -0,0 +1,218 @@
+package classes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class InventoryBatchTest {
+	private final Inventory inventory = new Inventory();
+	private final List<String> events = new ArrayList<>();
+	private Part wheel;
+	private Part seat;
+	private Product bike;
+
+	@BeforeEach
+	void fill()
+	{
+		wheel = new InHouse(1, "Wheel", 20, 10, 0, 50, 7);
+		seat = new Outsourced(2, "Seat", 30, 5, 0, 50, "Acme");
+		inventory.addPart(wheel);
+		inventory.addPart(seat);
+		bike = new Product(10, "Bike", 100, 1, 0, 20);
+		inventory.addProduct(bike);
+		bike.addAssociatedPart(wheel);
+		bike.addAssociatedPart(seat);
+		bike.addAssociatedPart(wheel);
+		inventory.getAllParts().addListener(new ChangeList.Listener<Part>() {
+			@Override
+			public void batchStarted()
+			{
+				events.add("started");
+			}
+
+			@Override
+			public void batchEnded()
+			{
+				events.add("ended");
+			}
+
+			@Override
+			public void added(int from, int to)
+			{
+			}
+
+			@Override
+			public void removed(int index, Part removed)
+			{
+			}
+
+			@Override
+			public void replaced(int index, Part replaced)
+			{
+			}
+		});
+	}
+
+	@Test
+	void undoesAddsWhenTheBodyThrows()
+	{
+		assertThrows(IllegalStateException.class, () -> inventory.batch(tx -> {
+			tx.addPart(new InHouse(3, "Chain", 5, 1, 0, 9, 1));
+			tx.addProduct(new Product(11, "Trike", 120, 0, 0, 5));
+			throw new IllegalStateException("stop");
+		}));
+		assertEquals(2, inventory.getAllParts().size());
+		assertEquals(1, inventory.getAllProducts().size());
+		assertNull(inventory.lookupPart(3));
+		assertNull(inventory.lookupProduct(11));
+		assertEquals(List.of("started", "ended"), events);
+	}
+
+	@Test
+	void undoRestoresDeletedPartAndItsAssociations()
+	{
+		assertEquals(5, inventory.buildableQuantity(10));
+		assertThrows(IllegalStateException.class, () -> inventory.batch(tx -> {
+			tx.deletePart(wheel);
+			throw new IllegalStateException("stop");
+		}));
+		Part restored = inventory.lookupPart(1);
+		assertEquals("Wheel", restored.getName());
+		assertEquals(0, inventory.getAllParts().indexOf(restored));
+		List<Part> associated = bike.getAllAssociatedParts();
+		assertEquals(3, associated.size());
+		assertSame(restored, associated.get(0));
+		assertSame(restored, associated.get(2));
+		assertEquals(List.of(bike), inventory.whereUsed(1));
+		assertEquals(5, inventory.buildableQuantity(10));
+	}
+
+	@Test
+	void undoRestoresReplacedPartAndDeletedProduct()
+	{
+		assertThrows(IllegalStateException.class, () -> inventory.batch(tx -> {
+			tx.updatePart(1, new Outsourced(2, "Saddle", 35, 4, 0, 50, "Other"));
+			tx.deleteProduct(bike);
+			throw new IllegalStateException("stop");
+		}));
+		Part part = inventory.lookupPart(2);
+		assertEquals("Seat", part.getName());
+		assertEquals("Acme", ((Outsourced) part).getCompanyName());
+		assertEquals(5, part.getStock());
+		assertSame(bike, inventory.lookupProduct(10));
+		assertEquals(List.of(bike), inventory.whereUsed(2));
+	}
+
+	@Test
+	void undoesEarlierBuildsInTheBatch()
+	{
+		assertThrows(IllegalStateException.class, () -> inventory.batch(tx -> {
+			inventory.build(10, 2);
+			throw new IllegalStateException("stop");
+		}));
+		assertEquals(10, inventory.lookupPart(1).getStock());
+		assertEquals(5, inventory.lookupPart(2).getStock());
+		assertEquals(1, bike.getStock());
+		assertEquals(5, inventory.buildableQuantity(10));
+	}
+
+	@Test
+	void undoesSetterEdits()
+	{
+		assertThrows(IllegalStateException.class, () -> inventory.batch(tx -> {
+			seat.setName("Saddle");
+			seat.setStock(40);
+			((Outsourced) seat).setCompanyName("Other");
+			seat.setStock(45);
+			bike.setPrice(1);
+			bike.setMax(99);
+			throw new IllegalStateException("stop");
+		}));
+		assertEquals("Seat", seat.getName());
+		assertEquals(5, seat.getStock());
+		assertEquals("Acme", ((Outsourced) seat).getCompanyName());
+		assertEquals(List.of(seat), inventory.lookupPart("Seat"));
+		assertEquals(100, bike.getPrice());
+		assertEquals(20, bike.getMax());
+		assertEquals(5, inventory.buildableQuantity(10));
+	}
+
+	/**
+	 * Setter edits in a failed batch are undone in memory as their log records are dropped, so a reopened
+	 * inventory matches the one that was open
+	 */
+	@Test
+	void undoneSetterEditsMatchTheLog(@TempDir Path dir) throws IOException
+	{
+		Inventory saved = new Inventory(dir);
+		Part cable = new InHouse(1, "Cable", 2, 10, 0, 100, 3);
+		saved.addPart(cable);
+		assertThrows(IllegalStateException.class, () -> saved.batch(tx -> {
+			cable.setName("Renamed");
+			cable.setStock(50);
+			tx.addPart(new InHouse(2, "Plug", 1, 1, 0, 9, 3));
+			throw new IllegalStateException("stop");
+		}));
+		cable.setPrice(3);
+		assertEquals("Cable", cable.getName());
+		assertEquals(10, cable.getStock());
+		saved.close();
+
+		Inventory reopened = new Inventory(dir);
+		try
+		{
+			assertEquals(1, reopened.getAllParts().size());
+			Part part = reopened.lookupPart(1);
+			assertEquals("Cable", part.getName());
+			assertEquals(10, part.getStock());
+			assertEquals(3, part.getPrice());
+		}
+		finally
+		{
+			reopened.close();
+		}
+	}
+
+	@Test
+	void replacementTakesEveryAssociation()
+	{
+		Part newWheel = new InHouse(1, "Wheel", 20, 40, 0, 50, 8);
+		inventory.updatePart(0, newWheel);
+		assertEquals(List.of(newWheel, seat, newWheel), bike.getAllAssociatedParts());
+		assertEquals(5, inventory.buildableQuantity(10));
+		newWheel.setStock(4);
+		assertEquals(2, inventory.buildableQuantity(10));
+		assertEquals(List.of(bike), inventory.whereUsed(1));
+	}
+
+	@Test
+	void refusesReplacementWithAnotherId()
+	{
+		assertThrows(IllegalArgumentException.class,
+				() -> inventory.updatePart(0, new InHouse(5, "Wheel", 20, 40, 0, 50, 8)));
+		assertSame(wheel, inventory.lookupPart(1));
+		assertNull(inventory.lookupPart(5));
+		assertEquals(List.of(bike), inventory.whereUsed(1));
+		assertEquals(List.of(wheel, seat, wheel), bike.getAllAssociatedParts());
+	}
+
+	@Test
+	void nestedBatchesCommitWithTheOutermost()
+	{
+		inventory.batch(outer -> {
+			outer.addPart(new InHouse(3, "Chain", 5, 1, 0, 9, 1));
+			inventory.batch(inner -> inner.addPart(new InHouse(4, "Pedal", 5, 1, 0, 9, 1)));
+		});
+		assertEquals(4, inventory.getAllParts().size());
+		assertEquals(List.of("started", "ended"), events);
+	}
+}
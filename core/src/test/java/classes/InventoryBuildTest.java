@@ -0,0 +1,95 @@
+package classes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class InventoryBuildTest {
+	private final Inventory inventory = new Inventory();
+	private Part wheel;
+	private Part seat;
+	private Product bike;
+
+	/**
+	 * A bike takes two wheels and a seat; the wheels' min and the bike's max bound the runs before the stock does
+	 */
+	@BeforeEach
+	void fill()
+	{
+		wheel = new InHouse(1, "Wheel", 20, 30, 10, 50, 7);
+		seat = new Outsourced(2, "Seat", 30, 20, 0, 50, "Acme");
+		inventory.addPart(wheel);
+		inventory.addPart(seat);
+		bike = new Product(10, "Bike", 100, 2, 0, 12);
+		inventory.addProduct(bike);
+		bike.addAssociatedPart(wheel);
+		bike.addAssociatedPart(seat);
+		bike.addAssociatedPart(wheel);
+	}
+
+	@Test
+	void buildsWithinTheBounds()
+	{
+		assertNull(inventory.checkBuild(10, 10));
+		assertTrue(inventory.build(10, 10));
+		assertEquals(10, wheel.getStock());
+		assertEquals(10, seat.getStock());
+		assertEquals(12, bike.getStock());
+	}
+
+	@Test
+	void refusesRunLeavingAPartBelowItsMin()
+	{
+		wheel.setStock(25);
+		String refusal = inventory.checkBuild(10, 8);
+		assertTrue(refusal.contains("Wheel") && refusal.contains("min of 10"), refusal);
+		assertFalse(inventory.build(10, 8));
+		assertEquals(25, wheel.getStock());
+		assertEquals(2, bike.getStock());
+		assertTrue(inventory.build(10, 7));
+		assertEquals(11, wheel.getStock());
+	}
+
+	@Test
+	void refusesRunTakingTheProductAboveItsMax()
+	{
+		String refusal = inventory.checkBuild(10, 11);
+		assertTrue(refusal.contains("Bike") && refusal.contains("max of 12"), refusal);
+		assertFalse(inventory.build(10, 11));
+		assertEquals(30, wheel.getStock());
+		assertEquals(2, bike.getStock());
+	}
+
+	@Test
+	void refusesRunThePartsDoNotCover()
+	{
+		bike.setMax(1000);
+		String refusal = inventory.checkBuild(10, 16);
+		assertEquals("Part stock only covers 15 units of Bike.", refusal);
+		assertFalse(inventory.build(10, 16));
+		assertTrue(inventory.checkBuild(99, 1).contains("99"));
+	}
+
+	@Test
+	void queueTurnsAwayTheSameRuns() throws Exception
+	{
+		List<Runnable> tasks = new ArrayList<>();
+		BuildQueue queue = new BuildQueue(inventory, tasks::add);
+		CompletableFuture<Boolean> first = queue.submit(10, 6);
+		CompletableFuture<Boolean> second = queue.submit(10, 6);
+		CompletableFuture<Boolean> third = queue.submit(10, 4);
+		tasks.forEach(Runnable::run);
+		assertTrue(first.get());
+		assertFalse(second.get());
+		assertTrue(third.get());
+		assertEquals(12, bike.getStock());
+		assertEquals(10, wheel.getStock());
+	}
+}
@@ -0,0 +1,222 @@
+package classes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class InventoryLogTest {
+	@TempDir
+	Path dir;
+
+	@Test
+	void replaysRecordsIntoANewInventory() throws IOException
+	{
+		InventoryLog log = open(new Inventory(), 0);
+		Part wheel = new InHouse(1, "Wheel", 20, 10, 0, 50, 7);
+		Part seat = new Outsourced(2, "Seat", 30, 5, 0, 50, "Acme");
+		Product bike = new Product(10, "Bike", 100, 1, 0, 20);
+		log.partAdded(wheel);
+		log.partAdded(seat);
+		log.productAdded(bike);
+		log.partAssociated(10, 1);
+		log.partAssociated(10, 2);
+		wheel.setStock(8);
+		log.partChanged(wheel);
+		log.partUpdated(1, new Outsourced(2, "Saddle", 35, 4, 0, 50, "Other"));
+		log.partDissociated(10, 2);
+		log.close();
+
+		Inventory replayed = reopen();
+		assertEquals(List.of("1 Wheel 20.0 8 0 50 m7", "2 Saddle 35.0 4 0 50 cOther"), describe(replayed));
+		Product product = replayed.lookupProduct(10);
+		assertEquals("Bike", product.getName());
+		assertEquals(List.of(replayed.lookupPart(1)), product.getAllAssociatedParts());
+	}
+
+	@Test
+	void dropsRolledBackBatches() throws IOException
+	{
+		InventoryLog log = open(new Inventory(), 0);
+		log.begin();
+		log.partAdded(new InHouse(1, "Wheel", 20, 10, 0, 50, 7));
+		log.partAdded(new InHouse(2, "Axle", 20, 10, 0, 50, 7));
+		log.rollback();
+		log.partAdded(new InHouse(3, "Bell", 2, 1, 0, 5, 7));
+		log.close();
+		assertEquals(List.of("3 Bell 2.0 1 0 5 m7"), describe(reopen()));
+	}
+
+	/**
+	 * A batch cut off before its end marker never committed, so replay applies none of it and the next
+	 * record is appended where it began
+	 */
+	@Test
+	void dropsTornBatchAndTornTail() throws IOException
+	{
+		InventoryLog log = open(new Inventory(), 0);
+		log.partAdded(new InHouse(1, "Wheel", 20, 10, 0, 50, 7));
+		log.begin();
+		log.partAdded(new InHouse(2, "Axle", 20, 10, 0, 50, 7));
+		log.partAdded(new InHouse(3, "Bell", 2, 1, 0, 5, 7));
+		log.commit();
+		log.close();
+		Path file = dir.resolve("inventory.log");
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE))
+		{
+			// Cut the end marker in half
+			channel.truncate(channel.size() - 3);
+		}
+		Inventory inventory = new Inventory();
+		log = open(inventory, 0);
+		assertEquals(List.of("1 Wheel 20.0 10 0 50 m7"), describe(inventory));
+		log.partAdded(new InHouse(4, "Chain", 5, 1, 0, 9, 7));
+		log.close();
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND))
+		{
+			channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 40, 1, 2, 3}));
+		}
+		assertEquals(List.of("1 Wheel 20.0 10 0 50 m7", "4 Chain 5.0 1 0 9 m7"), describe(reopen()));
+	}
+
+	@Test
+	void rotationSkipsRecordsInTheSnapshot() throws Exception
+	{
+		InventoryLog log = open(new Inventory(), 0);
+		log.partAdded(new InHouse(1, "Wheel", 20, 10, 0, 50, 7));
+		List<Long> saved = new ArrayList<>();
+		log.rotate(saved::add).get();
+		log.partAdded(new InHouse(2, "Axle", 20, 10, 0, 50, 7));
+		log.close();
+		assertEquals(List.of(1L), saved);
+
+		// Loaded as though the snapshot held the wheel, so only the axle is replayed
+		Inventory inventory = new Inventory();
+		log = open(inventory, 1);
+		assertEquals(List.of("2 Axle 20.0 10 0 50 m7"), describe(inventory));
+		log.close();
+
+		// A log from before the snapshot is all in it
+		inventory = new Inventory();
+		log = open(inventory, 2);
+		assertNull(inventory.lookupPart(2));
+		log.close();
+	}
+
+	@Test
+	void refusesLogNewerThanTheSnapshot() throws Exception
+	{
+		InventoryLog log = open(new Inventory(), 0);
+		log.rotate(generation -> {}).get();
+		log.close();
+		assertThrows(IOException.class, () -> open(new Inventory(), 0));
+	}
+
+	@Test
+	void failedSaveKeepsTheGeneration() throws Exception
+	{
+		InventoryLog log = open(new Inventory(), 0);
+		log.partAdded(new InHouse(1, "Wheel", 20, 10, 0, 50, 7));
+		CompletableFuture<Void> rotated = log.rotate(generation -> {
+			throw new IOException("disk full");
+		});
+		ExecutionException ex = assertThrows(ExecutionException.class, rotated::get);
+		assertEquals("disk full", ex.getCause().getMessage());
+		log.partAdded(new InHouse(2, "Axle", 20, 10, 0, 50, 7));
+		log.close();
+		assertEquals(2, reopen().getAllParts().size());
+	}
+
+	@Test
+	void inventoryRoundTripsThroughSnapshotAndLog() throws Exception
+	{
+		Inventory inventory = new Inventory(dir);
+		List<Part> added = new ArrayList<>();
+		for(int id = 1; id <= 2000; id++)
+		{
+			added.add(id % 2 == 0
+					? new InHouse(id, "Part " + id, id, id % 50, 0, 100, id)
+					: new Outsourced(id, "Part " + id, id, id % 50, 0, 100, "Company " + id % 7));
+		}
+		inventory.addParts(added);
+		Product product = new Product(1, "Kit", 10, 1, 0, 5);
+		inventory.addProduct(product);
+		product.addAssociatedPart(inventory.lookupPart(3));
+		inventory.snapshot();
+
+		// Keep changing while the background snapshot is saved; the changes belong to the next log
+		CompletableFuture<Void> saved = inventory.snapshotInBackground();
+		inventory.lookupPart(5).setStock(44);
+		inventory.deletePart(inventory.lookupPart(6));
+		inventory.updatePart(0, new InHouse(1, "First", 1, 1, 0, 9, 99));
+		saved.get();
+		inventory.addPart(new InHouse(5000, "Late", 1, 1, 0, 9, 1));
+		inventory.lookupPart(7).setName("Renamed");
+		saved = inventory.snapshotInBackground();
+		product.addAssociatedPart(inventory.lookupPart(5000));
+		saved.get();
+		List<String> expected = describe(inventory);
+		inventory.close();
+
+		Inventory reopened = new Inventory(dir);
+		try
+		{
+			assertEquals(expected, describe(reopened));
+			assertEquals(List.of(3, 5000), reopened.lookupProduct(1).getAllAssociatedParts().stream()
+					.map(Part::getId)
+					.collect(Collectors.toList()));
+		}
+		finally
+		{
+			reopened.close();
+		}
+	}
+
+	private InventoryLog open(Inventory inventory, long snapshotGeneration) throws IOException
+	{
+		InventoryLog log = new InventoryLog(dir.resolve("inventory.log"), InventoryLog.FsyncPolicy.NEVER, 1000);
+		try
+		{
+			log.replay(inventory, snapshotGeneration);
+		}
+		catch(IOException ex)
+		{
+			log.close();
+			throw ex;
+		}
+		return log;
+	}
+
+	private Inventory reopen() throws IOException
+	{
+		Inventory inventory = new Inventory();
+		open(inventory, 0).close();
+		return inventory;
+	}
+
+	private static List<String> describe(Inventory inventory)
+	{
+		List<String> parts = new ArrayList<>();
+		for(Part part : inventory.getAllParts())
+		{
+			parts.add(part.getId() + " " + part.getName() + " " + part.getPrice() + " " + part.getStock() + " "
+					+ part.getMin() + " " + part.getMax() + " " + (part instanceof InHouse
+							? "m" + ((InHouse) part).getMachineId()
+							: "c" + ((Outsourced) part).getCompanyName()));
+		}
+		return parts;
+	}
+}
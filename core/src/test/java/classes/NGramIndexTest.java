@@ -0,0 +1,165 @@
+package classes;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.Locale;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class NGramIndexTest {
+	private final BatchList<Part> parts = new BatchList<>();
+	private final IntMap<Part> byId = new IntMap<>();
+	private final NGramIndex<Part> index = new NGramIndex<>(parts, Part::getId, Part::getName, byId::get);
+
+	@Test
+	void findsNamesAndIdsIgnoringCase()
+	{
+		add(new InHouse(12, "Wheel", 1, 1, 0, 5, 1));
+		add(new InHouse(345, "Steering wheel", 1, 1, 0, 5, 1));
+		add(new InHouse(7, "Seat", 1, 1, 0, 5, 1));
+		index.prepare();
+		assertArrayEquals(new int[]{12, 345}, index.searchIds("WHEEL"));
+		assertArrayEquals(new int[]{7, 12, 345}, index.searchIds("e"));
+		assertArrayEquals(new int[]{7, 345}, index.searchIds("s"));
+		assertArrayEquals(new int[]{345}, index.searchIds("34"));
+		assertArrayEquals(new int[]{12}, index.searchIds("12"));
+		// The name and the id are indexed apart, so no match runs across the two
+		assertArrayEquals(new int[0], index.searchIds("l12"));
+		assertArrayEquals(new int[0], index.searchIds("wheels"));
+		assertArrayEquals(new int[0], index.searchIds(""));
+	}
+
+	/**
+	 * Changes between prepare() and the first search wait in the backlog and are applied by the build
+	 */
+	@Test
+	void appliesBacklogWhenBuilt()
+	{
+		add(new InHouse(1, "Bolt", 1, 1, 0, 5, 1));
+		add(new InHouse(2, "Nut", 1, 1, 0, 5, 1));
+		index.prepare();
+		long version = index.version();
+		add(new InHouse(3, "Bolt cutter", 1, 1, 0, 5, 1));
+		remove(0);
+		rename(0, "Wing nut");
+		assertNotEquals(version, index.version());
+		assertArrayEquals(new int[]{3}, index.searchIds("bolt"));
+		assertArrayEquals(new int[]{2}, index.searchIds("wing"));
+		assertArrayEquals(new int[0], index.searchIds("nut "));
+	}
+
+	/**
+	 * Changes made on the list's thread while another thread builds the index are kept, however the two interleave
+	 */
+	@Test
+	void keepsChangesMadeDuringBuild() throws Exception
+	{
+		for(int id = 0; id < 50_000; id++)
+		{
+			add(new InHouse(id, "Bolt " + id, 1, 1, 0, 5, 1));
+		}
+		index.prepare();
+		Thread builder = new Thread(() -> index.searchIds("bolt"));
+		builder.start();
+		for(int i = 0; i < 200; i++)
+		{
+			add(new InHouse(100_000 + i, "Washer", 1, 1, 0, 5, 1));
+			rename(i, "Nut");
+			remove(parts.size() - 100);
+		}
+		builder.join();
+		for(String query : new String[]{"washer", "nut", "bolt 499"})
+		{
+			assertArrayEquals(scan(query), index.searchIds(query), query);
+		}
+	}
+
+	@Test
+	void ignoresChangesBeforePrepare()
+	{
+		add(new InHouse(1, "Bolt", 1, 1, 0, 5, 1));
+		remove(0);
+		add(new InHouse(2, "Washer", 1, 1, 0, 5, 1));
+		index.prepare();
+		assertArrayEquals(new int[0], index.searchIds("bolt"));
+		assertEquals(1, index.search("wash").size());
+	}
+
+	@Test
+	void refineNarrowsEarlierResults()
+	{
+		add(new InHouse(1, "Red bolt", 1, 1, 0, 5, 1));
+		add(new InHouse(2, "Red nut", 1, 1, 0, 5, 1));
+		add(new InHouse(3, "Blue bolt", 1, 1, 0, 5, 1));
+		index.prepare();
+		int[] red = index.searchIds("red");
+		assertArrayEquals(new int[]{1, 2}, red);
+		assertArrayEquals(new int[]{1}, index.refineIds(red, "red b"));
+		remove(0);
+		assertArrayEquals(new int[0], index.refineIds(red, "red b"));
+	}
+
+	@Test
+	void matchesScanUnderRandomChanges()
+	{
+		Random random = new Random(4);
+		String[] words = {"bolt", "nut", "gear", "axle", "wheel", "spring", "seat", "chain"};
+		int nextId = 0;
+		index.prepare();
+		for(int i = 0; i < 3000; i++)
+		{
+			int op = random.nextInt(4);
+			if(op == 0 && !parts.isEmpty())
+			{
+				remove(random.nextInt(parts.size()));
+			}
+			else if(op == 1 && !parts.isEmpty())
+			{
+				rename(random.nextInt(parts.size()), words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)]);
+			}
+			else
+			{
+				add(new InHouse(nextId++, words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)], 1, 1, 0, 5, 1));
+			}
+			if(i % 100 == 0)
+			{
+				String query = words[random.nextInt(words.length)].substring(0, 1 + random.nextInt(3));
+				assertArrayEquals(scan(query), index.searchIds(query), query);
+			}
+		}
+		for(String word : words)
+		{
+			assertArrayEquals(scan(word), index.searchIds(word), word);
+		}
+	}
+
+	private int[] scan(String query)
+	{
+		String text = query.toLowerCase(Locale.ROOT);
+		return parts.stream()
+				.filter(part -> (part.getName().toLowerCase(Locale.ROOT) + "\0" + part.getId()).contains(text))
+				.mapToInt(Part::getId)
+				.sorted()
+				.toArray();
+	}
+
+	private void add(Part part)
+	{
+		byId.put(part.getId(), part);
+		parts.add(part);
+	}
+
+	private void remove(int at)
+	{
+		byId.remove(parts.remove(at).getId());
+	}
+
+	private void rename(int at, String name)
+	{
+		Part part = parts.get(at);
+		part.setName(name);
+		index.update(part);
+	}
+}
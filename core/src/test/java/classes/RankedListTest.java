@@ -0,0 +1,92 @@
+package classes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class RankedListTest {
+	@Test
+	void staysSortedUnderRandomChanges()
+	{
+		Random random = new Random(3);
+		RankedList<Integer> list = new RankedList<>(Comparator.naturalOrder());
+		List<Integer> expected = new ArrayList<>();
+		for(int i = 0; i < 20_000; i++)
+		{
+			int value = random.nextInt(5000);
+			int at = Collections.binarySearch(expected, value);
+			if(at >= 0)
+			{
+				assertEquals(at, list.delete(value));
+				expected.remove(at);
+			}
+			else
+			{
+				assertEquals(-at - 1, list.insert(value));
+				expected.add(-at - 1, value);
+			}
+		}
+		assertEquals(expected, new ArrayList<>(list));
+		for(int i = 0; i < expected.size(); i++)
+		{
+			assertEquals(i, list.rank(expected.get(i)));
+		}
+		assertEquals(-1, list.rank(-1));
+		assertEquals(-1, list.delete(-1));
+	}
+
+	@Test
+	void replaceMovesOnlyWhenTheOrderChanges()
+	{
+		// Ordered by the first element only, so two arrays with the same key are the same place
+		RankedList<int[]> list = new RankedList<>(Comparator.comparingInt(pair -> pair[0]));
+		for(int key = 0; key < 10; key++)
+		{
+			list.insert(new int[]{key, 0});
+		}
+		List<String> changes = new ArrayList<>();
+		list.addListener(new ChangeList.Listener<int[]>() {
+			@Override
+			public void added(int from, int to)
+			{
+				changes.add("added " + from);
+			}
+
+			@Override
+			public void removed(int index, int[] removed)
+			{
+				changes.add("removed " + index);
+			}
+
+			@Override
+			public void replaced(int index, int[] replaced)
+			{
+				changes.add("replaced " + index);
+			}
+		});
+		int[] five = list.get(5);
+		int[] newFive = {5, 1};
+		list.replace(five, newFive);
+		assertEquals(List.of("replaced 5"), changes);
+		assertEquals(1, list.get(5)[1]);
+
+		changes.clear();
+		list.replace(newFive, new int[]{20, 0});
+		assertEquals(List.of("removed 5", "added 9"), changes);
+		assertEquals(20, list.get(9)[0]);
+	}
+
+	@Test
+	void refusesPlacementByIndex()
+	{
+		RankedList<Integer> list = new RankedList<>(Comparator.naturalOrder());
+		assertThrows(UnsupportedOperationException.class, () -> list.add(0, 1));
+		assertThrows(IndexOutOfBoundsException.class, () -> list.get(0));
+	}
+}
@@ -0,0 +1,284 @@
+package classes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Many threads on one shared inventory at once: order intake reserving and adjusting stock, writers moving
+ * stock between parts, adding and removing parts and repricing the parts whose stock is reserved, and readers
+ * taking snapshots and reading the store.
+ * Run over each part store, the mapped one with a row cache far smaller than the parts read.
+ */
+class SharedInventoryStressTest {
+	// Parts 1 to CELLS only have their stock changed through reservations and adjustments
+	private static final int CELLS = 16;
+	// Parts after them are only changed by writes moving stock between them, which keeps their total
+	private static final int LEDGER = 32;
+	private static final int STABLE = CELLS + LEDGER;
+	private static final int CELL_STOCK = 500;
+	private static final int CELL_MIN = 10;
+	private static final int CELL_MAX = 1000;
+	private static final int LEDGER_STOCK = 100_000;
+	private static final int CHURN = 200;
+	// Rows the mapped store keeps, far fewer than the readers go through
+	private static final int CACHE_SIZE = 8;
+
+	private static final int RESERVERS = 4;
+	private static final int MOVERS = 2;
+	private static final int READERS = 4;
+	private static final int STOCK_OPS = 20_000;
+	private static final int WRITES = 2000;
+	private static final int READS = 2000;
+	private static final int STORE_PASSES = 4;
+
+	@TempDir
+	Path dir;
+
+	@ParameterizedTest
+	@ValueSource(strings = {"heap", "columnar", "mapped"})
+	void keepsStockAndSnapshotsConsistent(String store) throws Exception
+	{
+		PartStore partStore = newStore(store);
+		Inventory inventory = new Inventory(partStore);
+		List<Part> parts = new ArrayList<>();
+		for(int id = 1; id <= STABLE; id++)
+		{
+			parts.add(id <= CELLS
+					? new InHouse(id, name(id), 1, CELL_STOCK, CELL_MIN, CELL_MAX, id)
+					: new Outsourced(id, name(id), 1, LEDGER_STOCK, 0, Integer.MAX_VALUE, "Company " + id));
+		}
+		inventory.addParts(parts);
+		inventory.observePartId(STABLE);
+		ExecutorService stockWriter = Executors.newSingleThreadExecutor();
+		SharedInventory shared = new SharedInventory(inventory, stockWriter);
+		long ledgerTotal = (long) LEDGER * LEDGER_STOCK;
+		AtomicLongArray expected = new AtomicLongArray(CELLS + 1);
+		for(int id = 1; id <= CELLS; id++)
+		{
+			expected.set(id, CELL_STOCK);
+		}
+
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for(int t = 0; t < RESERVERS; t++)
+		{
+			long seed = t;
+			tasks.add(() -> {
+				Random random = new Random(seed);
+				for(int i = 0; i < STOCK_OPS; i++)
+				{
+					int id = 1 + random.nextInt(CELLS);
+					int quantity = 1 + random.nextInt(5);
+					if(random.nextBoolean())
+					{
+						StockReservation reservation = shared.tryReservePart(id, quantity, 1, TimeUnit.MINUTES);
+						if(reservation == null)
+						{
+							continue;
+						}
+						assertEquals(quantity, reservation.getQuantity());
+						if(random.nextBoolean())
+						{
+							assertTrue(reservation.commit());
+							expected.addAndGet(id, -quantity);
+						}
+						else
+						{
+							assertTrue(reservation.release());
+						}
+						assertFalse(reservation.isOpen());
+					}
+					else
+					{
+						int delta = random.nextBoolean() ? quantity : -quantity;
+						if(shared.adjustPartStock(id, delta))
+						{
+							expected.addAndGet(id, delta);
+						}
+					}
+				}
+				return null;
+			});
+		}
+		for(int t = 0; t < MOVERS; t++)
+		{
+			long seed = 100 + t;
+			tasks.add(() -> {
+				Random random = new Random(seed);
+				for(int i = 0; i < WRITES; i++)
+				{
+					int from = CELLS + 1 + random.nextInt(LEDGER);
+					int to = CELLS + 1 + random.nextInt(LEDGER);
+					shared.write(live -> {
+						Part giver = live.lookupPart(from);
+						Part taker = live.lookupPart(to);
+						giver.setStock(giver.getStock() - 1);
+						taker.setStock(taker.getStock() + 1);
+					});
+				}
+				return null;
+			});
+		}
+		tasks.add(() -> {
+			for(int i = 0; i < WRITES; i++)
+			{
+				boolean grow = i / CHURN % 2 == 0;
+				shared.write(live -> {
+					List<Part> all = live.getAllParts();
+					if(grow)
+					{
+						int id = live.nextPartId();
+						live.addPart(new InHouse(id, "Churn " + id, 1, 1, 0, 10, 1));
+					}
+					else
+					{
+						live.deletePart(all.get(all.size() - 1));
+					}
+				});
+			}
+			return null;
+		});
+		tasks.add(() -> {
+			// Edits to other fields of parts whose stock is changing in cells must not lose those changes
+			Random random = new Random(300);
+			for(int i = 0; i < WRITES; i++)
+			{
+				int id = 1 + random.nextInt(CELLS);
+				double price = 1 + random.nextInt(100);
+				shared.write(live -> live.lookupPart(id).setPrice(price));
+			}
+			return null;
+		});
+		for(int t = 0; t < READERS; t++)
+		{
+			long seed = 200 + t;
+			tasks.add(() -> {
+				Random random = new Random(seed);
+				long lastVersion = -1;
+				for(int i = 0; i < READS; i++)
+				{
+					SharedInventory.Snapshot snapshot = shared.snapshot();
+					assertTrue(snapshot.getVersion() >= lastVersion, "Snapshot versions went backwards");
+					lastVersion = snapshot.getVersion();
+					List<Part> all = snapshot.getAllParts();
+					assertTrue(all.size() >= STABLE && all.size() <= STABLE + CHURN, "Parts: " + all.size());
+					long seen = 0;
+					for(int id = 1; id <= STABLE; id++)
+					{
+						Part part = all.get(id - 1);
+						assertEquals(id, part.getId());
+						assertEquals(name(id), part.getName());
+						if(id <= CELLS)
+						{
+							assertTrue(part.getStock() >= CELL_MIN && part.getStock() <= CELL_MAX,
+									"Stock out of bounds: " + part.getStock());
+						}
+						else
+						{
+							seen += part.getStock();
+						}
+					}
+					assertEquals(ledgerTotal, seen, "Snapshot " + snapshot.getVersion() + " shows half a write");
+					int id = 1 + random.nextInt(STABLE);
+					assertEquals(name(id), snapshot.lookupPart(id).getName());
+					// Straight from the store, with other readers in it at the same time
+					int misread = shared.read(() -> {
+						for(int pass = 0; pass < STORE_PASSES; pass++)
+						{
+							for(int stable = 1; stable <= STABLE; stable++)
+							{
+								Part part = inventory.lookupPart(stable);
+								if(part == null || !name(stable).equals(part.getName()))
+								{
+									return stable;
+								}
+							}
+						}
+						return 0;
+					});
+					assertEquals(0, misread, "Part misread from the store");
+				}
+				return null;
+			});
+		}
+
+		ExecutorService threads = Executors.newFixedThreadPool(tasks.size());
+		try
+		{
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<Void>> running = new ArrayList<>();
+			for(Callable<Void> task : tasks)
+			{
+				running.add(threads.submit(() -> {
+					start.await();
+					return task.call();
+				}));
+			}
+			start.countDown();
+			for(Future<Void> task : running)
+			{
+				task.get(2, TimeUnit.MINUTES);
+			}
+		}
+		finally
+		{
+			threads.shutdownNow();
+			stockWriter.shutdown();
+			assertTrue(stockWriter.awaitTermination(1, TimeUnit.MINUTES));
+		}
+
+		shared.flushStock();
+		SharedInventory.Snapshot last = shared.snapshot();
+		for(int id = 1; id <= CELLS; id++)
+		{
+			assertEquals(expected.get(id), last.lookupPart(id).getStock(), "Stock of part " + id);
+		}
+		long seen = 0;
+		for(int id = CELLS + 1; id <= STABLE; id++)
+		{
+			seen += last.lookupPart(id).getStock();
+		}
+		assertEquals(ledgerTotal, seen);
+		assertEquals(STABLE, last.getAllParts().size());
+		if(partStore instanceof MappedPartStore)
+		{
+			// Reads racing on an unguarded access-ordered cache lose track of rows, and it stops evicting them
+			assertTrue(((MappedPartStore) partStore).cachedRows() <= CACHE_SIZE, "Row cache outgrew its size");
+		}
+		inventory.close();
+	}
+
+	private PartStore newStore(String store) throws IOException
+	{
+		switch(store)
+		{
+			case "heap":
+				return new HeapPartStore();
+			case "columnar":
+				return new ColumnarPartStore();
+			default:
+				return new MappedPartStore(dir.resolve("parts"), CACHE_SIZE);
+		}
+	}
+
+	private static String name(int id)
+	{
+		return "Part " + id;
+	}
+}
@@ -0,0 +1,76 @@
+package classes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SharedInventoryTest {
+	// Background stock writes wait here until the test runs them
+	private final List<Runnable> stockWrites = new ArrayList<>();
+	private SharedInventory shared;
+
+	@BeforeEach
+	void share()
+	{
+		Inventory inventory = new Inventory();
+		inventory.addPart(new InHouse(1, "Cable", 1, 10, 0, 100, 1));
+		shared = new SharedInventory(inventory, stockWrites::add);
+	}
+
+	@Test
+	void fieldEditKeepsStockNotYetWrittenBack()
+	{
+		assertTrue(shared.adjustPartStock(1, 5));
+		shared.write(live -> live.lookupPart(1).setPrice(2));
+		runStockWrites();
+		assertEquals(15, shared.snapshot().lookupPart(1).getStock());
+		assertEquals(2, shared.snapshot().lookupPart(1).getPrice());
+	}
+
+	@Test
+	void stockEditAddsToStockNotYetWrittenBack()
+	{
+		assertTrue(shared.adjustPartStock(1, 5));
+		StockReservation reservation = shared.tryReservePart(1, 3, 1, TimeUnit.MINUTES);
+		assertNotNull(reservation);
+		shared.write(live -> {
+			Part part = live.lookupPart(1);
+			part.setStock(part.getStock() + 20);
+		});
+		assertTrue(reservation.commit());
+		runStockWrites();
+		assertEquals(10 + 5 + 20 - 3, shared.snapshot().lookupPart(1).getStock());
+
+		// Once written back, an edit changes the stock from there
+		shared.write(live -> live.lookupPart(1).setStock(7));
+		assertTrue(shared.adjustPartStock(1, 1));
+		runStockWrites();
+		assertEquals(8, shared.snapshot().lookupPart(1).getStock());
+	}
+
+	@Test
+	void boundsEditAppliesToLaterChanges()
+	{
+		assertTrue(shared.adjustPartStock(1, 5));
+		shared.write(live -> live.lookupPart(1).setMax(16));
+		assertTrue(shared.adjustPartStock(1, 1));
+		assertFalse(shared.adjustPartStock(1, 1));
+		runStockWrites();
+		assertEquals(16, shared.snapshot().lookupPart(1).getStock());
+	}
+
+	private void runStockWrites()
+	{
+		List<Runnable> queued = new ArrayList<>(stockWrites);
+		stockWrites.clear();
+		queued.forEach(Runnable::run);
+		shared.flushStock();
+	}
+}
@@ -0,0 +1,90 @@
+package classes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class SlotPartStoreTest {
+	@TempDir
+	Path dir;
+
+	@ParameterizedTest
+	@ValueSource(strings = {"columnar", "mapped"})
+	void heldRowShowsItsReplacement(String store) throws IOException
+	{
+		SlotPartStore partStore = newStore(store);
+		Inventory inventory = new Inventory(partStore);
+		inventory.addPart(new InHouse(1, "Wheel", 20, 10, 0, 50, 7));
+		inventory.addPart(new InHouse(2, "Seat", 30, 5, 0, 50, 8));
+		Part held = inventory.lookupPart(1);
+
+		inventory.updatePart(0, new InHouse(1, "Front wheel", 25, 10, 0, 50, 7));
+		// Slot freed and reused by a later part, which the held row must not pick up
+		inventory.deletePart(inventory.lookupPart(2));
+		inventory.addPart(new InHouse(3, "Bell", 5, 1, 0, 50, 9));
+
+		assertEquals("Front wheel", held.getName());
+		assertEquals(1, held.getId());
+		assertEquals(held, inventory.lookupPart(1));
+		assertEquals("Bell", inventory.lookupPart(3).getName());
+		inventory.close();
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"columnar", "mapped"})
+	void replacementOfTheOtherKindGetsItsRow(String store) throws IOException
+	{
+		SlotPartStore partStore = newStore(store);
+		Inventory inventory = new Inventory(partStore);
+		inventory.addPart(new InHouse(1, "Wheel", 20, 10, 0, 50, 7));
+		assertTrue(inventory.lookupPart(1) instanceof InHouse);
+
+		inventory.updatePart(0, new Outsourced(1, "Wheel", 20, 10, 0, 50, "Acme"));
+
+		Part replaced = inventory.lookupPart(1);
+		assertTrue(replaced instanceof Outsourced);
+		assertEquals("Acme", ((Outsourced) replaced).getCompanyName());
+		inventory.close();
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"columnar", "mapped"})
+	void refusesRowOfFreeSlot(String store) throws IOException
+	{
+		SlotPartStore partStore = newStore(store);
+		Inventory inventory = new Inventory(partStore);
+		inventory.addPart(new InHouse(1, "Wheel", 20, 10, 0, 50, 7));
+		inventory.deletePart(inventory.lookupPart(1));
+
+		assertThrows(IllegalStateException.class, () -> partStore.row(0));
+		inventory.close();
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"heap", "columnar", "mapped"})
+	void refusesIdChangeInInventory(String store) throws IOException
+	{
+		Inventory inventory = new Inventory(store.equals("heap") ? new HeapPartStore() : newStore(store));
+		inventory.addPart(new InHouse(1, "Wheel", 20, 10, 0, 50, 7));
+		Part wheel = inventory.lookupPart(1);
+
+		assertThrows(IllegalStateException.class, () -> wheel.setId(2));
+
+		assertEquals(1, wheel.getId());
+		assertEquals(wheel, inventory.lookupPart(1));
+		assertNull(inventory.lookupPart(2));
+		inventory.close();
+	}
+
+	private SlotPartStore newStore(String store) throws IOException
+	{
+		return store.equals("columnar") ? new ColumnarPartStore() : new MappedPartStore(dir.resolve("parts"), 4);
+	}
+}
@@ -0,0 +1,96 @@
+package classes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class StockCellTest {
+	@Test
+	void reserveKeepsWhatIsLeftAtOrAboveMin()
+	{
+		StockCell cell = new StockCell(false, 1, 10, 2, 20);
+		assertTrue(cell.reserve(5));
+		assertTrue(cell.reserve(3));
+		assertFalse(cell.reserve(1));
+		assertEquals(10, cell.stock());
+		assertEquals(8, cell.reserved());
+		cell.unreserve(3);
+		assertEquals(5, cell.reserved());
+		assertTrue(cell.take(5));
+		assertEquals(5, cell.stock());
+		assertEquals(0, cell.reserved());
+	}
+
+	@Test
+	void adjustStaysWithinBoundsNetOfReservations()
+	{
+		StockCell cell = new StockCell(true, 1, 10, 2, 20);
+		assertTrue(cell.adjust(10));
+		assertFalse(cell.adjust(1));
+		assertTrue(cell.reserve(15));
+		assertFalse(cell.adjust(-4));
+		assertTrue(cell.adjust(-3));
+		assertEquals(17, cell.stock());
+	}
+
+	@Test
+	void adjustDoesNotOverflow()
+	{
+		StockCell cell = new StockCell(false, 1, Integer.MAX_VALUE - 1, 0, Integer.MAX_VALUE);
+		assertFalse(cell.adjust(2));
+		assertTrue(cell.adjust(1));
+		assertEquals(Integer.MAX_VALUE, cell.stock());
+		assertFalse(cell.adjust(Integer.MIN_VALUE));
+	}
+
+	@Test
+	void overwriteKeepsReservationsAndTakesNewBounds()
+	{
+		StockCell cell = new StockCell(false, 1, 10, 0, 20);
+		assertTrue(cell.reserve(4));
+		cell.overwrite(6, 3, 8);
+		assertEquals(6, cell.stock());
+		assertEquals(4, cell.reserved());
+		assertFalse(cell.reserve(0));
+		assertFalse(cell.adjust(3));
+		assertTrue(cell.adjust(2));
+	}
+
+	@Test
+	void overwriteAddsOnlyTheInventorysChange()
+	{
+		StockCell cell = new StockCell(false, 1, 10, 0, 20);
+		assertTrue(cell.adjust(5));
+		cell.overwrite(10, 0, 30);
+		assertEquals(15, cell.stock());
+		cell.overwrite(12, 0, 30);
+		assertEquals(17, cell.stock());
+		cell.saved(17);
+		cell.overwrite(17, 0, 30);
+		assertEquals(17, cell.stock());
+	}
+
+	@Test
+	void removedCellRefusesChanges()
+	{
+		StockCell cell = new StockCell(false, 1, 10, 0, 20);
+		assertTrue(cell.reserve(2));
+		cell.remove();
+		assertFalse(cell.reserve(1));
+		assertFalse(cell.adjust(1));
+		assertFalse(cell.take(2));
+		assertEquals(10, cell.stock());
+	}
+
+	@Test
+	void markDirtyOnlyOnceUntilClean()
+	{
+		StockCell cell = new StockCell(false, 1, 10, 0, 20);
+		assertTrue(cell.markDirty());
+		assertFalse(cell.markDirty());
+		cell.markClean();
+		assertTrue(cell.markDirty());
+	}
+}
@@ -0,0 +1,249 @@
+package classes.fx;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import javafx.collections.ModifiableObservableListBase;
+
+/**
+ * Observable list for showing results that are replaced as a whole, such as search results.
+ * Rather than swapping in a new list, which makes a table redraw every row and lose its selection and
+ * scroll position, {@link #update} works out what changed and tells listeners only that: the items
+ * removed, a reordering of the items kept, and the items added. Items are matched with equals; if either
+ * list holds an item twice, or the changes are scattered over many ranges, the list is replaced whole.
+ * @param <E> type of element
+ */
+public class DiffList<E> extends ModifiableObservableListBase<E> {
+	// Most separate ranges added and removed before a single replacement is cheaper
+	private static final int MAX_RUNS = 256;
+
+	private List<E> items = new ArrayList<>();
+
+	/**
+	 * Creates an empty list
+	 */
+	public DiffList()
+	{
+	}
+
+	/**
+	 * @param items to start with
+	 */
+	public DiffList(Collection<? extends E> items)
+	{
+		this.items.addAll(items);
+	}
+
+	/**
+	 * Makes this list hold the given items, in their order, with as few changes as possible
+	 * @param newItems items the list should hold
+	 */
+	public void update(List<? extends E> newItems)
+	{
+		if(items.isEmpty() || newItems.isEmpty())
+		{
+			setAll(newItems);
+			return;
+		}
+		Map<E, Integer> newPositions = new HashMap<>(newItems.size() * 4 / 3 + 1);
+		for(int i = 0; i < newItems.size(); i++)
+		{
+			if(newPositions.put(newItems.get(i), i) != null)
+			{
+				// Repeated items cannot be matched up, so start again
+				setAll(newItems);
+				return;
+			}
+		}
+		Set<E> oldItems = new HashSet<>(items);
+		if(oldItems.size() != items.size()
+				|| runs(items, newPositions::containsKey) + runs(newItems, oldItems::contains) > MAX_RUNS)
+		{
+			// Scattered changes cost listeners more than a single replacement
+			setAll(newItems);
+			return;
+		}
+		removeMissing(newPositions);
+		reorder(newPositions);
+		addNew(newItems, oldItems);
+	}
+
+	/**
+	 * Removes every item not in the new list, as one change with a range for each run of them
+	 */
+	private void removeMissing(Map<E, Integer> newPositions)
+	{
+		List<E> kept = new ArrayList<>(newPositions.size());
+		List<E> removed = new ArrayList<>();
+		beginChange();
+		for(E item : items)
+		{
+			if(newPositions.containsKey(item))
+			{
+				flushRemoved(kept.size(), removed);
+				kept.add(item);
+			}
+			else
+			{
+				removed.add(item);
+			}
+		}
+		flushRemoved(kept.size(), removed);
+		if(kept.size() != items.size())
+		{
+			items = kept;
+			modCount++;
+		}
+		endChange();
+	}
+
+	private void flushRemoved(int index, List<E> removed)
+	{
+		if(!removed.isEmpty())
+		{
+			nextRemove(index, new ArrayList<>(removed));
+			removed.clear();
+		}
+	}
+
+	/**
+	 * Puts the items kept into the order they have in the new list, as one permutation of the range that moved
+	 */
+	private void reorder(Map<E, Integer> newPositions)
+	{
+		int size = items.size();
+		int inOrder = 1;
+		while(inOrder < size && newPositions.get(items.get(inOrder - 1)) < newPositions.get(items.get(inOrder)))
+		{
+			inOrder++;
+		}
+		if(inOrder >= size)
+		{
+			return;
+		}
+		List<E> sorted = new ArrayList<>(items);
+		sorted.sort((a, b) -> Integer.compare(newPositions.get(a), newPositions.get(b)));
+		int first = 0;
+		while(items.get(first).equals(sorted.get(first)))
+		{
+			first++;
+		}
+		int last = size - 1;
+		while(items.get(last).equals(sorted.get(last)))
+		{
+			last--;
+		}
+		Map<E, Integer> sortedPositions = new HashMap<>((last - first + 1) * 4 / 3 + 1);
+		for(int i = first; i <= last; i++)
+		{
+			sortedPositions.put(sorted.get(i), i);
+		}
+		int[] permutation = new int[last - first + 1];
+		for(int i = first; i <= last; i++)
+		{
+			permutation[i - first] = sortedPositions.get(items.get(i));
+		}
+		beginChange();
+		items = sorted;
+		modCount++;
+		nextPermutation(first, last + 1, permutation);
+		endChange();
+	}
+
+	/**
+	 * Inserts the items of the new list not already here, as one change with a range for each run of them
+	 */
+	private void addNew(List<? extends E> newItems, Set<E> present)
+	{
+		if(items.size() == newItems.size())
+		{
+			return;
+		}
+		beginChange();
+		items = new ArrayList<>(newItems);
+		modCount++;
+		int i = 0;
+		while(i < items.size())
+		{
+			if(present.contains(items.get(i)))
+			{
+				i++;
+				continue;
+			}
+			int from = i;
+			while(i < items.size() && !present.contains(items.get(i)))
+			{
+				i++;
+			}
+			nextAdd(from, i);
+		}
+		endChange();
+	}
+
+	/**
+	 * @return number of runs of items in the list that fail the test
+	 */
+	private static <T> int runs(List<? extends T> list, Predicate<? super T> test)
+	{
+		int runs = 0;
+		boolean inRun = false;
+		for(T item : list)
+		{
+			boolean fails = !test.test(item);
+			if(fails && !inRun)
+			{
+				runs++;
+			}
+			inRun = fails;
+		}
+		return runs;
+	}
+
+	@Override
+	public boolean setAll(Collection<? extends E> newItems)
+	{
+		// One replacement of the whole range, rather than removing the old items one at a time
+		List<E> removed = items;
+		beginChange();
+		items = new ArrayList<>(newItems);
+		modCount++;
+		nextReplace(0, items.size(), removed);
+		endChange();
+		return true;
+	}
+
+	@Override
+	public E get(int index)
+	{
+		return items.get(index);
+	}
+
+	@Override
+	public int size()
+	{
+		return items.size();
+	}
+
+	@Override
+	protected void doAdd(int index, E element)
+	{
+		items.add(index, element);
+	}
+
+	@Override
+	protected E doSet(int index, E element)
+	{
+		return items.set(index, element);
+	}
+
+	@Override
+	protected E doRemove(int index)
+	{
+		return items.remove(index);
+	}
+}
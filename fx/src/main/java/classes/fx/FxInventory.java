@@ -0,0 +1,477 @@
+package classes.fx;
+
+import classes.ChangeList;
+import classes.InHouse;
+import classes.Inventory;
+import classes.InventoryListener;
+import classes.Outsourced;
+import classes.Part;
+import classes.Product;
+import classes.StockAlert;
+import classes.StockAlerts;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.ObservableList;
+
+/**
+ * JavaFX side of an inventory: observable views of its lists for the table views, and properties for the
+ * fields of its parts and products, so a cell showing a stock level updates when the stock changes.
+ * Properties are made the first time something asks for them and kept for as long as something uses them.
+ * Use on the JavaFX application thread, like the inventory.
+ */
+public class FxInventory {
+	private static final Set<String> FIELDS = Set.of("name", "price", "stock", "min", "max", "machineId", "companyName",
+			"buildable");
+	private final Inventory inventory;
+	private final ObservableList<Part> allParts;
+	private final ObservableList<Product> allProducts;
+	private final Map<Product, ObservableList<Part>> associatedParts = new WeakHashMap<>();
+	private final Registry partFields = new Registry();
+	private final Registry productFields = new Registry();
+	private StockAlerts alerts;
+	private ObservableList<StockAlert> needsReorder;
+
+	/**
+	 * @param inventory to view
+	 */
+	public FxInventory(Inventory inventory)
+	{
+		this.inventory = inventory;
+		this.allParts = new FxList<>(inventory.getAllParts());
+		this.allProducts = new FxList<>(inventory.getAllProducts());
+		inventory.addListener(new InventoryListener() {
+			@Override
+			public void partChanged(Part part)
+			{
+				refresh(part);
+			}
+
+			@Override
+			public void productChanged(Product product)
+			{
+				refresh(product);
+			}
+
+			@Override
+			public void buildableChanged(Product product)
+			{
+				refresh(product);
+			}
+		});
+		inventory.getAllParts().addListener(new ChangeList.Listener<Part>() {
+			@Override
+			public void added(int from, int to)
+			{
+				for(int i = from; i < to && !partFields.isEmpty(); i++)
+				{
+					refresh(inventory.getAllParts().get(i));
+				}
+			}
+
+			@Override
+			public void removed(int index, Part removed)
+			{
+				partFields.remove(removed.getId());
+			}
+
+			@Override
+			public void replaced(int index, Part replaced)
+			{
+				refresh(inventory.getAllParts().get(index));
+			}
+		});
+		inventory.getAllProducts().addListener(new ChangeList.Listener<Product>() {
+			@Override
+			public void added(int from, int to)
+			{
+				for(int i = from; i < to && !productFields.isEmpty(); i++)
+				{
+					refresh(inventory.getAllProducts().get(i));
+				}
+			}
+
+			@Override
+			public void removed(int index, Product removed)
+			{
+				productFields.remove(removed.getId());
+			}
+
+			@Override
+			public void replaced(int index, Product replaced)
+			{
+				refresh(inventory.getAllProducts().get(index));
+			}
+		});
+	}
+
+	/**
+	 * @return the inventory viewed
+	 */
+	public Inventory getInventory()
+	{
+		return inventory;
+	}
+
+	/**
+	 * @return the inventory's parts, as an observable list
+	 */
+	public ObservableList<Part> getAllParts()
+	{
+		return allParts;
+	}
+
+	/**
+	 * @return the inventory's products, as an observable list
+	 */
+	public ObservableList<Product> getAllProducts()
+	{
+		return allProducts;
+	}
+
+	/**
+	 * @return the inventory's stock alerts, watched from the first time something asks for them
+	 */
+	public StockAlerts getStockAlerts()
+	{
+		if(alerts == null)
+		{
+			alerts = new StockAlerts(inventory);
+		}
+		return alerts;
+	}
+
+	/**
+	 * @return parts and products below their min, furthest below first, as an observable list
+	 */
+	public ObservableList<StockAlert> getNeedsReorder()
+	{
+		if(needsReorder == null)
+		{
+			needsReorder = new FxList<>(getStockAlerts().getNeedsReorder());
+		}
+		return needsReorder;
+	}
+
+	/**
+	 * @param product a product
+	 * @return the parts associated to the product, as an observable list
+	 */
+	public ObservableList<Part> getAllAssociatedParts(Product product)
+	{
+		return associatedParts.computeIfAbsent(product, key -> new FxList<>(key.getAssociatedParts()));
+	}
+
+	/**
+	 * @param part a part in the inventory
+	 * @return its name, as a property that tells its listeners when the name changes
+	 */
+	public ReadOnlyStringProperty nameProperty(Part part)
+	{
+		return fields(part).name.getReadOnlyProperty();
+	}
+
+	/**
+	 * @param part a part in the inventory
+	 * @return its price, as a property that tells its listeners when the price changes
+	 */
+	public ReadOnlyDoubleProperty priceProperty(Part part)
+	{
+		return fields(part).price.getReadOnlyProperty();
+	}
+
+	/**
+	 * @param part a part in the inventory
+	 * @return its stock, as a property that tells its listeners when the stock changes
+	 */
+	public ReadOnlyIntegerProperty stockProperty(Part part)
+	{
+		return fields(part).stock.getReadOnlyProperty();
+	}
+
+	/**
+	 * @param part a part in the inventory
+	 * @return its min, as a property that tells its listeners when the min changes
+	 */
+	public ReadOnlyIntegerProperty minProperty(Part part)
+	{
+		return fields(part).min.getReadOnlyProperty();
+	}
+
+	/**
+	 * @param part a part in the inventory
+	 * @return its max, as a property that tells its listeners when the max changes
+	 */
+	public ReadOnlyIntegerProperty maxProperty(Part part)
+	{
+		return fields(part).max.getReadOnlyProperty();
+	}
+
+	/**
+	 * @param part an in-house part in the inventory
+	 * @return its machine id, as a property that tells its listeners when the machine id changes
+	 */
+	public ReadOnlyIntegerProperty machineIdProperty(InHouse part)
+	{
+		return fields(part).machineId.getReadOnlyProperty();
+	}
+
+	/**
+	 * @param part an outsourced part in the inventory
+	 * @return its company name, as a property that tells its listeners when the company name changes
+	 */
+	public ReadOnlyStringProperty companyNameProperty(Outsourced part)
+	{
+		return fields(part).companyName.getReadOnlyProperty();
+	}
+
+	/**
+	 * @param product a product in the inventory
+	 * @return its name, as a property that tells its listeners when the name changes
+	 */
+	public ReadOnlyStringProperty nameProperty(Product product)
+	{
+		return fields(product).name.getReadOnlyProperty();
+	}
+
+	/**
+	 * @param product a product in the inventory
+	 * @return its price, as a property that tells its listeners when the price changes
+	 */
+	public ReadOnlyDoubleProperty priceProperty(Product product)
+	{
+		return fields(product).price.getReadOnlyProperty();
+	}
+
+	/**
+	 * @param product a product in the inventory
+	 * @return its stock, as a property that tells its listeners when the stock changes
+	 */
+	public ReadOnlyIntegerProperty stockProperty(Product product)
+	{
+		return fields(product).stock.getReadOnlyProperty();
+	}
+
+	/**
+	 * @param product a product in the inventory
+	 * @return its min, as a property that tells its listeners when the min changes
+	 */
+	public ReadOnlyIntegerProperty minProperty(Product product)
+	{
+		return fields(product).min.getReadOnlyProperty();
+	}
+
+	/**
+	 * @param product a product in the inventory
+	 * @return its max, as a property that tells its listeners when the max changes
+	 */
+	public ReadOnlyIntegerProperty maxProperty(Product product)
+	{
+		return fields(product).max.getReadOnlyProperty();
+	}
+
+	/**
+	 * @param product a product in the inventory
+	 * @return units of it the parts in stock make, as a property that tells its listeners when that changes
+	 */
+	public ReadOnlyIntegerProperty buildableProperty(Product product)
+	{
+		return fields(product).buildable.getReadOnlyProperty();
+	}
+
+	/**
+	 * Finds a field's property by name, for table columns naming their field as a PropertyValueFactory does
+	 * @param item a part or product in the inventory
+	 * @param field name, price, stock, min or max; machineId or companyName for a part of that kind, or
+	 * buildable for a product
+	 * @return the field's property, or null if there is no such property here
+	 */
+	public ObservableValue<?> property(Object item, String field)
+	{
+		Fields fields;
+		if(!FIELDS.contains(field))
+		{
+			return null;
+		}
+		else if(item instanceof Part)
+		{
+			fields = fields((Part) item);
+		}
+		else if(item instanceof Product)
+		{
+			fields = fields((Product) item);
+		}
+		else
+		{
+			return null;
+		}
+		switch(field)
+		{
+			case "name":
+				return fields.name.getReadOnlyProperty();
+			case "price":
+				return fields.price.getReadOnlyProperty();
+			case "stock":
+				return fields.stock.getReadOnlyProperty();
+			case "min":
+				return fields.min.getReadOnlyProperty();
+			case "max":
+				return fields.max.getReadOnlyProperty();
+			case "machineId":
+				return item instanceof InHouse ? fields.machineId.getReadOnlyProperty() : null;
+			case "companyName":
+				return item instanceof Outsourced ? fields.companyName.getReadOnlyProperty() : null;
+			case "buildable":
+				return item instanceof Product ? fields.buildable.getReadOnlyProperty() : null;
+			default:
+				return null;
+		}
+	}
+
+	private Fields fields(Part part)
+	{
+		Fields fields = partFields.get(part.getId());
+		if(fields == null)
+		{
+			fields = new Fields(part.getName(), part.getPrice(), part.getStock(), part.getMin(), part.getMax());
+			fields.machineId = new ReadOnlyIntegerWrapper(fields, "machineId");
+			fields.companyName = new ReadOnlyStringWrapper(fields, "companyName");
+			fields.setKind(part);
+			partFields.put(part.getId(), fields);
+		}
+		return fields;
+	}
+
+	private Fields fields(Product product)
+	{
+		Fields fields = productFields.get(product.getId());
+		if(fields == null)
+		{
+			fields = new Fields(product.getName(), product.getPrice(), product.getStock(), product.getMin(),
+					product.getMax());
+			fields.buildable.set(inventory.buildableQuantity(product.getId()));
+			productFields.put(product.getId(), fields);
+		}
+		return fields;
+	}
+
+	private void refresh(Part part)
+	{
+		Fields fields = partFields.get(part.getId());
+		if(fields != null)
+		{
+			fields.set(part.getName(), part.getPrice(), part.getStock(), part.getMin(), part.getMax());
+			fields.setKind(part);
+		}
+	}
+
+	private void refresh(Product product)
+	{
+		Fields fields = productFields.get(product.getId());
+		if(fields != null)
+		{
+			fields.set(product.getName(), product.getPrice(), product.getStock(), product.getMin(),
+					product.getMax());
+			fields.buildable.set(inventory.buildableQuantity(product.getId()));
+		}
+	}
+
+	/**
+	 * Properties of one part or product. Each property holds the fields as its bean, so the fields stay
+	 * reachable while anything listens to one of them.
+	 */
+	private static final class Fields {
+		final ReadOnlyStringWrapper name;
+		final ReadOnlyDoubleWrapper price;
+		final ReadOnlyIntegerWrapper stock;
+		final ReadOnlyIntegerWrapper min;
+		final ReadOnlyIntegerWrapper max;
+		// Only set for products
+		final ReadOnlyIntegerWrapper buildable;
+		// Only made for parts; a part replaced by one of the other kind keeps its id, so it has both
+		ReadOnlyIntegerWrapper machineId;
+		ReadOnlyStringWrapper companyName;
+
+		Fields(String name, double price, int stock, int min, int max)
+		{
+			this.name = new ReadOnlyStringWrapper(this, "name", name);
+			this.price = new ReadOnlyDoubleWrapper(this, "price", price);
+			this.stock = new ReadOnlyIntegerWrapper(this, "stock", stock);
+			this.min = new ReadOnlyIntegerWrapper(this, "min", min);
+			this.max = new ReadOnlyIntegerWrapper(this, "max", max);
+			this.buildable = new ReadOnlyIntegerWrapper(this, "buildable");
+		}
+
+		void set(String name, double price, int stock, int min, int max)
+		{
+			this.name.set(name);
+			this.price.set(price);
+			this.stock.set(stock);
+			this.min.set(min);
+			this.max.set(max);
+		}
+
+		void setKind(Part part)
+		{
+			if(part instanceof InHouse)
+			{
+				machineId.set(((InHouse) part).getMachineId());
+			}
+			else if(part instanceof Outsourced)
+			{
+				companyName.set(((Outsourced) part).getCompanyName());
+			}
+		}
+	}
+
+	/**
+	 * Fields by id, held weakly; entries whose fields were collected are swept as the map grows
+	 */
+	private static final class Registry {
+		private final Map<Integer, WeakReference<Fields>> byId = new HashMap<>();
+		private int sweepAt = 64;
+
+		boolean isEmpty()
+		{
+			return byId.isEmpty();
+		}
+
+		Fields get(int id)
+		{
+			WeakReference<Fields> ref = byId.get(id);
+			return ref == null ? null : ref.get();
+		}
+
+		void put(int id, Fields fields)
+		{
+			if(byId.size() >= sweepAt)
+			{
+				Iterator<WeakReference<Fields>> it = byId.values().iterator();
+				while(it.hasNext())
+				{
+					if(it.next().get() == null)
+					{
+						it.remove();
+					}
+				}
+				sweepAt = Math.max(64, byId.size() * 2);
+			}
+			byId.put(id, new WeakReference<>(fields));
+		}
+
+		void remove(int id)
+		{
+			byId.remove(id);
+		}
+	}
+}
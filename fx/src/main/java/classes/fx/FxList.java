@@ -0,0 +1,95 @@
+package classes.fx;
+
+import classes.ChangeList;
+import javafx.collections.ObservableListBase;
+
+/**
+ * Observable view of an inventory list, for table views and other JavaFX controls.
+ * Each change to the list reaches the view's listeners as it would from an observable list, and a batch
+ * of changes reaches them as one change. Changes made through the view go straight to the list.
+ * Use on the JavaFX application thread, like the inventory.
+ * @param <E> type of element
+ */
+public class FxList<E> extends ObservableListBase<E> {
+	private final ChangeList<E> source;
+
+	/**
+	 * @param source list to view; the view listens to it for as long as the list is reachable
+	 */
+	public FxList(ChangeList<E> source)
+	{
+		this.source = source;
+		source.addListener(new Forwarder());
+	}
+
+	@Override
+	public E get(int index)
+	{
+		return source.get(index);
+	}
+
+	@Override
+	public int size()
+	{
+		return source.size();
+	}
+
+	@Override
+	public void add(int index, E element)
+	{
+		source.add(index, element);
+	}
+
+	@Override
+	public E set(int index, E element)
+	{
+		return source.set(index, element);
+	}
+
+	@Override
+	public E remove(int index)
+	{
+		return source.remove(index);
+	}
+
+	/**
+	 * Passes the list's changes on to the view's listeners
+	 */
+	private final class Forwarder implements ChangeList.Listener<E> {
+		@Override
+		public void batchStarted()
+		{
+			beginChange();
+		}
+
+		@Override
+		public void batchEnded()
+		{
+			endChange();
+		}
+
+		@Override
+		public void added(int from, int to)
+		{
+			beginChange();
+			nextAdd(from, to);
+			endChange();
+		}
+
+		@Override
+		public void removed(int index, E removed)
+		{
+			beginChange();
+			nextRemove(index, removed);
+			endChange();
+		}
+
+		@Override
+		public void replaced(int index, E replaced)
+		{
+			beginChange();
+			nextSet(index, replaced);
+			endChange();
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package classes.fx;
+
+import classes.Part;
+import classes.Product;
+import classes.SharedInventory;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+/**
+ * Observable lists showing a shared inventory, for table views on the JavaFX thread while other threads
+ * write to it. Writes are not passed on one by one: after a write, the lists are brought up to the latest
+ * snapshot on the JavaFX thread, and writes made before that happens are shown together as one update.
+ * The lists hold the snapshot's copies, so they are read only; make changes with SharedInventory.write.
+ */
+public class FxSharedInventory {
+	private final SharedInventory shared;
+	private final Executor fxThread;
+	private final DiffList<Part> allParts = new DiffList<>();
+	private final DiffList<Product> allProducts = new DiffList<>();
+	private final ObservableList<Part> readOnlyParts = FXCollections.unmodifiableObservableList(allParts);
+	private final ObservableList<Product> readOnlyProducts = FXCollections.unmodifiableObservableList(allProducts);
+	private final AtomicBoolean pending = new AtomicBoolean();
+	private final Runnable listener = this::written;
+	private SharedInventory.Snapshot shown;
+	private long updates;
+
+	/**
+	 * Shows the inventory as it is now; call on the JavaFX thread
+	 * @param shared inventory to show
+	 * @param fxThread runs tasks on the JavaFX thread, such as Platform::runLater
+	 */
+	public FxSharedInventory(SharedInventory shared, Executor fxThread)
+	{
+		this.shared = shared;
+		this.fxThread = fxThread;
+		shared.addListener(listener);
+		show();
+	}
+
+	/**
+	 * @return the parts of the snapshot shown, as a read-only observable list
+	 */
+	public ObservableList<Part> getAllParts()
+	{
+		return readOnlyParts;
+	}
+
+	/**
+	 * @return the products of the snapshot shown, as a read-only observable list
+	 */
+	public ObservableList<Product> getAllProducts()
+	{
+		return readOnlyProducts;
+	}
+
+	/**
+	 * @return the snapshot the lists show
+	 */
+	public SharedInventory.Snapshot getShown()
+	{
+		return shown;
+	}
+
+	/**
+	 * @return number of times the lists were brought up to date, however many writes each covered
+	 */
+	public long getUpdates()
+	{
+		return updates;
+	}
+
+	/**
+	 * Stops following the inventory; the lists keep showing the last snapshot
+	 */
+	public void close()
+	{
+		shared.removeListener(listener);
+	}
+
+	/**
+	 * Runs on the writing thread; asks for one update however many writes come before it runs
+	 */
+	private void written()
+	{
+		if(pending.compareAndSet(false, true))
+		{
+			fxThread.execute(this::show);
+		}
+	}
+
+	private void show()
+	{
+		// Cleared first, so a write landing after the snapshot is taken asks for another update
+		pending.set(false);
+		SharedInventory.Snapshot snapshot = shared.snapshot();
+		if(shown != null && snapshot.getVersion() == shown.getVersion())
+		{
+			return;
+		}
+		if(shown == null || snapshot.getAllParts() != shown.getAllParts())
+		{
+			allParts.update(snapshot.getAllParts());
+		}
+		if(shown == null || snapshot.getAllProducts() != shown.getAllProducts())
+		{
+			allProducts.update(snapshot.getAllProducts());
+		}
+		shown = snapshot;
+		updates++;
+	}
+}
@@ -1,7 +1,13 @@
 package biz;
 
+import classes.fx.FxInventory;
+import javafx.beans.value.ObservableValue;
 import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
 import javafx.scene.control.TextFormatter;
+import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.paint.Color;
 import java.util.function.UnaryOperator;
 
@@ -56,5 +62,42 @@ public class Helper {
             noResultsLabel.setText("No Results Found");
             return noResultsLabel;
         }
+
+        /**
+         * Puts a saved value into a field, bypassing its formatter's filter, which is meant for typing
+         * @param field to set
+         * @param text value to show
+         */
+        public static void setUnfiltered(TextField field, String text){
+            TextFormatter<?> formatter = field.getTextFormatter();
+            field.setTextFormatter(null);
+            field.setText(text);
+            field.setTextFormatter(formatter);
+        }
+    }
+
+    public static class TableHelper {
+        /**
+         * Points the table's PropertyValueFactory columns at the inventory's properties, so their cells
+         * update when a part or product changes; columns for fields without a property are left as they are
+         * @param table table showing parts or products
+         * @param fx inventory the parts or products belong to
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public static void liveColumns(TableView table, FxInventory fx){
+            for (Object column : table.getColumns()) {
+                TableColumn tableColumn = (TableColumn) column;
+                if (!(tableColumn.getCellValueFactory() instanceof PropertyValueFactory)) {
+                    continue;
+                }
+                PropertyValueFactory factory = (PropertyValueFactory) tableColumn.getCellValueFactory();
+                String field = factory.getProperty();
+                tableColumn.setCellValueFactory(cell -> {
+                    TableColumn.CellDataFeatures features = (TableColumn.CellDataFeatures) cell;
+                    ObservableValue value = fx.property(features.getValue(), field);
+                    return value != null ? value : factory.call(features);
+                });
+            }
+        }
     }
 }
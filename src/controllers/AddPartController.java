@@ -13,7 +13,7 @@ import javafx.scene.input.KeyEvent;
 import javafx.scene.paint.Color;
 import javafx.stage.Stage;
 
-public class AddPartController {
+public class AddPartController implements FormCache.Form {
 
     private Part part;
     private final Inventory inventory;
@@ -143,10 +143,30 @@ public class AddPartController {
         tfPriceCost.setTextFormatter(new TextFormatter<>(Helper.TextHelper.decimalFilter));
     }
 
+    /**
+     * Clears the form for another part, as the window is reused between opens
+     */
+    public void reset() {
+        part = null;
+        invalidSaveState = false;
+        lblMinMaxError.setVisible(false);
+        lblMinMaxError.setText("");
+        tfName.clear();
+        tfInv.clear();
+        tfPriceCost.clear();
+        tfMax.clear();
+        tfMin.clear();
+        tfMIDCNAME.clear();
+        rbInHouse.setSelected(true);
+        lblMIDCNAME.setText("Machine ID");
+        tfMIDCNAME.setTextFormatter(null);
+    }
+
     /**
      * Sets the scene value to use
      * @param scene to set controller to reference
      */
+    @Override
     public void setScene(Scene scene) {
         this.scene = scene;
     };
@@ -275,7 +295,7 @@ public class AddPartController {
                 if(!invalidSaveState){
                     if(rbInHouse.isSelected()){
                         part = new InHouse(
-                                inventory.getAllParts().size() + 1,
+                                inventory.nextPartId(),
                                 tfName.getText(),
                                 Double.parseDouble(tfPriceCost.getText()),
                                 Integer.parseInt(tfInv.getText()),
@@ -285,7 +305,7 @@ public class AddPartController {
                     }
                     else {
                         part = new Outsourced(
-                                inventory.getAllParts().size() + 1,
+                                inventory.nextPartId(),
                                 tfName.getText(),
                                 Double.parseDouble(tfPriceCost.getText()),
                                 Integer.parseInt(tfInv.getText()),
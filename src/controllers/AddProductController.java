@@ -2,8 +2,9 @@ package controllers;
 
 import biz.Helper;
 import classes.*;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import classes.fx.DiffList;
+import classes.fx.FxInventory;
+import classes.fx.FxList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.Scene;
@@ -11,12 +12,18 @@ import javafx.scene.control.*;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.paint.Color;
 import javafx.stage.Stage;
+import java.util.BitSet;
 import java.util.stream.Collectors;
 
-public class AddProductController {
+public class AddProductController implements FormCache.Form {
 
-    private final ObservableList<Part> associatedParts;
+    private final AssociatedParts associatedParts;
+    private final FxList<Part> assignedParts;
+    private final FxInventory fx;
     private final Inventory inventory;
+    private final SearchExecutor searchExecutor;
+    private SearchExecutor.Search<int[]> partSearch;
+    private final DiffList<Part> availableParts = new DiffList<>();
     private Product product;
     private Scene scene;
     private boolean invalidSaveState;
@@ -65,20 +72,27 @@ public class AddProductController {
 
     /**
      * Constructor for Add Part Controller
-     * @param inventory inventory to add new part to
+     * @param fx inventory to add new part to, with its observable views
+     * @param searchExecutor runs the part search box's queries
      */
-    public AddProductController(Inventory inventory)
+    public AddProductController(FxInventory fx, SearchExecutor searchExecutor)
     {
-        this.inventory = inventory;
-        associatedParts = FXCollections.observableArrayList();
+        this.fx = fx;
+        this.inventory = fx.getInventory();
+        this.searchExecutor = searchExecutor;
+        associatedParts = new AssociatedParts();
+        assignedParts = new FxList<>(associatedParts);
     }
 
     /**
-     * Called on controller initialization, sets initial data and binds events
+     * Called on controller initialization, binds events; reset() fills in the data
      */
     public void initialize() {
-        // Set available parts for product
-        tvAvailableParts.setItems(inventory.getAllParts());
+        // Available parts for product, kept in one list so later updates only change what differs
+        tvAvailableParts.setItems(availableParts);
+        tvAssignedParts.setItems(assignedParts);
+        Helper.TableHelper.liveColumns(tvAvailableParts, fx);
+        Helper.TableHelper.liveColumns(tvAssignedParts, fx);
         tvAvailableParts.setPlaceholder(Helper.TextHelper.getNoResultsLabel());
         tvAssignedParts.setPlaceholder(new Label("No Associated Parts."));
 
@@ -118,7 +132,14 @@ public class AddProductController {
             }
         }));
 
-        // Part Search Binding
+        // Part Search Binding, showing search latency in the search box tooltip
+        partSearch = searchExecutor.newSearch(inventory.newPartSearch()::find, ids -> {
+            availableParts.update(inventory.lookupParts(associatedParts.without(ids)));
+            if(tfSearchPart.getTooltip() == null){
+                tfSearchPart.setTooltip(new Tooltip());
+            }
+            tfSearchPart.getTooltip().setText(partSearch.getMetrics().toString());
+        });
         tfSearchPart.setOnKeyReleased(keyEvent -> {
             try {
                 handleSearchPartAction(keyEvent);
@@ -163,16 +184,36 @@ public class AddProductController {
         tfPriceCost.setTextFormatter(new TextFormatter<>(Helper.TextHelper.decimalFilter));
     }
 
+    /**
+     * Clears the form for another product, as the window is reused between opens
+     */
+    public void reset() {
+        product = null;
+        invalidSaveState = false;
+        lblMinMaxError.setVisible(false);
+        lblMinMaxError.setText("");
+        tfName.clear();
+        tfInv.clear();
+        tfPriceCost.clear();
+        tfMax.clear();
+        tfMin.clear();
+        partSearch.cancel();
+        tfSearchPart.clear();
+        associatedParts.clear();
+        updateAvailableParts();
+    }
+
     /**
      * Sets the scene value to use
      * @param scene to set controller to reference
      */
+    @Override
     public void setScene(Scene scene) {
         this.scene = scene;
     };
 
     /**
-     * On Search TF Key Up, updates the part table view with matching results
+     * On Search TF Key Up, updates the part table view with matching results once typing pauses
      * @param event action event of lifting up a key press in the text field
      * @throws Exception possible Exception thrown
      */
@@ -180,15 +221,11 @@ public class AddProductController {
     protected void handleSearchPartAction(KeyEvent event) throws Exception {
         try {
             if(tfSearchPart.getText().isEmpty() || tfSearchPart.getText() == null){
+                partSearch.cancel();
                 updateAvailableParts();
             }
             else{
-                tvAvailableParts.setItems(inventory.getAllParts()
-                        .stream()
-                        .filter(part -> (part.getName().toLowerCase().contains(tfSearchPart.getText().toLowerCase())
-                                || Integer.toString(part.getId()).contains(tfSearchPart.getText()))
-                                && !associatedParts.contains(part))
-                        .collect(Collectors.toCollection(FXCollections::observableArrayList)));
+                partSearch.submit(tfSearchPart.getText());
             }
         }
         catch(Exception ex){
@@ -273,9 +310,9 @@ public class AddProductController {
     protected void handleAddButtonAction(ActionEvent event) throws Exception {
         try {
             Part selectedPart = (Part)tvAvailableParts.getSelectionModel().getSelectedItem();
-            if(selectedPart != null && associatedParts.stream().noneMatch(part -> part.getId() == selectedPart.getId())){
+            if(selectedPart != null && !associatedParts.containsId(selectedPart.getId())){
                 associatedParts.add(selectedPart);
-                tvAssignedParts.setItems(associatedParts);
+                tvAssignedParts.setItems(assignedParts);
                 updateAvailableParts();
             }
             else {
@@ -298,7 +335,7 @@ public class AddProductController {
     protected void handleRemoveButtonAction(ActionEvent event) throws Exception {
         try {
             Part selectedPart = (Part)tvAssignedParts.getSelectionModel().getSelectedItem();
-            if(selectedPart != null && associatedParts.stream().anyMatch(part -> part.getId() == selectedPart.getId())){
+            if(selectedPart != null && associatedParts.containsId(selectedPart.getId())){
                 Alert confirmationAlert = new Alert(Alert.AlertType.CONFIRMATION,
                         "Remove " + selectedPart.getName() + "?",
                         ButtonType.YES,
@@ -307,8 +344,8 @@ public class AddProductController {
 
                 confirmationAlert.showAndWait();
                 if(confirmationAlert.getResult() == ButtonType.YES){
-                    product.deleteAssociatedPart(selectedPart);
-                    tvAssignedParts.setItems(product.getAllAssociatedParts());
+                    associatedParts.remove(selectedPart);
+                    tvAssignedParts.setItems(assignedParts);
                     updateAvailableParts();
                 }
                 else {
@@ -367,7 +404,7 @@ public class AddProductController {
             else {
                 if(!invalidSaveState){
                     product = new Product(
-                            inventory.getAllProducts().size() +1,
+                            inventory.nextProductId(),
                             tfName.getText(),
                             Double.parseDouble(tfPriceCost.getText()),
                             Integer.parseInt(tfInv.getText()),
@@ -409,18 +446,23 @@ public class AddProductController {
      * Updates available part list based on associated parts
      */
     protected void updateAvailableParts(){
-        tvAvailableParts.setItems(
+        if(tfSearchPart.getText() != null && !tfSearchPart.getText().isEmpty()){
+            partSearch.submit(tfSearchPart.getText());
+            return;
+        }
+        BitSet assigned = associatedParts.idBits();
+        availableParts.update(
                 inventory.getAllParts()
                         .stream()
-                        .filter(part -> !associatedParts.contains(part))
-                        .collect(Collectors.toCollection(FXCollections::observableArrayList)));
-        tvAvailableParts.refresh();
+                        .filter(part -> !assigned.get(part.getId()))
+                        .collect(Collectors.toList()));
     }
 
     /**
      * Gets the stage and closes the window.
      */
     private void closeWindow(){
+        partSearch.cancel();
         Stage stage = (Stage)scene.getWindow();
         stage.close();
     }
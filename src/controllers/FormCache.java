@@ -0,0 +1,212 @@
+package controllers;
+
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the Add/Modify windows loaded between uses, so opening one does not parse its FXML again.
+ * Each form is loaded once, normally in the background just after startup, and its window and controller
+ * are then reused: open() rebinds the controller to what is being edited and shows the window, and closing
+ * the window puts it back for next time. Use on the JavaFX application thread, apart from warm()'s loading.
+ */
+public class FormCache {
+
+    // Windows kept per form; more only build up if several of the same form were open at once
+    private static final int MAX_IDLE = 2;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final Map<String, Supplier<? extends Form>> controllers = new LinkedHashMap<>();
+    private final Map<String, Deque<Window>> idle = new LinkedHashMap<>();
+    private final Map<String, Latency> latency = new LinkedHashMap<>();
+
+    /**
+     * A controller whose window can be shown again after it closes
+     */
+    public interface Form {
+        /**
+         * @param scene the controller's window shows
+         */
+        void setScene(Scene scene);
+    }
+
+    /**
+     * Adds a form to the cache
+     * @param fxml resource path of the form
+     * @param controller creates the form's controller
+     */
+    public void register(String fxml, Supplier<? extends Form> controller) {
+        controllers.put(fxml, controller);
+        idle.put(fxml, new ArrayDeque<>());
+        latency.put(fxml, new Latency());
+    }
+
+    /**
+     * Loads a window for every form not yet loaded, parsing the FXML on the given executor and finishing the
+     * window on the JavaFX application thread
+     * @param background runs the loading, such as a single daemon thread
+     */
+    public void warm(Executor background) {
+        for (String fxml : controllers.keySet()) {
+            if (!idle.get(fxml).isEmpty()) {
+                continue;
+            }
+            background.execute(() -> {
+                try {
+                    Form controller = controllers.get(fxml).get();
+                    Parent root = load(fxml, controller);
+                    Platform.runLater(() -> {
+                        if (idle.get(fxml).isEmpty()) {
+                            idle.get(fxml).push(new Window(fxml, root, controller));
+                        }
+                    });
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            });
+        }
+    }
+
+    /**
+     * Shows a form, reusing a closed window of it if there is one
+     * @param fxml resource path of a registered form
+     * @param title of the window
+     * @param bind readies the controller, such as filling its fields with the part being modified
+     * @param onHidden runs once the window closes, or null
+     * @param <C> type of the form's controller
+     * @return the form's controller
+     * @throws IOException if the form has to be loaded and cannot be
+     */
+    public <C extends Form> C open(String fxml, String title, Consumer<? super C> bind, Runnable onHidden)
+            throws IOException {
+        long started = System.nanoTime();
+        Window window = idle.get(fxml).poll();
+        boolean cached = window != null;
+        if (!cached) {
+            Form controller = controllers.get(fxml).get();
+            window = new Window(fxml, load(fxml, controller), controller);
+        }
+        @SuppressWarnings("unchecked")
+        C controller = (C) window.controller;
+        bind.accept(controller);
+        window.onHidden = onHidden;
+        window.stage.setTitle(title);
+        window.stage.show();
+        latency.get(fxml).record(cached, System.nanoTime() - started);
+        return controller;
+    }
+
+    /**
+     * @param fxml resource path of a registered form
+     * @return time taken to open it, with and without a cached window
+     */
+    public Latency getLatency(String fxml) {
+        return latency.get(fxml);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder("Form open latency");
+        latency.forEach((fxml, forms) -> summary.append(System.lineSeparator()).append(fxml).append(": ").append(forms));
+        return summary.toString();
+    }
+
+    private Parent load(String fxml, Form controller) throws IOException {
+        FXMLLoader loader = new FXMLLoader(getClass().getResource(fxml));
+        loader.setController(controller);
+        return loader.load();
+    }
+
+    /**
+     * A loaded form's window, which goes back to the cache when closed
+     */
+    private final class Window {
+        final Form controller;
+        final Stage stage = new Stage();
+        Runnable onHidden;
+
+        Window(String fxml, Parent root, Form controller) {
+            this.controller = controller;
+            Scene scene = new Scene(root);
+            stage.setScene(scene);
+            controller.setScene(scene);
+            stage.setOnHidden(event -> {
+                Deque<Window> windows = idle.get(fxml);
+                if (windows.size() < MAX_IDLE) {
+                    windows.push(this);
+                }
+                Runnable hidden = onHidden;
+                onHidden = null;
+                if (hidden != null) {
+                    hidden.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * Time taken to open a form, from the request to the window being shown, split by whether a cached
+     * window was reused or the FXML had to be loaded
+     */
+    public static final class Latency {
+        private long cachedOpens;
+        private long cachedNanos;
+        private long loadedOpens;
+        private long loadedNanos;
+
+        void record(boolean cached, long nanos) {
+            if (cached) {
+                cachedOpens++;
+                cachedNanos += nanos;
+            } else {
+                loadedOpens++;
+                loadedNanos += nanos;
+            }
+        }
+
+        /**
+         * @return number of opens that reused a cached window
+         */
+        public long getCachedOpens() {
+            return cachedOpens;
+        }
+
+        /**
+         * @return mean time of opens that reused a cached window, in milliseconds
+         */
+        public double getMeanCachedMillis() {
+            return cachedOpens == 0 ? 0 : cachedNanos / NANOS_PER_MILLI / cachedOpens;
+        }
+
+        /**
+         * @return number of opens that loaded the FXML
+         */
+        public long getLoadedOpens() {
+            return loadedOpens;
+        }
+
+        /**
+         * @return mean time of opens that loaded the FXML, in milliseconds
+         */
+        public double getMeanLoadedMillis() {
+            return loadedOpens == 0 ? 0 : loadedNanos / NANOS_PER_MILLI / loadedOpens;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d cached, mean %.1f ms; %d loaded, mean %.1f ms",
+                    cachedOpens, getMeanCachedMillis(), loadedOpens, getMeanLoadedMillis());
+        }
+    }
+}
@@ -2,22 +2,37 @@ package controllers;
 
 import biz.Helper;
 import classes.Inventory;
+import classes.InventoryImporter;
 import classes.Part;
 import classes.Product;
+import classes.SearchExecutor;
+import classes.fx.DiffList;
+import classes.fx.FxInventory;
 import javafx.application.Platform;
-import javafx.collections.FXCollections;
+import javafx.beans.binding.Bindings;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.input.KeyEvent;
-import javafx.stage.Stage;
-import java.util.stream.Collectors;
+import javafx.stage.FileChooser;
+import java.io.File;
 
 public class MainController {
 
+    private static final String ADD_PART_FORM = "/ui/AddPartForm.fxml";
+    private static final String MODIFY_PART_FORM = "/ui/ModifyPartForm.fxml";
+    private static final String ADD_PRODUCT_FORM = "/ui/AddProductForm.fxml";
+    private static final String MODIFY_PRODUCT_FORM = "/ui/ModifyProductForm.fxml";
+
+    private final FxInventory fx;
     private final Inventory inventory;
+    private final SearchExecutor searchExecutor;
+    private final FormCache forms;
+    private SearchExecutor.Search<int[]> partSearch;
+    private SearchExecutor.Search<int[]> productSearch;
+    private final DiffList<Part> partResults = new DiffList<>();
+    private final DiffList<Product> productResults = new DiffList<>();
 
     @FXML
     private TextField tfSearchPart;
@@ -31,6 +46,12 @@ public class MainController {
     @FXML
     private TableView tvProduct;
 
+    @FXML
+    private TableView tvReorder;
+
+    @FXML
+    private Label lblReorder;
+
     @FXML
     private Button btnModify;
 
@@ -49,9 +70,26 @@ public class MainController {
     @FXML
     private Button btnDeleteProduct;
 
+    @FXML
+    private Button btnBuildProduct;
+
     @FXML
     private Button btnExit;
 
+    @FXML
+    private Button btnImport;
+
+    @FXML
+    private Button btnCancelImport;
+
+    @FXML
+    private ProgressBar pbImport;
+
+    @FXML
+    private Label lblImport;
+
+    private Task<InventoryImporter.Result> importTask;
+
     @FXML
     private TableColumn tcPartId;
 
@@ -60,11 +98,20 @@ public class MainController {
 
     /**
      * Main controller constructor
-     * @param inventory root object
+     * @param fx root object, with its observable views
+     * @param searchExecutor runs the search boxes' queries
+     * @param forms keeps the Add/Modify windows for reuse; the forms are registered with it here
      */
-    public MainController(Inventory inventory)
+    public MainController(FxInventory fx, SearchExecutor searchExecutor, FormCache forms)
     {
-        this.inventory = inventory;
+        this.fx = fx;
+        this.inventory = fx.getInventory();
+        this.searchExecutor = searchExecutor;
+        this.forms = forms;
+        forms.register(ADD_PART_FORM, () -> new AddPartController(inventory));
+        forms.register(MODIFY_PART_FORM, () -> new ModifyPartController(inventory));
+        forms.register(ADD_PRODUCT_FORM, () -> new AddProductController(fx, searchExecutor));
+        forms.register(MODIFY_PRODUCT_FORM, () -> new ModifyProductController(fx, searchExecutor));
     }
 
     /**
@@ -72,11 +119,32 @@ public class MainController {
      */
     public void initialize() {
         // Initialize Table Views
-        tvPart.setItems(inventory.getAllParts());
-        tvProduct.setItems(inventory.getAllProducts());
+        tvPart.setItems(fx.getAllParts());
+        tvProduct.setItems(fx.getAllProducts());
+        Helper.TableHelper.liveColumns(tvPart, fx);
+        Helper.TableHelper.liveColumns(tvProduct, fx);
         tvPart.setPlaceholder(Helper.TextHelper.getNoResultsLabel());
         tvProduct.setPlaceholder(Helper.TextHelper.getNoResultsLabel());
 
+        // Initialize the reorder list, kept current as stock changes
+        tvReorder.setItems(fx.getNeedsReorder());
+        tvReorder.setPlaceholder(new Label("Nothing is below its min"));
+        lblReorder.textProperty().bind(Bindings.size(fx.getNeedsReorder()).asString("%d below min"));
+
+        // Initialize background searches, showing their latency in the search box tooltips
+        tfSearchPart.setTooltip(new Tooltip());
+        tfSearchProduct.setTooltip(new Tooltip());
+        partSearch = searchExecutor.newSearch(inventory.newPartSearch()::find, ids -> {
+            partResults.update(inventory.lookupParts(ids));
+            tvPart.setItems(partResults);
+            tfSearchPart.getTooltip().setText(partSearch.getMetrics().toString());
+        });
+        productSearch = searchExecutor.newSearch(inventory.newProductSearch()::find, ids -> {
+            productResults.update(inventory.lookupProducts(ids));
+            tvProduct.setItems(productResults);
+            tfSearchProduct.getTooltip().setText(productSearch.getMetrics().toString());
+        });
+
         // Add Part Button Action Binding
         btnAdd.setOnAction((event -> {
             try {
@@ -131,6 +199,15 @@ public class MainController {
             }
         });
 
+        // Build Product Button Action Binding
+        btnBuildProduct.setOnAction(event -> {
+            try {
+                handleBuildProductButtonAction(event);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+
         // Exit Button Action Binding
         btnExit.setOnAction(event -> {
             try {
@@ -140,6 +217,24 @@ public class MainController {
             }
         });
 
+        // Import Button Action Binding
+        btnImport.setOnAction(event -> {
+            try {
+                handleImportButtonAction(event);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+
+        // Cancel Import Button Action Binding
+        btnCancelImport.setOnAction(event -> {
+            try {
+                handleCancelImportButtonAction(event);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+
         // Part Search Binding
         tfSearchPart.setOnKeyReleased(keyEvent -> {
             try {
@@ -160,7 +255,7 @@ public class MainController {
     }
 
     /**
-     * On Search TF Key Up, updates the part table view with matching results
+     * On Search TF Key Up, updates the part table view with matching results once typing pauses
      * @param event action event of lifting up a key press in the text field
      * @throws Exception possible Exception thrown
      */
@@ -168,14 +263,11 @@ public class MainController {
     protected void handleSearchPartAction(KeyEvent event) throws Exception {
         try {
             if(tfSearchPart.getText().isEmpty() || tfSearchPart.getText() == null){
-                tvPart.setItems(inventory.getAllParts());
+                partSearch.cancel();
+                tvPart.setItems(fx.getAllParts());
             }
             else{
-                tvPart.setItems(inventory.getAllParts()
-                        .stream()
-                        .filter(part -> part.getName().toLowerCase().contains(tfSearchPart.getText().toLowerCase())
-                                || Integer.toString(part.getId()).contains(tfSearchPart.getText()))
-                        .collect(Collectors.toCollection(FXCollections::observableArrayList)));
+                partSearch.submit(tfSearchPart.getText());
             }
         }
         catch(Exception ex){
@@ -184,7 +276,7 @@ public class MainController {
     }
 
     /**
-     * On Search TF Key Up, updates the product table view with matching results
+     * On Search TF Key Up, updates the product table view with matching results once typing pauses
      * <b> This is a good area that we could improve functionality in a future release. We could add more
      * search options such as inventory amount and price, as well as have a backend SQL database
      * to actually store the product/part information between sessions rather than have it revert each time.</b>
@@ -195,14 +287,11 @@ public class MainController {
     protected void handleSearchProductAction(KeyEvent event) throws Exception {
         try {
             if(tfSearchProduct.getText().isEmpty() || tfSearchProduct.getText() == null){
-                tvProduct.setItems(inventory.getAllProducts());
+                productSearch.cancel();
+                tvProduct.setItems(fx.getAllProducts());
             }
             else{
-                tvProduct.setItems(inventory.getAllProducts()
-                        .stream()
-                        .filter(product -> product.getName().toLowerCase().contains(tfSearchProduct.getText().toLowerCase())
-                                || Integer.toString(product.getId()).contains(tfSearchProduct.getText()))
-                        .collect(Collectors.toCollection(FXCollections::observableArrayList)));
+                productSearch.submit(tfSearchProduct.getText());
             }
         }
         catch(Exception ex){
@@ -218,18 +307,8 @@ public class MainController {
     @FXML
     protected void handleAddPartButtonAction(ActionEvent event) throws Exception {
         try {
-            // Load AddPartForm
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/ui/AddPartForm.fxml"));
-            AddPartController controller = new AddPartController(inventory);
-            loader.setController(controller);
-
-            // Set new window stage
-            Stage stage = new Stage();
-            stage.setTitle("Add Part");
-            Scene scene = new Scene(loader.load());
-            stage.setScene(scene);
-            controller.setScene(scene);
-            stage.show();
+            // Show AddPartForm, cleared of the last part added
+            forms.<AddPartController>open(ADD_PART_FORM, "Add Part", AddPartController::reset, null);
         }
         catch(Exception ex){
             ex.printStackTrace();
@@ -247,24 +326,16 @@ public class MainController {
             // Get selected part
             Part selectedPart = (Part)tvPart.getSelectionModel().getSelectedItem();
             if(selectedPart != null){
-                // Load ModifyPartForm
-                FXMLLoader loader = new FXMLLoader(getClass().getResource("/ui/ModifyPartForm.fxml"));
-                int index = tvPart.getItems().indexOf(selectedPart);
-                ModifyPartController controller = new ModifyPartController(selectedPart, index, inventory);
-                loader.setController(controller);
-
-                // Set new window stage
-                Stage stage = new Stage();
-                stage.setTitle("Modify Part");
-                Scene scene = new Scene(loader.load());
-                stage.setScene(scene);
-                controller.setScene(scene);
-                stage.show();
-
-                // Bind window closing event
-                stage.setOnHiding(windowEvent -> {
-                    tvPart.refresh();
-                });
+                // Show ModifyPartForm filled with the selected part
+                int index = inventory.getAllParts().indexOf(selectedPart);
+                // On closing, the inventory list already shows the new part, search results need re-running
+                forms.<ModifyPartController>open(MODIFY_PART_FORM, "Modify Part",
+                        controller -> controller.bind(selectedPart, index),
+                        () -> {
+                            if(tvPart.getItems() == partResults){
+                                partSearch.submit(tfSearchPart.getText());
+                            }
+                        });
             }
             else {
                 Alert alert = new Alert(Alert.AlertType.WARNING);
@@ -290,8 +361,10 @@ public class MainController {
 
         // Delete selected part
         if(selectedPart != null){
+                int usedBy = inventory.whereUsed(selectedPart.getId()).size();
                 Alert confirmationAlert = new Alert(Alert.AlertType.CONFIRMATION,
-                        "Delete " + selectedPart.getName() + "?",
+                        "Delete " + selectedPart.getName() + "?"
+                                + (usedBy > 0 ? "\nIt will be removed from " + usedBy + " product(s) using it." : ""),
                         ButtonType.YES,
                         ButtonType.NO,
                         ButtonType.CANCEL);
@@ -299,6 +372,7 @@ public class MainController {
                 confirmationAlert.showAndWait();
                 if(confirmationAlert.getResult() == ButtonType.YES){
                     inventory.deletePart(selectedPart);
+                    partResults.remove(selectedPart);
                 }
                 else {
                     return;
@@ -321,18 +395,8 @@ public class MainController {
     @FXML
     protected void handleAddProductButtonAction(ActionEvent event) throws Exception {
         try {
-            // Load AddPartForm
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/ui/AddProductForm.fxml"));
-            AddProductController controller = new AddProductController(inventory);
-            loader.setController(controller);
-
-            // Set new window stage
-            Stage stage = new Stage();
-            stage.setTitle("Add Part");
-            Scene scene = new Scene(loader.load());
-            stage.setScene(scene);
-            controller.setScene(scene);
-            stage.show();
+            // Show AddProductForm, cleared of the last product added
+            forms.<AddProductController>open(ADD_PRODUCT_FORM, "Add Product", AddProductController::reset, null);
         }
         catch(Exception ex){
             ex.printStackTrace();
@@ -351,23 +415,9 @@ public class MainController {
             Product selectedProduct = (Product)tvProduct.getSelectionModel().getSelectedItem();
 
             if(selectedProduct != null){
-                // Load ModifyPartForm
-                FXMLLoader loader = new FXMLLoader(getClass().getResource("/ui/ModifyProductForm.fxml"));
-                ModifyProductController controller = new ModifyProductController(inventory, selectedProduct);
-                loader.setController(controller);
-
-                // Set new window stage
-                Stage stage = new Stage();
-                stage.setTitle("Modify Product");
-                Scene scene = new Scene(loader.load());
-                stage.setScene(scene);
-                controller.setScene(scene);
-                stage.show();
-
-                // Bind window closing event
-                stage.setOnHiding(windowEvent -> {
-                    tvProduct.refresh();
-                });
+                // Show ModifyProductForm filled with the selected product
+                forms.<ModifyProductController>open(MODIFY_PRODUCT_FORM, "Modify Product",
+                        controller -> controller.bind(selectedProduct), null);
             }
             else {
                 Alert alert = new Alert(Alert.AlertType.WARNING);
@@ -410,6 +460,7 @@ public class MainController {
                 confirmationAlert.showAndWait();
                 if(confirmationAlert.getResult() == ButtonType.YES){
                     inventory.deleteProduct(selectedProduct);
+                    productResults.remove(selectedProduct);
                 }
                 else {
                     return;
@@ -424,6 +475,150 @@ public class MainController {
         }
     }
 
+    /**
+     * On Build button click, asks how many units to build then builds them from the product's parts, or displays
+     * an error message
+     * @param event action event when button is clicked
+     */
+    @FXML
+    protected void handleBuildProductButtonAction(ActionEvent event) {
+        Product selectedProduct = (Product)tvProduct.getSelectionModel().getSelectedItem();
+        if(selectedProduct == null) {
+            Alert alert = new Alert(Alert.AlertType.WARNING);
+            alert.setTitle("Warning");
+            alert.setContentText("Please select a Product to build.");
+            alert.show();
+            return;
+        }
+
+        TextInputDialog dialog = new TextInputDialog("1");
+        dialog.setTitle("Build Product");
+        dialog.setHeaderText("Build " + selectedProduct.getName() + " from its parts");
+        dialog.setContentText("Units to build:");
+        String entered = dialog.showAndWait().orElse(null);
+        if(entered == null) {
+            return;
+        }
+
+        int quantity;
+        try {
+            quantity = Integer.parseInt(entered.trim());
+        } catch (NumberFormatException e) {
+            quantity = 0;
+        }
+        if(quantity <= 0) {
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle("Error");
+            alert.setContentText("Units to build must be a whole number above 0.");
+            alert.show();
+        }
+        else {
+            // Checked first so the reason a run is turned away, short part stock or a min or max, can be shown
+            String refusal = inventory.checkBuild(selectedProduct.getId(), quantity);
+            if(refusal != null) {
+                Alert alert = new Alert(Alert.AlertType.ERROR);
+                alert.setTitle("Error");
+                alert.setContentText(refusal);
+                alert.show();
+            }
+            else {
+                inventory.build(selectedProduct.getId(), quantity);
+            }
+        }
+    }
+
+    /**
+     * On Import button click, asks for a CSV file and imports it on a background thread
+     * @param event action event when button is clicked
+     * @throws Exception if unable to start the import
+     */
+    @FXML
+    protected void handleImportButtonAction(ActionEvent event) throws Exception {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Import Parts and Products");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV files", "*.csv"));
+        File file = chooser.showOpenDialog(btnImport.getScene().getWindow());
+        if(file == null){
+            return;
+        }
+
+        // Rows are parsed in the background and added in large batches on this thread
+        InventoryImporter importer = new InventoryImporter(inventory, Platform::runLater);
+        importTask = new Task<InventoryImporter.Result>() {
+            @Override
+            protected InventoryImporter.Result call() throws Exception {
+                return importer.importFile(file.toPath(), (bytesRead, totalBytes, rowsImported) -> {
+                    updateProgress(bytesRead, totalBytes);
+                    updateMessage("Imported " + rowsImported + " rows...");
+                });
+            }
+        };
+        importTask.setOnSucceeded(workerEvent -> {
+            InventoryImporter.Result result = importTask.getValue();
+            if(result.isFailed()){
+                endImport("Import failed after " + result.getParts() + " parts and " + result.getProducts()
+                        + " products. Rows already imported were kept.");
+                Alert alert = new Alert(Alert.AlertType.ERROR);
+                alert.setTitle("Import Error");
+                alert.setContentText(String.join("\n", result.getErrors()));
+                alert.show();
+                return;
+            }
+            endImport("Imported " + result.getParts() + " parts and " + result.getProducts() + " products.");
+            if(result.getSkipped() > 0){
+                Alert alert = new Alert(Alert.AlertType.WARNING);
+                alert.setTitle("Import Warning");
+                alert.setHeaderText(result.getSkipped() + " row(s) were skipped.");
+                alert.setContentText(String.join("\n", result.getErrors()));
+                alert.show();
+            }
+        });
+        importTask.setOnCancelled(workerEvent -> endImport("Import cancelled. Rows already imported were kept."));
+        importTask.setOnFailed(workerEvent -> {
+            endImport("Import failed.");
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle("Import Error");
+            alert.setContentText(String.valueOf(importTask.getException().getMessage()));
+            alert.show();
+        });
+
+        pbImport.progressProperty().bind(importTask.progressProperty());
+        lblImport.textProperty().bind(importTask.messageProperty());
+        pbImport.setVisible(true);
+        btnCancelImport.setVisible(true);
+        btnImport.setDisable(true);
+
+        Thread thread = new Thread(importTask, "inventory-import");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * On Cancel button click, stops the running import
+     * @param event action event when button is clicked
+     * @throws Exception possible Exception thrown
+     */
+    @FXML
+    protected void handleCancelImportButtonAction(ActionEvent event) throws Exception {
+        if(importTask != null){
+            importTask.cancel();
+        }
+    }
+
+    /**
+     * Hides the import progress and shows how the import ended
+     * @param message to show next to the import button
+     */
+    private void endImport(String message){
+        pbImport.progressProperty().unbind();
+        lblImport.textProperty().unbind();
+        pbImport.setVisible(false);
+        btnCancelImport.setVisible(false);
+        btnImport.setDisable(false);
+        lblImport.setText(message);
+        importTask = null;
+    }
+
     /**
      * Closes application
      * @param event Exit Button Click Event
@@ -13,13 +13,13 @@ import javafx.scene.input.KeyEvent;
 import javafx.scene.paint.Color;
 import javafx.stage.Stage;
 
-public class ModifyPartController {
+public class ModifyPartController implements FormCache.Form {
 
     private Part part;
     private Scene scene;
-    private final boolean inHouse;
+    private boolean inHouse;
     private final Inventory inventory;
-    private final int partIndex;
+    private int partIndex;
     private boolean invalidSaveState;
 
     @FXML
@@ -63,48 +63,16 @@ public class ModifyPartController {
 
     /**
      * Modify Part constructor
-     * @param part to modify
-     * @param index of part to modify
      * @param inventory of parts/products
      */
-    public ModifyPartController(Part part, int index, Inventory inventory){
-        this.part = part;
-        this.partIndex = index;
+    public ModifyPartController(Inventory inventory){
         this.inventory = inventory;
-
-        // Check the part type.
-        if(part instanceof InHouse){
-            inHouse = true;
-        }
-        else {
-            inHouse = false;
-        }
     }
 
     /**
-     * Called on controller initialization, sets initial data and binds events
+     * Called on controller initialization, binds events
      */
     public void initialize() {
-        tfID.setText(String.valueOf(part.getId()));
-        tfName.setText(part.getName());
-        tfInv.setText(String.valueOf(part.getStock()));
-        tfPriceCost.setText(String.valueOf(part.getPrice()));
-        tfMax.setText(String.valueOf(part.getMax()));
-        tfMin.setText(String.valueOf(part.getMin()));
-
-        if(inHouse){
-            rbInHouse.setSelected(true);
-            lblMIDCNAME.setText("Machine ID");
-            tfMIDCNAME.setText(String.valueOf(((InHouse) part).getMachineId()));
-            tfMIDCNAME.setTextFormatter(new TextFormatter<String>(Helper.TextHelper.numericFilter));
-        }
-        else{
-            rbOutsourced.setSelected(true);
-            lblMIDCNAME.setText("Company Name");
-            tfMIDCNAME.setText(String.valueOf(((Outsourced) part).getCompanyName()));
-            tfMIDCNAME.setTextFormatter(new TextFormatter<String>(Helper.TextHelper.nonNumericFilter));
-        }
-
         btnCancel.setOnAction((event -> {
             try {
                 handleCancelButtonAction(event);
@@ -174,10 +142,46 @@ public class ModifyPartController {
         tfPriceCost.setTextFormatter(new TextFormatter<>(Helper.TextHelper.decimalFilter));
     }
 
+    /**
+     * Fills the form with a part, as the window is reused between opens
+     * @param part to modify
+     * @param index of part to modify
+     */
+    public void bind(Part part, int index) {
+        this.part = part;
+        this.partIndex = index;
+        inHouse = part instanceof InHouse;
+        invalidSaveState = false;
+        lblMinMaxError.setVisible(false);
+        lblMinMaxError.setText("");
+
+        Helper.TextHelper.setUnfiltered(tfID, String.valueOf(part.getId()));
+        Helper.TextHelper.setUnfiltered(tfName, part.getName());
+        Helper.TextHelper.setUnfiltered(tfInv, String.valueOf(part.getStock()));
+        Helper.TextHelper.setUnfiltered(tfPriceCost, String.valueOf(part.getPrice()));
+        Helper.TextHelper.setUnfiltered(tfMax, String.valueOf(part.getMax()));
+        Helper.TextHelper.setUnfiltered(tfMin, String.valueOf(part.getMin()));
+
+        tfMIDCNAME.setTextFormatter(null);
+        if(inHouse){
+            rbInHouse.setSelected(true);
+            lblMIDCNAME.setText("Machine ID");
+            tfMIDCNAME.setText(String.valueOf(((InHouse) part).getMachineId()));
+            tfMIDCNAME.setTextFormatter(new TextFormatter<String>(Helper.TextHelper.numericFilter));
+        }
+        else{
+            rbOutsourced.setSelected(true);
+            lblMIDCNAME.setText("Company Name");
+            tfMIDCNAME.setText(String.valueOf(((Outsourced) part).getCompanyName()));
+            tfMIDCNAME.setTextFormatter(new TextFormatter<String>(Helper.TextHelper.nonNumericFilter));
+        }
+    }
+
     /**
      * Sets the scene value to use
      * @param scene to set controller to reference
      */
+    @Override
     public void setScene(Scene scene) {
         this.scene = scene;
     };
@@ -319,41 +323,58 @@ public class ModifyPartController {
             }
             else {
                 if(!invalidSaveState){
+                    // Every field is parsed before anything is set, so a bad number leaves the part as it was
+                    String name = tfName.getText();
+                    double price;
+                    int min;
+                    int max;
+                    int stock;
+                    int machineId;
+                    try {
+                        price = Double.parseDouble(tfPriceCost.getText());
+                        min = Integer.parseInt(tfMin.getText());
+                        max = Integer.parseInt(tfMax.getText());
+                        stock = Integer.parseInt(tfInv.getText());
+                        machineId = rbInHouse.isSelected() ? Integer.parseInt(tfMIDCNAME.getText()) : 0;
+                    } catch (NumberFormatException e) {
+                        Alert alert = new Alert(Alert.AlertType.WARNING);
+                        alert.setTitle("Modify Part Warning");
+                        alert.setHeaderText("Please enter valid numbers.");
+                        alert.setContentText(" - Inventory, minimum, maximum and machine Id must be whole numbers"
+                                + " no larger than " + Integer.MAX_VALUE + ", and price a number.\n");
+                        alert.showAndWait();
+                        return;
+                    }
+                    String companyName = tfMIDCNAME.getText();
+
                     if(part instanceof InHouse && rbInHouse.isSelected()){
-                        part.setName(tfName.getText());
-                        part.setPrice(Double.parseDouble(tfPriceCost.getText()));
-                        part.setMin(Integer.parseInt(tfMin.getText()));
-                        part.setMax(Integer.parseInt(tfMax.getText()));
-                        part.setStock(Integer.parseInt(tfInv.getText()));
-                        ((InHouse)part).setMachineId(Integer.parseInt(tfMIDCNAME.getText()));
+                        // One batch, so the edit is logged and replayed as a whole
+                        inventory.batch(tx -> {
+                            part.setName(name);
+                            part.setPrice(price);
+                            part.setMin(min);
+                            part.setMax(max);
+                            part.setStock(stock);
+                            ((InHouse)part).setMachineId(machineId);
+                        });
                     }
                     else if (part instanceof InHouse && rbOutsourced.isSelected()){
-
-                        Outsourced newPart = new Outsourced(part.getId(),
-                                tfName.getText(),
-                                Double.parseDouble(tfPriceCost.getText()),
-                                Integer.parseInt(tfInv.getText()),
-                                Integer.parseInt(tfMin.getText()),
-                                Integer.parseInt(tfMax.getText()),
-                                tfMIDCNAME.getText());
+                        Outsourced newPart = new Outsourced(part.getId(), name, price, stock, min, max, companyName);
                         inventory.updatePart(partIndex, newPart);
                     }
                     else if (part instanceof Outsourced && rbOutsourced.isSelected()){
-                        part.setName(tfName.getText());
-                        part.setPrice(Double.parseDouble(tfPriceCost.getText()));
-                        part.setMin(Integer.parseInt(tfMin.getText()));
-                        part.setMax(Integer.parseInt(tfMax.getText()));
-                        part.setStock(Integer.parseInt(tfInv.getText()));
-                        ((Outsourced)part).setCompanyName(tfMIDCNAME.getText());
+                        // One batch, so the edit is logged and replayed as a whole
+                        inventory.batch(tx -> {
+                            part.setName(name);
+                            part.setPrice(price);
+                            part.setMin(min);
+                            part.setMax(max);
+                            part.setStock(stock);
+                            ((Outsourced)part).setCompanyName(companyName);
+                        });
                     }
                     else {
-                        InHouse newPart = new InHouse(part.getId(),
-                                tfName.getText(),
-                                Double.parseDouble(tfPriceCost.getText()),
-                                Integer.parseInt(tfInv.getText()),
-                                Integer.parseInt(tfMin.getText()),
-                                Integer.parseInt(tfMax.getText()),
-                                Integer.parseInt(tfMIDCNAME.getText()));
+                        InHouse newPart = new InHouse(part.getId(), name, price, stock, min, max, machineId);
                         inventory.updatePart(partIndex, newPart);
                     }
                     closeWindow();
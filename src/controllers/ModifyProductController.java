@@ -2,8 +2,8 @@ package controllers;
 
 import biz.Helper;
 import classes.*;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import classes.fx.DiffList;
+import classes.fx.FxInventory;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.Scene;
@@ -11,12 +11,17 @@ import javafx.scene.control.*;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.paint.Color;
 import javafx.stage.Stage;
+import java.util.BitSet;
 import java.util.stream.Collectors;
 
-public class ModifyProductController {
+public class ModifyProductController implements FormCache.Form {
 
-    private final Product product;
+    private Product product;
+    private final FxInventory fx;
     private final Inventory inventory;
+    private final SearchExecutor searchExecutor;
+    private SearchExecutor.Search<int[]> partSearch;
+    private final DiffList<Part> availableParts = new DiffList<>();
     private Scene scene;
     private boolean invalidSaveState;
 
@@ -64,42 +69,25 @@ public class ModifyProductController {
 
     /**
      *
-     * @param inventory inventory of parts/products
-     * @param product to modify
+     * @param fx inventory of parts/products, with its observable views
+     * @param searchExecutor runs the part search box's queries
      */
-    public ModifyProductController(Inventory inventory, Product product)
+    public ModifyProductController(FxInventory fx, SearchExecutor searchExecutor)
     {
-        this.inventory = inventory;
-        this.product = product;
+        this.fx = fx;
+        this.inventory = fx.getInventory();
+        this.searchExecutor = searchExecutor;
     }
 
     /**
-     * Called on controller initialization, sets initial data and binds events
+     * Called on controller initialization, binds events; bind() fills in the data
      */
     public void initialize() {
-        // Initialize text data
-        tfID.setText(String.valueOf(product.getId()));
-        tfName.setText(product.getName());
-        tfInv.setText(String.valueOf(product.getStock()));
-        tfPriceCost.setText(String.valueOf(product.getPrice()));
-        tfMax.setText(String.valueOf(product.getMax()));
-        tfMin.setText(String.valueOf(product.getMin()));
-
         tvAvailableParts.setPlaceholder(Helper.TextHelper.getNoResultsLabel());
         tvAssignedParts.setPlaceholder(new Label("No Associated Parts."));
-
-        // Get Associated parts
-        ObservableList<Part> associatedParts = product.getAllAssociatedParts();
-
-        // Initialize part tables
-        if(associatedParts != null){
-            updateAvailableParts();
-        }
-        else {
-            tvAvailableParts.setItems(inventory.getAllParts());
-        }
-
-        tvAssignedParts.setItems(product.getAllAssociatedParts());
+        tvAvailableParts.setItems(availableParts);
+        Helper.TableHelper.liveColumns(tvAvailableParts, fx);
+        Helper.TableHelper.liveColumns(tvAssignedParts, fx);
 
         // Add Part Action Binding
         btnAdd.setOnAction((event -> {
@@ -137,7 +125,14 @@ public class ModifyProductController {
             }
         }));
 
-        // Part Search Binding
+        // Part Search Binding, showing search latency in the search box tooltip
+        partSearch = searchExecutor.newSearch(inventory.newPartSearch()::find, ids -> {
+            availableParts.update(inventory.lookupParts(product.getAssociatedParts().without(ids)));
+            if(tfSearchPart.getTooltip() == null){
+                tfSearchPart.setTooltip(new Tooltip());
+            }
+            tfSearchPart.getTooltip().setText(partSearch.getMetrics().toString());
+        });
         tfSearchPart.setOnKeyReleased(keyEvent -> {
             try {
                 handleSearchPartAction(keyEvent);
@@ -183,7 +178,7 @@ public class ModifyProductController {
     }
 
     /**
-     * On Search TF Key Up, updates the part table view with matching results
+     * On Search TF Key Up, updates the part table view with matching results once typing pauses
      * @param event action event of lifting up a key press in the text field
      * @throws Exception possible Exception thrown
      */
@@ -191,15 +186,11 @@ public class ModifyProductController {
     protected void handleSearchPartAction(KeyEvent event) throws Exception {
         try {
             if(tfSearchPart.getText().isEmpty() || tfSearchPart.getText() == null){
+                partSearch.cancel();
                 updateAvailableParts();
             }
             else{
-                tvAvailableParts.setItems(inventory.getAllParts()
-                        .stream()
-                        .filter(part -> (part.getName().toLowerCase().contains(tfSearchPart.getText().toLowerCase())
-                                || Integer.toString(part.getId()).contains(tfSearchPart.getText()))
-                                && !product.getAllAssociatedParts().contains(part))
-                        .collect(Collectors.toCollection(FXCollections::observableArrayList)));
+                partSearch.submit(tfSearchPart.getText());
             }
         }
         catch(Exception ex){
@@ -283,9 +274,9 @@ public class ModifyProductController {
     protected void handleAddButtonAction(ActionEvent event) throws Exception {
         try {
             Part selectedPart = (Part)tvAvailableParts.getSelectionModel().getSelectedItem();
-            if(selectedPart != null && product.getAllAssociatedParts().stream().noneMatch(part -> part.getId() == selectedPart.getId())){
+            if(selectedPart != null && !product.isAssociated(selectedPart.getId())){
                 product.addAssociatedPart(selectedPart);
-                tvAssignedParts.setItems(product.getAllAssociatedParts());
+                tvAssignedParts.setItems(fx.getAllAssociatedParts(product));
                 updateAvailableParts();
             }
             else {
@@ -308,7 +299,7 @@ public class ModifyProductController {
     protected void handleRemoveButtonAction(ActionEvent event) throws Exception {
         try {
             Part selectedPart = (Part)tvAssignedParts.getSelectionModel().getSelectedItem();
-            if(selectedPart != null && product.getAllAssociatedParts().stream().anyMatch(part -> part.getId() == selectedPart.getId())){
+            if(selectedPart != null && product.isAssociated(selectedPart.getId())){
                 Alert confirmationAlert = new Alert(Alert.AlertType.CONFIRMATION,
                         "Remove " + selectedPart.getName() + "?",
                         ButtonType.YES,
@@ -318,7 +309,7 @@ public class ModifyProductController {
                 confirmationAlert.showAndWait();
                 if(confirmationAlert.getResult() == ButtonType.YES){
                     product.deleteAssociatedPart(selectedPart);
-                    tvAssignedParts.setItems(product.getAllAssociatedParts());
+                    tvAssignedParts.setItems(fx.getAllAssociatedParts(product));
                     updateAvailableParts();
                 }
                 else {
@@ -376,11 +367,34 @@ public class ModifyProductController {
             }
             else {
                 if (!invalidSaveState) {
-                    product.setName(tfName.getText());
-                    product.setPrice(Double.parseDouble(tfPriceCost.getText()));
-                    product.setMin(Integer.parseInt(tfMin.getText()));
-                    product.setMax(Integer.parseInt(tfMax.getText()));
-                    product.setStock(Integer.parseInt(tfInv.getText()));
+                    // Every field is parsed before anything is set, so a bad number leaves the product as it was
+                    String name = tfName.getText();
+                    double price;
+                    int min;
+                    int max;
+                    int stock;
+                    try {
+                        price = Double.parseDouble(tfPriceCost.getText());
+                        min = Integer.parseInt(tfMin.getText());
+                        max = Integer.parseInt(tfMax.getText());
+                        stock = Integer.parseInt(tfInv.getText());
+                    } catch (NumberFormatException e) {
+                        Alert alert = new Alert(Alert.AlertType.WARNING);
+                        alert.setTitle("Modify Product Warning");
+                        alert.setHeaderText("Please enter valid numbers.");
+                        alert.setContentText(" - Inventory, minimum and maximum must be whole numbers no larger than "
+                                + Integer.MAX_VALUE + ", and price a number.\n");
+                        alert.showAndWait();
+                        return;
+                    }
+                    // One batch, so the edit is logged and replayed as a whole
+                    inventory.batch(tx -> {
+                        product.setName(name);
+                        product.setPrice(price);
+                        product.setMin(min);
+                        product.setMax(max);
+                        product.setStock(stock);
+                    });
                     closeWindow();
                 } else {
                     Alert alert = new Alert(Alert.AlertType.WARNING);
@@ -407,10 +421,34 @@ public class ModifyProductController {
         closeWindow();
     }
 
+    /**
+     * Fills the form with a product, as the window is reused between opens
+     * @param product to modify
+     */
+    public void bind(Product product) {
+        this.product = product;
+        invalidSaveState = false;
+        lblMinMaxError.setVisible(false);
+        lblMinMaxError.setText("");
+
+        Helper.TextHelper.setUnfiltered(tfID, String.valueOf(product.getId()));
+        Helper.TextHelper.setUnfiltered(tfName, product.getName());
+        Helper.TextHelper.setUnfiltered(tfInv, String.valueOf(product.getStock()));
+        Helper.TextHelper.setUnfiltered(tfPriceCost, String.valueOf(product.getPrice()));
+        Helper.TextHelper.setUnfiltered(tfMax, String.valueOf(product.getMax()));
+        Helper.TextHelper.setUnfiltered(tfMin, String.valueOf(product.getMin()));
+
+        partSearch.cancel();
+        tfSearchPart.clear();
+        tvAssignedParts.setItems(fx.getAllAssociatedParts(product));
+        updateAvailableParts();
+    }
+
     /**
      * Sets the scene value to use
      * @param scene to set controller to reference
      */
+    @Override
     public void setScene(Scene scene) {
         this.scene = scene;
     };
@@ -419,18 +457,23 @@ public class ModifyProductController {
      * Updates available part list based on associated parts
      */
     protected void updateAvailableParts(){
-        tvAvailableParts.setItems(
+        if(tfSearchPart.getText() != null && !tfSearchPart.getText().isEmpty()){
+            partSearch.submit(tfSearchPart.getText());
+            return;
+        }
+        BitSet assigned = product.getAssociatedParts().idBits();
+        availableParts.update(
                 inventory.getAllParts()
                         .stream()
-                        .filter(part -> !product.getAllAssociatedParts().contains(part))
-                        .collect(Collectors.toCollection(FXCollections::observableArrayList)));
-        tvAvailableParts.refresh();
+                        .filter(part -> !assigned.get(part.getId()))
+                        .collect(Collectors.toList()));
     }
 
     /**
      * Gets the stage and closes the window.
      */
     private void closeWindow(){
+        partSearch.cancel();
         Stage stage = (Stage)scene.getWindow();
         stage.close();
     }
@@ -8,14 +8,34 @@ package ui;
 import classes.InHouse;
 import classes.Inventory;
 import classes.Product;
+import classes.SearchExecutor;
+import classes.fx.FxInventory;
+import controllers.FormCache;
 import controllers.MainController;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import javafx.util.Duration;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class Main extends Application {
 
+    private static final String DATA_DIRECTORY = ".inventory-management";
+    private static final Duration SNAPSHOT_INTERVAL = Duration.minutes(5);
+    private static final long SEARCH_DEBOUNCE_MILLIS = 150;
+    private static final System.Logger LOG = System.getLogger(Main.class.getName());
+
+    private Inventory inv;
+    private SearchExecutor searchExecutor;
+    private FormCache forms;
+
     /**
      *
      * @param primaryStage main stage to load application
@@ -24,15 +44,19 @@ public class Main extends Application {
     @Override
     public void start(Stage primaryStage) throws Exception{
         // Initialize inventory
-        Inventory inv = new Inventory();
-        inv.addPart(new InHouse(1,"Charger", 10.99, 100, 1, 1000, 1));
-        inv.addPart(new InHouse(2,"Cable", 4.99, 500, 0, 999, 2));
-        inv.addProduct(new Product(1,"Router", 199.99, 4, 1, 10));
-        inv.addProduct(new Product(2,"Computer", 599.99, 15, 1, 15));
+        inv = new Inventory(Paths.get(System.getProperty("user.home"), DATA_DIRECTORY));
+        if (inv.getAllParts().isEmpty() && inv.getAllProducts().isEmpty()) {
+            inv.addPart(new InHouse(1,"Charger", 10.99, 100, 1, 1000, 1));
+            inv.addPart(new InHouse(2,"Cable", 4.99, 500, 0, 999, 2));
+            inv.addProduct(new Product(1,"Router", 199.99, 4, 1, 10));
+            inv.addProduct(new Product(2,"Computer", 599.99, 15, 1, 15));
+        }
 
         // Initialize main controller
         FXMLLoader loader = new FXMLLoader(getClass().getResource("MainForm.fxml"));
-        MainController controller = new MainController(inv);
+        searchExecutor = new SearchExecutor(Platform::runLater, SEARCH_DEBOUNCE_MILLIS);
+        forms = new FormCache();
+        MainController controller = new MainController(new FxInventory(inv), searchExecutor, forms);
         loader.setController(controller);
 
         // Set up scene to display
@@ -40,6 +64,43 @@ public class Main extends Application {
         primaryStage.setTitle("Inventory Management");
         primaryStage.setScene(scene);
         primaryStage.show();
+
+        // Load the Add/Modify forms in the background, so the first open of each is as quick as the rest
+        ExecutorService formLoader = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "form-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        forms.warm(formLoader);
+        formLoader.shutdown();
+
+        // Snapshot now and then so the log replayed on the next start stays short; only copying what
+        // changed happens on this thread, the log's writer thread encodes and writes it
+        Timeline snapshots = new Timeline(new KeyFrame(SNAPSHOT_INTERVAL, event ->
+            inv.snapshotInBackground().whenComplete((saved, ex) -> {
+                if (ex != null) {
+                    LOG.log(System.Logger.Level.WARNING, "snapshot failed", ex);
+                }
+            })));
+        snapshots.setCycleCount(Animation.INDEFINITE);
+        snapshots.play();
+    }
+
+    /**
+     *
+     * @throws Exception if unable to flush the inventory log
+     */
+    @Override
+    public void stop() throws Exception {
+        if (forms != null) {
+            LOG.log(System.Logger.Level.INFO, forms::toString);
+        }
+        if (searchExecutor != null) {
+            searchExecutor.close();
+        }
+        if (inv != null) {
+            inv.close();
+        }
     }
 
     public static void main(String[] args) {